@@ -0,0 +1,221 @@
+package com.allchat.chat_service.admission;
+
+import com.allchat.chat_service.session.OutboundSessionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides at the handshake whether this node takes another WebSocket session.
+ *
+ * A handshake is rejected, cheapest check first, when:
+ * - the node already holds chat.admission.max-sessions sessions
+ * - the frames waiting in the outbound pipelines exceed chat.admission.max-outbound-queue-depth
+ * - heap still in use after the last GC is above chat.admission.max-heap-used-ratio of the maximum heap
+ * - the remote IP exceeds its own token bucket (per-ip-connections-per-second / per-ip-burst)
+ * - the node exceeds its token bucket for new connections (connections-per-second / burst)
+ *
+ * Rejections carry a retry-after hint: the time to the next token for rate limits,
+ * chat.admission.retry-after-seconds when the node is overloaded. Already connected users are not affected.
+ *
+ * An admitted handshake holds one of the max-sessions slots from admit() on, taken with a CAS so that
+ * concurrent handshakes can never overshoot the limit while their sessions are still being opened.
+ * The engine gives the slot back with release() when the handshake fails or the session closes,
+ * the servlet engine marks the sessions holding one with {@link #SLOT_ATTRIBUTE}.
+ */
+@Component
+public class AdmissionController {
+
+    /** Handshake and session attribute of a servlet session holding a session slot */
+    public static final String SLOT_ATTRIBUTE = "chat.admission.slot";
+
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+            .toList();
+
+    private final OutboundSessionManager outboundSessionManager;
+
+    private final int maxSessions;
+
+    /** Sessions admitted and not closed yet, handshakes in progress included */
+    private final AtomicInteger slots = new AtomicInteger();
+
+    private final long maxOutboundQueueDepth;
+
+    private final double maxHeapUsedRatio;
+
+    private final long retryAfterSeconds;
+
+    private final double perIpConnectionsPerSecond;
+
+    private final int perIpBurst;
+
+    private final TokenBucket connectionBucket;
+
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+
+    private final Map<AdmissionDecision.Reason, Counter> rejected = new EnumMap<>(AdmissionDecision.Reason.class);
+
+    private final Counter admitted;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param outboundSessionManager Source of the outbound backlog
+     * @param meterRegistry Registry the admission counters are published to
+     * @param maxSessions Concurrent sessions this node accepts
+     * @param connectionsPerSecond Sustained rate of new connections on this node
+     * @param burst New connections accepted at once on this node
+     * @param perIpConnectionsPerSecond Sustained rate of new connections per remote IP
+     * @param perIpBurst New connections accepted at once per remote IP
+     * @param maxOutboundQueueDepth Buffered outbound frames above which new sessions are refused
+     * @param maxHeapUsedRatio Share of the maximum heap in use above which new sessions are refused
+     * @param retryAfterSeconds Retry-after hint when the node is overloaded
+     */
+    public AdmissionController(OutboundSessionManager outboundSessionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${chat.admission.max-sessions:10000}") int maxSessions,
+                               @Value("${chat.admission.connections-per-second:200}") double connectionsPerSecond,
+                               @Value("${chat.admission.burst:400}") int burst,
+                               @Value("${chat.admission.per-ip-connections-per-second:2}") double perIpConnectionsPerSecond,
+                               @Value("${chat.admission.per-ip-burst:10}") int perIpBurst,
+                               @Value("${chat.admission.max-outbound-queue-depth:200000}") long maxOutboundQueueDepth,
+                               @Value("${chat.admission.max-heap-used-ratio:0.9}") double maxHeapUsedRatio,
+                               @Value("${chat.admission.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.outboundSessionManager = outboundSessionManager;
+        this.maxSessions = maxSessions;
+        this.connectionBucket = new TokenBucket(connectionsPerSecond, burst);
+        this.perIpConnectionsPerSecond = perIpConnectionsPerSecond;
+        this.perIpBurst = perIpBurst;
+        this.maxOutboundQueueDepth = maxOutboundQueueDepth;
+        this.maxHeapUsedRatio = maxHeapUsedRatio;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        for (AdmissionDecision.Reason reason : AdmissionDecision.Reason.values()) {
+            rejected.put(reason, Counter.builder("chat.admission.rejected")
+                    .description("WebSocket handshakes rejected by admission control")
+                    .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.admitted = Counter.builder("chat.admission.admitted")
+                .description("WebSocket handshakes admitted")
+                .register(meterRegistry);
+        Gauge.builder("chat.admission.slots", slots, AtomicInteger::get)
+                .description("Session slots held by open sessions and handshakes in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a session slot for an admitted handshake, the caller must release() it once.
+     * @param remoteIp address of the client, null if unknown
+     */
+    public AdmissionDecision admit(String remoteIp) {
+        if (!reserveSlot()) {
+            return reject(AdmissionDecision.Reason.SESSION_LIMIT, retryAfterSeconds);
+        }
+        AdmissionDecision decision = checkLoad(remoteIp);
+        if (decision.admitted()) {
+            admitted.increment();
+        } else {
+            slots.decrementAndGet();
+        }
+        return decision;
+    }
+
+    /**
+     * Gives back the slot of an admitted handshake that failed or of a session that closed.
+     */
+    public void release() {
+        slots.decrementAndGet();
+    }
+
+    /**
+     * Gives back the slot held by a servlet session, at most once per session.
+     * @param attributes handshake or session attributes
+     */
+    public void release(Map<String, Object> attributes) {
+        if (attributes.remove(SLOT_ATTRIBUTE) != null) {
+            release();
+        }
+    }
+
+    private boolean reserveSlot() {
+        int held;
+        do {
+            held = slots.get();
+            if (held >= maxSessions) {
+                return false;
+            }
+        } while (!slots.compareAndSet(held, held + 1));
+        return true;
+    }
+
+    private AdmissionDecision checkLoad(String remoteIp) {
+        if (outboundSessionManager.getQueueDepth() > maxOutboundQueueDepth) {
+            return reject(AdmissionDecision.Reason.OUTBOUND_BACKLOG, retryAfterSeconds);
+        }
+        if (heapUsedRatio() > maxHeapUsedRatio) {
+            return reject(AdmissionDecision.Reason.HEAP_PRESSURE, retryAfterSeconds);
+        }
+
+        long now = System.nanoTime();
+        if (remoteIp != null) {
+            TokenBucket ipBucket = ipBuckets.computeIfAbsent(remoteIp,
+                    ip -> new TokenBucket(perIpConnectionsPerSecond, perIpBurst));
+            long wait = ipBucket.tryAcquire(now);
+            if (wait > 0) {
+                return reject(AdmissionDecision.Reason.CLIENT_CONNECTION_RATE, toRetryAfterSeconds(wait));
+            }
+        }
+        long wait = connectionBucket.tryAcquire(now);
+        if (wait > 0) {
+            return reject(AdmissionDecision.Reason.CONNECTION_RATE, toRetryAfterSeconds(wait));
+        }
+        return AdmissionDecision.ADMITTED;
+    }
+
+    /**
+     * Drops the buckets of IPs that have not connected long enough for their bucket to refill.
+     */
+    @Scheduled(fixedDelayString = "${chat.admission.ip-bucket-cleanup-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        ipBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private AdmissionDecision reject(AdmissionDecision.Reason reason, long retryAfter) {
+        rejected.get(reason).increment();
+        return AdmissionDecision.rejected(reason, retryAfter);
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Heap in use after the last collection of each heap pool, so garbage waiting for the next
+     * young collection does not count as pressure.
+     */
+    private static double heapUsedRatio() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            used += afterGc != null ? afterGc.getUsed() : 0;
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+}
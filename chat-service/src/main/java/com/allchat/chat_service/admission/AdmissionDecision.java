@@ -0,0 +1,40 @@
+package com.allchat.chat_service.admission;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of admitting a WebSocket handshake.
+ *
+ * @param reason why the handshake was rejected, null if it was admitted
+ * @param retryAfterSeconds hint for the Retry-After header of a rejected handshake
+ */
+public record AdmissionDecision(Reason reason, long retryAfterSeconds) {
+
+    public static final AdmissionDecision ADMITTED = new AdmissionDecision(null, 0);
+
+    public enum Reason {
+        SESSION_LIMIT(HttpStatus.SERVICE_UNAVAILABLE),
+        OUTBOUND_BACKLOG(HttpStatus.SERVICE_UNAVAILABLE),
+        HEAP_PRESSURE(HttpStatus.SERVICE_UNAVAILABLE),
+        CONNECTION_RATE(HttpStatus.SERVICE_UNAVAILABLE),
+        CLIENT_CONNECTION_RATE(HttpStatus.TOO_MANY_REQUESTS);
+
+        private final HttpStatus status;
+
+        Reason(HttpStatus status) {
+            this.status = status;
+        }
+
+        public HttpStatus status() {
+            return status;
+        }
+    }
+
+    public static AdmissionDecision rejected(Reason reason, long retryAfterSeconds) {
+        return new AdmissionDecision(reason, Math.max(1, retryAfterSeconds));
+    }
+
+    public boolean admitted() {
+        return reason == null;
+    }
+}
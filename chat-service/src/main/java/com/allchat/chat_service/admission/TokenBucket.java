@@ -0,0 +1,62 @@
+package com.allchat.chat_service.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as a single theoretical arrival time (GCRA).
+ *
+ * Every permit pushes the arrival time forward by one emission interval, a permit is refused when the
+ * arrival time is further ahead of now than the burst allows. Acquiring is one CAS and never allocates,
+ * and the distance to the next permit is what a client should wait before retrying.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+
+    private final long burstToleranceNanos;
+
+    /** Theoretical arrival time of the next permit, in System.nanoTime() */
+    private final AtomicLong arrivalTime;
+
+    /**
+     * @param permitsPerSecond sustained rate
+     * @param burst permits that may be taken at once after the bucket was idle
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive: " + permitsPerSecond + ", " + burst);
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.arrivalTime = new AtomicLong(System.nanoTime() - burstToleranceNanos);
+    }
+
+    /**
+     * @return 0 if a permit was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = arrivalTime.get();
+            long next = Math.max(current, nowNanos - burstToleranceNanos);
+            long wait = next - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrivalTime.compareAndSet(current, next + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime()) == 0;
+    }
+
+    /**
+     * @return true if the bucket refilled completely, it then behaves like a new bucket and can be dropped
+     */
+    public boolean isIdle(long nowNanos) {
+        return arrivalTime.get() <= nowNanos - burstToleranceNanos;
+    }
+}
@@ -0,0 +1,34 @@
+package com.allchat.chat_service.cluster;
+
+import com.allchat.chat_service.matchmaking.MatchPreferences;
+import com.allchat.chat_service.matchmaking.MatchmakingPool;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * State and transport shared by all chat-service nodes of a cluster.
+ *
+ * ChatWebSocketHandler keeps only the WebSocket sessions of its own node. Everything that decides
+ * who is matched with whom lives here, so users connected to different nodes can be matched and
+ * exchange chat and signaling frames through the {@link MessageRelay}.
+ *
+ * Every part is an interface an external store can implement: preference state is exposed as ConcurrentMap
+ * so distributed map implementations can be plugged in as they are, groups are kept by the
+ * {@link GroupDirectory}, whose changes must be atomic per group, the {@link MatchmakingPool} must never
+ * claim a user for two matches, and the relay only carries serializable {@link RelayedFrame}s.
+ */
+public interface ChatBackplane {
+
+    SessionDirectory sessionDirectory();
+
+    MessageRelay messageRelay();
+
+    /** Waiting pool shared by the cluster */
+    MatchmakingPool matchmakingPool();
+
+    /** Chat groups and the group of every matched user */
+    GroupDirectory groupDirectory();
+
+    /** Last matching preferences sent by each user */
+    ConcurrentMap<String, MatchPreferences> matchPreferences();
+}
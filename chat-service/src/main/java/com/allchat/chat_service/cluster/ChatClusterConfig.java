@@ -0,0 +1,39 @@
+package com.allchat.chat_service.cluster;
+
+import com.allchat.chat_service.matchmaking.MatchmakingPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the {@link ChatBackplane} this node uses.
+ *
+ * chat.cluster.mode:
+ * - local (default): single node, state is private to this application context
+ * - embedded: state is shared by every node running in the same JVM, for multi-node testing on one machine
+ *
+ * Any other mode is expected to come with its own ChatBackplane bean (e.g. backed by a data grid).
+ */
+@Configuration
+public class ChatClusterConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatClusterConfig.class);
+
+    @Bean
+    @ConditionalOnExpression("'${chat.cluster.mode:local}' == 'local' or '${chat.cluster.mode:local}' == 'embedded'")
+    public ChatBackplane chatBackplane(@Value("${chat.cluster.mode:local}") String mode,
+                                       @Value("${chat.matchmaking.fallback-wait-ms:5000}") long fallbackWaitMs) {
+        log.info("Using in-memory chat backplane - Mode: {}", mode);
+        return "embedded".equals(mode)
+                ? InMemoryChatBackplane.shared(fallbackWaitMs)
+                : new InMemoryChatBackplane(fallbackWaitMs);
+    }
+
+    @Bean
+    public MatchmakingPool matchmakingPool(ChatBackplane chatBackplane) {
+        return chatBackplane.matchmakingPool();
+    }
+}
@@ -0,0 +1,76 @@
+package com.allchat.chat_service.cluster;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A chat group, a matched pair or an N-way room. Every member maps to the group's ID in the
+ * {@link GroupDirectory}, there is one group object however many members it has.
+ *
+ * Members are an immutable set replaced on every change: the per frame paths (membership checks and
+ * fan-out) read one volatile field, never lock and never copy. Joins and leaves are rare, they take the
+ * group's lock in the directory, which also keeps the users' entries in step with the set.
+ * The set is a HashSet rather than Set.copyOf: user IDs are often sequential ("user-1", "user-2"),
+ * which cluster in Set.copyOf's open addressing and make contains degrade with the group size.
+ */
+public final class ChatGroup {
+
+    private final String id;
+
+    /** Held by the directory while changing members and the users' entries */
+    final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Set<String> members;
+
+    /** Set once the group ended, an ended group takes no new members, guarded by lock */
+    boolean ended;
+
+    ChatGroup(String id, Set<String> members) {
+        this.id = id;
+        this.members = Collections.unmodifiableSet(new HashSet<>(members));
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * @return the current members, immutable
+     */
+    public Set<String> members() {
+        return members;
+    }
+
+    public boolean contains(String userId) {
+        return members.contains(userId);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    void add(String userId) {
+        Set<String> changed = new HashSet<>(members);
+        changed.add(userId);
+        members = Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    void remove(String userId) {
+        Set<String> changed = new HashSet<>(members);
+        changed.remove(userId);
+        members = Collections.unmodifiableSet(changed);
+    }
+
+    @Override
+    public String toString() {
+        return "ChatGroup[" + id + ", " + members.size() + " members]";
+    }
+}
@@ -0,0 +1,48 @@
+package com.allchat.chat_service.cluster;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Cluster-wide directory of chat groups: groups by ID and the group ID of every matched user.
+ *
+ * Every change is atomic for the group it touches: a user is in a group's members exactly when their entry
+ * points to it, so checking that two users are in the same group is a single membership check.
+ */
+public interface GroupDirectory {
+
+    /**
+     * Creates a group of the given users, all or none of them.
+     * @return the group, null if one of the users is in a group already
+     */
+    ChatGroup create(Collection<String> userIds);
+
+    /**
+     * @return the user's group, null if the user is not in a group
+     */
+    ChatGroup groupOf(String userId);
+
+    /**
+     * Adds a user who is in no group to an existing group.
+     * @return the group joined, null if it does not exist, ended, is full or the user is in a group already
+     */
+    ChatGroup join(String groupId, String userId, int maxSize);
+
+    /**
+     * Removes the user from their group, the group stays with the other members.
+     * @return the group left, null if the user was not in a group
+     */
+    ChatGroup leave(String userId);
+
+    /**
+     * Ends the group and removes the entries of all its members.
+     * @return the members when it ended, empty if it had ended already
+     */
+    Set<String> end(ChatGroup group);
+
+    /** @return groups in the directory */
+    int groupCount();
+
+    /** @return users in a group */
+    int memberCount();
+}
@@ -0,0 +1,73 @@
+package com.allchat.chat_service.cluster;
+
+import com.allchat.chat_service.matchmaking.MatchPreferences;
+import com.allchat.chat_service.matchmaking.InMemoryMatchmakingPool;
+import com.allchat.chat_service.matchmaking.MatchmakingPool;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ChatBackplane kept in memory.
+ *
+ * In "local" mode every application context gets its own instance, which is the single node setup.
+ * In "embedded" mode all contexts of the JVM share {@link #shared(long)}, so several chat-service
+ * nodes can run side by side in one process (see TestChatClusterApplication) without an external broker.
+ */
+public class InMemoryChatBackplane implements ChatBackplane {
+
+    private static volatile InMemoryChatBackplane shared;
+
+    private final SessionDirectory sessionDirectory = new InMemorySessionDirectory();
+
+    private final MessageRelay messageRelay = new InMemoryMessageRelay();
+
+    private final MatchmakingPool matchmakingPool;
+
+    private final GroupDirectory groupDirectory = new InMemoryGroupDirectory();
+
+    private final ConcurrentMap<String, MatchPreferences> matchPreferences = new ConcurrentHashMap<>();
+
+    public InMemoryChatBackplane(long fallbackWaitMs) {
+        this.matchmakingPool = new InMemoryMatchmakingPool(fallbackWaitMs);
+    }
+
+    /**
+     * @return the backplane shared by every node of this JVM, created by the first node asking for it
+     */
+    public static InMemoryChatBackplane shared(long fallbackWaitMs) {
+        if (shared == null) {
+            synchronized (InMemoryChatBackplane.class) {
+                if (shared == null) {
+                    shared = new InMemoryChatBackplane(fallbackWaitMs);
+                }
+            }
+        }
+        return shared;
+    }
+
+    @Override
+    public SessionDirectory sessionDirectory() {
+        return sessionDirectory;
+    }
+
+    @Override
+    public MessageRelay messageRelay() {
+        return messageRelay;
+    }
+
+    @Override
+    public MatchmakingPool matchmakingPool() {
+        return matchmakingPool;
+    }
+
+    @Override
+    public GroupDirectory groupDirectory() {
+        return groupDirectory;
+    }
+
+    @Override
+    public ConcurrentMap<String, MatchPreferences> matchPreferences() {
+        return matchPreferences;
+    }
+}
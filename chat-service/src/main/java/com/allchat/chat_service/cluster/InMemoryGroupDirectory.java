@@ -0,0 +1,113 @@
+package com.allchat.chat_service.cluster;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * GroupDirectory backed by maps, shared by every node using the same {@link InMemoryChatBackplane}.
+ */
+public class InMemoryGroupDirectory implements GroupDirectory {
+
+    private final ConcurrentMap<String, ChatGroup> groups = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, String> groupIdsByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public ChatGroup create(Collection<String> userIds) {
+        ChatGroup group = new ChatGroup(UUID.randomUUID().toString(), Set.copyOf(userIds));
+        group.lock.lock();
+        try {
+            // Published before any user points to it
+            groups.put(group.id(), group);
+            Set<String> members = group.members();
+            for (String userId : members) {
+                if (groupIdsByUser.putIfAbsent(userId, group.id()) != null) {
+                    // Joined another group meanwhile, the claims made so far are undone
+                    for (String claimed : members) {
+                        groupIdsByUser.remove(claimed, group.id());
+                    }
+                    group.ended = true;
+                    groups.remove(group.id(), group);
+                    return null;
+                }
+            }
+            return group;
+        } finally {
+            group.lock.unlock();
+        }
+    }
+
+    @Override
+    public ChatGroup groupOf(String userId) {
+        String groupId = groupIdsByUser.get(userId);
+        return groupId != null ? groups.get(groupId) : null;
+    }
+
+    @Override
+    public ChatGroup join(String groupId, String userId, int maxSize) {
+        ChatGroup group = groups.get(groupId);
+        if (group == null) {
+            return null;
+        }
+        group.lock.lock();
+        try {
+            if (group.ended || group.size() >= maxSize || groupIdsByUser.putIfAbsent(userId, groupId) != null) {
+                return null;
+            }
+            group.add(userId);
+            return group;
+        } finally {
+            group.lock.unlock();
+        }
+    }
+
+    @Override
+    public ChatGroup leave(String userId) {
+        ChatGroup group = groupOf(userId);
+        if (group == null) {
+            return null;
+        }
+        group.lock.lock();
+        try {
+            if (!groupIdsByUser.remove(userId, group.id())) {
+                return null;
+            }
+            group.remove(userId);
+            return group;
+        } finally {
+            group.lock.unlock();
+        }
+    }
+
+    @Override
+    public Set<String> end(ChatGroup group) {
+        group.lock.lock();
+        try {
+            if (group.ended) {
+                return Set.of();
+            }
+            group.ended = true;
+            Set<String> members = group.members();
+            for (String userId : members) {
+                groupIdsByUser.remove(userId, group.id());
+            }
+            groups.remove(group.id(), group);
+            return members;
+        } finally {
+            group.lock.unlock();
+        }
+    }
+
+    @Override
+    public int groupCount() {
+        return groups.size();
+    }
+
+    @Override
+    public int memberCount() {
+        return groupIdsByUser.size();
+    }
+}
@@ -0,0 +1,35 @@
+package com.allchat.chat_service.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * MessageRelay between nodes running in the same JVM.
+ * Frames are handed to the receiving node on the publishing thread, which only buffers them
+ * in the recipient's send pipeline, so publishing never blocks on the network.
+ */
+public class InMemoryMessageRelay implements MessageRelay {
+
+    private final Map<String, Consumer<RelayedFrame>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public void subscribe(String nodeId, Consumer<RelayedFrame> consumer) {
+        subscribers.put(nodeId, consumer);
+    }
+
+    @Override
+    public void unsubscribe(String nodeId) {
+        subscribers.remove(nodeId);
+    }
+
+    @Override
+    public boolean publish(String nodeId, RelayedFrame frame) {
+        Consumer<RelayedFrame> subscriber = subscribers.get(nodeId);
+        if (subscriber == null) {
+            return false;
+        }
+        subscriber.accept(frame);
+        return true;
+    }
+}
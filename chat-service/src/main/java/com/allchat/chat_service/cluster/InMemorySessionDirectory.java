@@ -0,0 +1,27 @@
+package com.allchat.chat_service.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SessionDirectory backed by a map, shared by every node using the same {@link InMemoryChatBackplane}.
+ */
+public class InMemorySessionDirectory implements SessionDirectory {
+
+    private final Map<String, String> nodesByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String userId, String nodeId) {
+        nodesByUser.put(userId, nodeId);
+    }
+
+    @Override
+    public void unregister(String userId, String nodeId) {
+        nodesByUser.remove(userId, nodeId);
+    }
+
+    @Override
+    public String locate(String userId) {
+        return nodesByUser.get(userId);
+    }
+}
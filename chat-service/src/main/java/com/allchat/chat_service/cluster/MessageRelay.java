@@ -0,0 +1,22 @@
+package com.allchat.chat_service.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport between chat-service nodes, delivers frames to users connected to another node.
+ */
+public interface MessageRelay {
+
+    /**
+     * Starts delivering frames published to the node to the consumer.
+     */
+    void subscribe(String nodeId, Consumer<RelayedFrame> consumer);
+
+    void unsubscribe(String nodeId);
+
+    /**
+     * Hands the frame to the node the recipient is connected to. Must not block on the recipient.
+     * @return false if the node is unknown to the relay
+     */
+    boolean publish(String nodeId, RelayedFrame frame);
+}
@@ -0,0 +1,56 @@
+package com.allchat.chat_service.cluster;
+
+import com.allchat.chat_service.protocol.FrameType;
+import com.allchat.chat_service.protocol.PeerFrame;
+import com.allchat.chat_service.session.MessageClass;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * A frame for a user connected to another chat-service node, in a form any {@link MessageRelay} can
+ * serialize: strings, bytes and enums only. Signaling and chat frames keep the form their sender used,
+ * the receiving node rebuilds the {@link PeerFrame} and the recipient's session puts it in its protocol.
+ * @param peerType type of a signaling or chat frame, null for a server control message
+ * @param fromUserId sender of a signaling or chat frame, null for a control message
+ * @param text JSON form of the frame, null if it is relayed as a binary body
+ * @param body body of a signaling or chat frame a binary client sent, null otherwise
+ */
+public record RelayedFrame(String toUserId, MessageClass messageClass, FrameType peerType, String fromUserId,
+                           String text, byte[] body) implements Serializable {
+
+    /**
+     * @param message a control TextMessage or a PeerFrame
+     * @throws IllegalArgumentException for any other message
+     */
+    public static RelayedFrame of(String toUserId, WebSocketMessage<?> message, MessageClass messageClass) {
+        if (message instanceof PeerFrame peerFrame) {
+            if (!peerFrame.isBinary()) {
+                return new RelayedFrame(toUserId, messageClass, peerFrame.type(), peerFrame.fromUserId(),
+                        peerFrame.getPayload(), null);
+            }
+            ByteBuffer body = peerFrame.body();
+            byte[] bytes = new byte[body.remaining()];
+            body.get(bytes);
+            return new RelayedFrame(toUserId, messageClass, peerFrame.type(), peerFrame.fromUserId(), null, bytes);
+        }
+        if (message instanceof TextMessage textMessage) {
+            return new RelayedFrame(toUserId, messageClass, null, null, textMessage.getPayload(), null);
+        }
+        throw new IllegalArgumentException("Cannot relay " + message.getClass().getSimpleName());
+    }
+
+    /**
+     * @return the frame as the sending node had it
+     */
+    public WebSocketMessage<?> toMessage() {
+        if (peerType == null) {
+            return new TextMessage(text);
+        }
+        return body != null
+                ? PeerFrame.fromBinary(peerType, fromUserId, ByteBuffer.wrap(body))
+                : PeerFrame.fromText(peerType, fromUserId, new TextMessage(text));
+    }
+}
@@ -0,0 +1,23 @@
+package com.allchat.chat_service.cluster;
+
+/**
+ * Cluster-wide directory of which chat-service node every connected user is on.
+ */
+public interface SessionDirectory {
+
+    /**
+     * Records that the user is connected to the node, replacing any previous entry.
+     */
+    void register(String userId, String nodeId);
+
+    /**
+     * Removes the user's entry, only if it still points to the given node.
+     * A user who already reconnected to another node keeps their new entry.
+     */
+    void unregister(String userId, String nodeId);
+
+    /**
+     * @return ID of the node the user is connected to, null if the user is not connected
+     */
+    String locate(String userId);
+}
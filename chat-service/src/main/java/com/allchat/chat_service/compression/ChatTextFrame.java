@@ -0,0 +1,23 @@
+package com.allchat.chat_service.compression;
+
+import com.allchat.chat_service.session.MessageClass;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+/**
+ * Netty text frame written by the reactive engine, tagged with its class so the
+ * {@link CompressionPolicy} can decide per frame whether it is worth deflating.
+ */
+public class ChatTextFrame extends TextWebSocketFrame {
+
+    private final MessageClass messageClass;
+
+    public ChatTextFrame(MessageClass messageClass, ByteBuf content) {
+        super(content);
+        this.messageClass = messageClass;
+    }
+
+    public MessageClass messageClass() {
+        return messageClass;
+    }
+}
@@ -0,0 +1,161 @@
+package com.allchat.chat_service.compression;
+
+import com.allchat.chat_service.session.MessageClass;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which outbound frames are sent compressed with permessage-deflate and meters what it costs and saves.
+ *
+ * Settings under chat.compression:
+ * - enabled: offer permessage-deflate to clients at all
+ * - level: deflate level, 1 (fastest) to 9 (smallest)
+ * - min-size.signaling/chat/control: smallest payload compressed for each {@link MessageClass}, -1 for never.
+ *   A session's first SDP offer (about 2.6 KB) shrinks to about 40%, the answer after it to a few percent
+ *   since deflate keeps its window between frames. A short chat line or a control message costs more CPU
+ *   than the few bytes it saves.
+ * - servlet-enabled: offer permessage-deflate on the servlet engine too, off by default
+ *
+ * Compression is meant for the reactive engine (spring.main.web-application-type=reactive), which applies
+ * the thresholds per frame and feeds the meters. Tomcat's permessage-deflate has no per message hook and
+ * its extensions cannot be replaced: every frame of a session that negotiated it is deflated, control
+ * frames included. The servlet engine therefore only offers it when servlet-enabled is set as well, and
+ * only counts the sessions that negotiated it.
+ *
+ * Meters: chat.compression.frames{class,result} counts the decisions, chat.compression.bytes.in/out the
+ * payload of compressed frames before and after deflate, chat.compression.time the deflate time per frame,
+ * chat.compression.servlet.sessions the servlet sessions deflating every frame.
+ */
+@Component
+public class CompressionPolicy {
+
+    private final boolean enabled;
+
+    private final boolean servletEnabled;
+
+    private final int level;
+
+    /** Indexed by MessageClass.ordinal(), -1 for never */
+    private final int[] minSizes = new int[MessageClass.values().length];
+
+    private final LongAdder[] compressedFrames = new LongAdder[MessageClass.values().length];
+
+    private final LongAdder[] skippedFrames = new LongAdder[MessageClass.values().length];
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private final Timer compressionTime;
+
+    private final LongAdder servletSessions = new LongAdder();
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the compression meters are published to
+     * @param enabled Offer permessage-deflate during the handshake
+     * @param level Deflate level, 1 to 9
+     * @param signalingMinSize Smallest offer/answer/ice-candidate payload compressed, -1 for never
+     * @param chatMinSize Smallest chat payload compressed, -1 for never
+     * @param controlMinSize Smallest control message payload compressed, -1 for never
+     * @param servletEnabled Also offer permessage-deflate on the servlet engine, which deflates every frame
+     */
+    public CompressionPolicy(MeterRegistry meterRegistry,
+                             @Value("${chat.compression.enabled:true}") boolean enabled,
+                             @Value("${chat.compression.level:6}") int level,
+                             @Value("${chat.compression.min-size.signaling:256}") int signalingMinSize,
+                             @Value("${chat.compression.min-size.chat:1024}") int chatMinSize,
+                             @Value("${chat.compression.min-size.control:-1}") int controlMinSize,
+                             @Value("${chat.compression.servlet-enabled:false}") boolean servletEnabled) {
+        this.enabled = enabled;
+        this.servletEnabled = enabled && servletEnabled;
+        this.level = level;
+        minSizes[MessageClass.SIGNALING.ordinal()] = signalingMinSize;
+        minSizes[MessageClass.CHAT.ordinal()] = chatMinSize;
+        minSizes[MessageClass.CONTROL.ordinal()] = controlMinSize;
+
+        for (MessageClass messageClass : MessageClass.values()) {
+            int index = messageClass.ordinal();
+            String tag = messageClass.name().toLowerCase(Locale.ROOT);
+            compressedFrames[index] = new LongAdder();
+            skippedFrames[index] = new LongAdder();
+            FunctionCounter.builder("chat.compression.frames", compressedFrames[index], LongAdder::sum)
+                    .description("Outbound frames by compression decision")
+                    .tag("class", tag)
+                    .tag("result", "compressed")
+                    .register(meterRegistry);
+            FunctionCounter.builder("chat.compression.frames", skippedFrames[index], LongAdder::sum)
+                    .description("Outbound frames by compression decision")
+                    .tag("class", tag)
+                    .tag("result", "skipped")
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("chat.compression.bytes.in", bytesIn, LongAdder::sum)
+                .description("Payload of compressed frames before deflate")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.compression.bytes.out", bytesOut, LongAdder::sum)
+                .description("Payload of compressed frames after deflate")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.compressionTime = Timer.builder("chat.compression.time")
+                .description("Time spent deflating a frame")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.compression.servlet.sessions", servletSessions, LongAdder::sum)
+                .description("Servlet engine sessions that negotiated permessage-deflate, every frame is deflated")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if the servlet engine offers permessage-deflate
+     */
+    public boolean isServletEnabled() {
+        return servletEnabled;
+    }
+
+    /**
+     * Counts a servlet engine session that negotiated permessage-deflate.
+     */
+    public void servletSessionDeflated() {
+        servletSessions.increment();
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Decides for one frame of a session that negotiated permessage-deflate and counts the decision.
+     * @param messageClass class of the frame, null for frames the chat did not create, which are not compressed
+     */
+    public boolean shouldCompress(MessageClass messageClass, int payloadLength) {
+        if (messageClass == null) {
+            return false;
+        }
+        int minSize = minSizes[messageClass.ordinal()];
+        boolean compress = minSize >= 0 && payloadLength >= minSize;
+        (compress ? compressedFrames : skippedFrames)[messageClass.ordinal()].increment();
+        return compress;
+    }
+
+    /**
+     * @param uncompressed payload length before deflate
+     * @param compressed payload length after deflate
+     */
+    public void compressed(int uncompressed, int compressed, long nanos) {
+        bytesIn.add(uncompressed);
+        bytesOut.add(compressed);
+        compressionTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
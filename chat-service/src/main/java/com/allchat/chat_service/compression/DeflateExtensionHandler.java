@@ -0,0 +1,105 @@
+package com.allchat.chat_service.compression;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+
+/**
+ * Negotiates permessage-deflate for one Reactor Netty connection, in place of Reactor Netty's own
+ * compression which deflates every frame.
+ *
+ * Netty's deflate encoder asks a filter before every data frame: here the {@link CompressionPolicy}
+ * decides by the frame's class and size. A meter placed behind the encoder once the connection is
+ * upgraded sees the deflated frame and records sizes and time. Encoder, filter and meter all run on the
+ * connection's event loop, one frame at a time.
+ */
+public class DeflateExtensionHandler extends WebSocketServerExtensionHandler {
+
+    private static final String METER_NAME = "chatCompressionMeter";
+
+    private final DeflateMeter meter;
+
+    public DeflateExtensionHandler(CompressionPolicy compressionPolicy) {
+        this(new DeflateMeter(compressionPolicy), compressionPolicy);
+    }
+
+    private DeflateExtensionHandler(DeflateMeter meter, CompressionPolicy compressionPolicy) {
+        super(new PerMessageDeflateServerExtensionHandshaker(compressionPolicy.getLevel(),
+                ZlibCodecFactory.isSupportingWindowSizeAndMemLevel(),
+                PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE, false, false,
+                new WebSocketExtensionFilterProvider() {
+                    @Override
+                    public WebSocketExtensionFilter encoderFilter() {
+                        return meter;
+                    }
+
+                    @Override
+                    public WebSocketExtensionFilter decoderFilter() {
+                        return WebSocketExtensionFilter.NEVER_SKIP;
+                    }
+                }));
+        this.meter = meter;
+    }
+
+    @Override
+    protected void onHttpResponseWrite(ChannelHandlerContext ctx, HttpResponse response, ChannelPromise promise) throws Exception {
+        ChannelPipeline pipeline = ctx.pipeline();
+        super.onHttpResponseWrite(ctx, response, promise);
+        // Added after the listener of the superclass that installs the extension encoder, so it runs after it
+        promise.addListener(future -> {
+            ChannelHandlerContext encoder = pipeline.context(WebSocketExtensionEncoder.class);
+            if (future.isSuccess() && encoder != null && pipeline.get(METER_NAME) == null) {
+                pipeline.addBefore(encoder.name(), METER_NAME, meter);
+            }
+        });
+    }
+
+    /**
+     * Encoder filter and outbound meter of one connection.
+     */
+    private static final class DeflateMeter extends ChannelOutboundHandlerAdapter implements WebSocketExtensionFilter {
+
+        private final CompressionPolicy compressionPolicy;
+
+        /** Payload length of the frame being deflated */
+        private int uncompressed;
+
+        /** System.nanoTime() when the frame being deflated was accepted, 0 if none */
+        private long startedAt;
+
+        private DeflateMeter(CompressionPolicy compressionPolicy) {
+            this.compressionPolicy = compressionPolicy;
+        }
+
+        @Override
+        public boolean mustSkip(WebSocketFrame frame) {
+            int length = frame.content().readableBytes();
+            boolean compress = compressionPolicy.shouldCompress(
+                    frame instanceof ChatTextFrame chatFrame ? chatFrame.messageClass() : null, length);
+            if (compress) {
+                uncompressed = length;
+                startedAt = System.nanoTime();
+            }
+            return !compress;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (startedAt != 0 && msg instanceof WebSocketFrame frame && (frame.rsv() & WebSocketExtension.RSV1) != 0) {
+                compressionPolicy.compressed(uncompressed, frame.content().readableBytes(), System.nanoTime() - startedAt);
+                startedAt = 0;
+            }
+            ctx.write(msg, promise);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.allchat.chat_service.config;
+
+import com.allchat.chat_service.heartbeat.Heartbeat;
+import com.allchat.chat_service.heartbeat.HeartbeatMonitor;
+import com.allchat.chat_service.logging.ChatEvent;
+import com.allchat.chat_service.logging.ChatEventLog;
+import com.allchat.chat_service.matchmaking.MatchPreferences;
+import com.allchat.chat_service.metrics.ChatMetrics;
+import com.allchat.chat_service.protocol.BinaryFrameCodec;
+import com.allchat.chat_service.protocol.BinaryFrameCodec.BinaryFrame;
+import com.allchat.chat_service.protocol.FrameType;
+import com.allchat.chat_service.protocol.PeerFrame;
+import com.allchat.chat_service.session.BinaryChatSession;
+import com.allchat.chat_service.session.ChatSession;
+import com.allchat.chat_service.session.InboundGuard;
+import com.allchat.chat_service.session.InboundLimiter;
+import com.allchat.chat_service.session.MessageClass;
+import com.allchat.chat_service.session.OutboundSession;
+import com.allchat.chat_service.session.OutboundSessionManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.common.lang.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol counterpart of {@link ChatWebSocketHandler}, for sessions that negotiated the
+ * {@value BinaryFrameCodec#SUBPROTOCOL} subprotocol.
+ *
+ * Frames are routed by their 5 byte header: the peer handle is looked up in the session's own table,
+ * no JSON is parsed for signaling and chat frames and their body is forwarded as it is.
+ * Matchmaking, groups, rate limits and delivery are the ones of ChatWebSocketHandler, so binary and
+ * JSON clients are matched with each other and each receives the other's frames in its own protocol.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BinaryChatWebSocketHandler extends BinaryWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryChatWebSocketHandler.class);
+
+    /** Routes frames between users, shared with JSON sessions */
+    private final ChatWebSocketHandler chatWebSocketHandler;
+
+    /** Wraps sessions in a bounded, asynchronous send pipeline */
+    private final OutboundSessionManager outboundSessionManager;
+
+    /** Pings every session and reaps the ones that stop answering */
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    /** Frame size and per-session rate limits of inbound frames */
+    private final InboundGuard inboundGuard;
+
+    /** Sampled, fixed-field events of the hot path */
+    private final ChatEventLog chatEventLog;
+
+    /** Inbound frame meters */
+    private final ChatMetrics chatMetrics;
+
+    /** Reads the JSON bodies of looking-for-match and join-group */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Constructor to inject required dependencies
+     * @param chatWebSocketHandler Routes frames between matched users
+     * @param outboundSessionManager Creates the send pipeline of every session
+     * @param heartbeatMonitor Pings sessions and reaps the ones that stop answering
+     * @param inboundGuard Limits frame size and message rates of every session
+     * @param chatEventLog Sampled event log for per frame events
+     * @param chatMetrics Inbound frame meters
+     */
+    public BinaryChatWebSocketHandler(ChatWebSocketHandler chatWebSocketHandler,
+                                      OutboundSessionManager outboundSessionManager,
+                                      HeartbeatMonitor heartbeatMonitor,
+                                      InboundGuard inboundGuard,
+                                      ChatEventLog chatEventLog,
+                                      ChatMetrics chatMetrics) {
+        this.chatWebSocketHandler = chatWebSocketHandler;
+        this.outboundSessionManager = outboundSessionManager;
+        this.heartbeatMonitor = heartbeatMonitor;
+        this.inboundGuard = inboundGuard;
+        this.chatEventLog = chatEventLog;
+        this.chatMetrics = chatMetrics;
+    }
+
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+        String userId = extractUserId(session);
+        OutboundSession pipeline = outboundSessionManager.open(session);
+        BinaryChatSession chatSession = new BinaryChatSession(pipeline);
+        session.getAttributes().put(InboundLimiter.ATTRIBUTE, inboundGuard.newLimiter());
+        session.getAttributes().put(ChatWebSocketHandler.CHAT_SESSION_ATTRIBUTE, chatSession);
+        session.getAttributes().put(Heartbeat.ATTRIBUTE,
+            heartbeatMonitor.start(pipeline, () -> chatWebSocketHandler.reap(userId, chatSession)));
+        chatWebSocketHandler.connected(userId, chatSession, ChatWebSocketHandler.extractResumeToken(session.getUri()));
+    }
+
+    /**
+     * Same checks as JSON frames: size first, then the rate budget of the frame's class.
+     * A frame that does not decode closes the session with 1007 like malformed JSON does.
+     */
+    @Override
+    protected void handleBinaryMessage(@NonNull WebSocketSession session, @NonNull BinaryMessage message) throws Exception {
+        long receivedAt = System.nanoTime();
+        String userId = extractUserId(session);
+        BinaryChatSession chatSession = (BinaryChatSession) session.getAttributes().get(ChatWebSocketHandler.CHAT_SESSION_ATTRIBUTE);
+        int length = message.getPayloadLength();
+        if (length > inboundGuard.getMaxTextFrameSize()) {
+            log.warn("Oversized frame, closing session - User: {}, Session ID: {}, Size: {}", userId, session.getId(), length);
+            inboundGuard.oversized();
+            chatSession.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            return;
+        }
+        BinaryFrame frame;
+        try {
+            frame = BinaryFrameCodec.decode(message.getPayload());
+        } catch (IOException e) {
+            chatWebSocketHandler.malformed(userId, chatSession, e);
+            return;
+        }
+        FrameType type = frame.type();
+        String typeKey = type != null ? type.key() : null;
+        chatMetrics.frameReceived(typeKey, length);
+
+        MessageClass messageClass = type != null ? type.messageClass() : MessageClass.CONTROL;
+        InboundLimiter limiter = (InboundLimiter) session.getAttributes().get(InboundLimiter.ATTRIBUTE);
+        if (!chatWebSocketHandler.withinBudget(userId, chatSession, limiter, messageClass, typeKey)) {
+            return;
+        }
+        if (type == null) {
+            log.warn("Message without type received - User: {}, Session ID: {}", userId, session.getId());
+            return;
+        }
+
+        chatEventLog.log(ChatEvent.FRAME_RECEIVED, userId, typeKey);
+
+        try {
+            switch (type) {
+                case LOOKING_FOR_MATCH -> chatWebSocketHandler.handleLookingForMatch(userId, readPreferences(frame.body()));
+                case CANCEL_MATCH -> chatWebSocketHandler.handleCancelMatch(userId);
+                case OFFER, ANSWER, ICE_CANDIDATE -> {
+                    PeerFrame peerFrame = peerFrame(type, userId, frame.body(), chatSession);
+                    if (peerFrame != null) {
+                        chatWebSocketHandler.forwardWebRTCMessage(peerFrame, chatSession.userIdFor(frame.peerHandle()), userId, receivedAt);
+                    }
+                }
+                case CHAT -> {
+                    PeerFrame peerFrame = peerFrame(type, userId, frame.body(), chatSession);
+                    if (peerFrame != null) {
+                        chatWebSocketHandler.handleChatMessage(peerFrame, userId, receivedAt);
+                    }
+                }
+                case END_CHAT -> chatWebSocketHandler.handleEndChat(userId);
+                case JOIN_GROUP -> chatWebSocketHandler.handleJoinGroup(userId, readGroupId(frame.body()));
+                default -> log.warn("Unhandled message type received - Type: {}, User: {}", typeKey, userId);
+            }
+        } catch (JsonProcessingException e) {
+            chatWebSocketHandler.malformed(userId, chatSession, e);
+        } catch (Exception e) {
+            log.error("Error processing message - Type: {}, User: {}, Error: {}", typeKey, userId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the frame to route, null if its body is not a JSON object: the session is then closed with 1007
+     */
+    private PeerFrame peerFrame(FrameType type, String userId, ByteBuffer body, ChatSession chatSession) {
+        try {
+            return PeerFrame.fromBinary(type, userId, body);
+        } catch (IllegalArgumentException e) {
+            log.warn("Malformed frame body, closing session - User: {}, Type: {}, Error: {}", userId, type.key(), e.getMessage());
+            chatSession.close(CloseStatus.BAD_DATA);
+            return null;
+        }
+    }
+
+    @Override
+    protected void handlePongMessage(@NonNull WebSocketSession session, @NonNull PongMessage message) {
+        ChatWebSocketHandler.pong(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        ChatWebSocketHandler.stopHeartbeat(session);
+        chatWebSocketHandler.disconnected(extractUserId(session),
+            (ChatSession) session.getAttributes().get(ChatWebSocketHandler.CHAT_SESSION_ATTRIBUTE), closeStatus.getCode());
+    }
+
+    /**
+     * @param body JSON object of the preferences, empty for none
+     */
+    private MatchPreferences readPreferences(ByteBuffer body) throws IOException {
+        if (!body.hasRemaining()) {
+            return MatchPreferences.ANY;
+        }
+        byte[] json = new byte[body.remaining()];
+        body.duplicate().get(json);
+        return MatchPreferences.from(objectMapper.readTree(json));
+    }
+
+    /**
+     * @param body JSON object {"groupId":"..."}, empty for none
+     * @return the group ID, null if the body has none
+     */
+    private String readGroupId(ByteBuffer body) throws IOException {
+        if (!body.hasRemaining()) {
+            return null;
+        }
+        byte[] json = new byte[body.remaining()];
+        body.duplicate().get(json);
+        return objectMapper.readTree(json).path("groupId").asText(null);
+    }
+
+    /**
+     * Extracts user ID from WebSocket session query parameters.
+     * Expected format: "?userId=<value>", optionally followed by "&resumeToken=<value>"
+     */
+    private String extractUserId(WebSocketSession session) {
+        return ChatWebSocketHandler.queryParameter(session.getUri(), "userId");
+    }
+}
@@ -1,20 +1,43 @@
 package com.allchat.chat_service.config;
 
+import com.allchat.chat_service.admission.AdmissionController;
+import com.allchat.chat_service.admission.AdmissionDecision;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
+import java.net.InetSocketAddress;
 import java.util.Map;
 
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ChatHandshakeInterceptor implements HandshakeInterceptor {
 
+    /** Request attribute keeping the handshake attributes for afterHandshake */
+    private static final String HANDSHAKE_ATTRIBUTES = ChatHandshakeInterceptor.class.getName() + ".attributes";
+
     private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
 
+    /** Sheds new connections when this node is full, overloaded or a client connects too fast */
+    private final AdmissionController admissionController;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param admissionController Decides whether this node takes another session
+     */
+    public ChatHandshakeInterceptor(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes) throws Exception {
        /**
@@ -29,12 +52,50 @@ public class ChatHandshakeInterceptor implements HandshakeInterceptor {
         return false if token is invalid
         */
 
+        AdmissionDecision decision = admissionController.admit(remoteIp(request));
+        if (!decision.admitted()) {
+            log.debug("Handshake rejected - Reason: {}, Remote Address: {}, Retry After: {}s",
+                decision.reason(), request.getRemoteAddress(), decision.retryAfterSeconds());
+            response.setStatusCode(decision.reason().status());
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+            return false;
+        }
+
+        // The session slot goes with the session, ChatProtocolDispatcher releases it on close
+        attributes.put(AdmissionController.SLOT_ATTRIBUTE, Boolean.TRUE);
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            servletRequest.getServletRequest().setAttribute(HANDSHAKE_ATTRIBUTES, attributes);
+        }
         log.info("Before handshake");
         return true;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
+        if (exception != null || !upgraded(response)) {
+            // No session was opened, nothing else would give the slot back
+            if (request instanceof ServletServerHttpRequest servletRequest
+                    && servletRequest.getServletRequest().getAttribute(HANDSHAKE_ATTRIBUTES) instanceof Map<?, ?> attributes) {
+                admissionController.release((Map<String, Object>) attributes);
+            }
+            log.debug("Handshake failed - Remote Address: {}, Error: {}", request.getRemoteAddress(),
+                exception != null ? exception.getMessage() : null);
+            return;
+        }
         log.info("After handshake");
     }
+
+    private static boolean upgraded(ServerHttpResponse response) {
+        return !(response instanceof ServletServerHttpResponse servletResponse)
+            || servletResponse.getServletResponse().getStatus() == HttpStatus.SWITCHING_PROTOCOLS.value();
+    }
+
+    private static String remoteIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return null;
+        }
+        return remoteAddress.getAddress() != null ? remoteAddress.getAddress().getHostAddress() : remoteAddress.getHostString();
+    }
 }
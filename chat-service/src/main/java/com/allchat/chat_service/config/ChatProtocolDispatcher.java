@@ -0,0 +1,84 @@
+package com.allchat.chat_service.config;
+
+import com.allchat.chat_service.admission.AdmissionController;
+import com.allchat.chat_service.protocol.BinaryFrameCodec;
+import io.micrometer.common.lang.NonNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * Handler of the /ws endpoint: offers the binary subprotocol during the handshake and hands every session
+ * to the handler of the protocol it negotiated. Sessions without a subprotocol speak JSON.
+ * Gives the session's admission slot back when it closes.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ChatProtocolDispatcher implements WebSocketHandler, SubProtocolCapable {
+
+    /** JSON text frames */
+    private final ChatWebSocketHandler chatWebSocketHandler;
+
+    /** Binary frames, see {@link BinaryFrameCodec} */
+    private final BinaryChatWebSocketHandler binaryChatWebSocketHandler;
+
+    /** Holds the session slots taken at the handshake */
+    private final AdmissionController admissionController;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param chatWebSocketHandler Handles sessions of JSON clients
+     * @param binaryChatWebSocketHandler Handles sessions of binary protocol clients
+     * @param admissionController Session slots are given back to it on close
+     */
+    public ChatProtocolDispatcher(ChatWebSocketHandler chatWebSocketHandler, BinaryChatWebSocketHandler binaryChatWebSocketHandler,
+                                  AdmissionController admissionController) {
+        this.chatWebSocketHandler = chatWebSocketHandler;
+        this.binaryChatWebSocketHandler = binaryChatWebSocketHandler;
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BinaryFrameCodec.SUBPROTOCOL);
+    }
+
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+        handlerFor(session).afterConnectionEstablished(session);
+    }
+
+    @Override
+    public void handleMessage(@NonNull WebSocketSession session, @NonNull WebSocketMessage<?> message) throws Exception {
+        handlerFor(session).handleMessage(session, message);
+    }
+
+    @Override
+    public void handleTransportError(@NonNull WebSocketSession session, @NonNull Throwable exception) throws Exception {
+        handlerFor(session).handleTransportError(session, exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        try {
+            handlerFor(session).afterConnectionClosed(session, closeStatus);
+        } finally {
+            admissionController.release(session.getAttributes());
+        }
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        return false;
+    }
+
+    private WebSocketHandler handlerFor(WebSocketSession session) {
+        return BinaryFrameCodec.SUBPROTOCOL.equals(session.getAcceptedProtocol()) ? binaryChatWebSocketHandler : chatWebSocketHandler;
+    }
+}
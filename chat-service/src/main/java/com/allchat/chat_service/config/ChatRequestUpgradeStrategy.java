@@ -0,0 +1,60 @@
+package com.allchat.chat_service.config;
+
+import com.allchat.chat_service.compression.CompressionPolicy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Extension;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.web.socket.server.standard.ServerEndpointRegistration;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upgrade strategy of the servlet engine, leaves permessage-deflate out of the negotiation unless
+ * chat.compression.servlet-enabled is set, and counts the sessions that negotiate it.
+ *
+ * Tomcat negotiates its extensions itself through the endpoint's configurator, the extensions selected by the
+ * handshake handler do not remove the ones it installs. Tomcat then compresses every frame of a session that
+ * negotiated the extension, the size thresholds of the {@link CompressionPolicy} only apply to the reactive engine.
+ */
+class ChatRequestUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final CompressionPolicy compressionPolicy;
+
+    ChatRequestUpgradeStrategy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                          ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+        if (!(endpointConfig instanceof ServerEndpointRegistration registration)) {
+            super.upgradeHttpToWebSocket(request, response, endpointConfig, pathParams);
+            return;
+        }
+        boolean deflate = compressionPolicy.isServletEnabled();
+        ServerEndpointRegistration negotiating = new ServerEndpointRegistration(registration.getPath(), registration.getEndpoint()) {
+            @Override
+            public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+                List<Extension> negotiated = super.getNegotiatedExtensions(installed, requested);
+                boolean hasDeflate = negotiated.stream().anyMatch(ChatRequestUpgradeStrategy::isDeflate);
+                if (hasDeflate && deflate) {
+                    compressionPolicy.servletSessionDeflated();
+                    return negotiated;
+                }
+                return hasDeflate ? negotiated.stream().filter(extension -> !isDeflate(extension)).toList() : negotiated;
+            }
+        };
+        negotiating.setSubprotocols(registration.getSubprotocols());
+        negotiating.setExtensions(registration.getExtensions());
+        super.upgradeHttpToWebSocket(request, response, negotiating, pathParams);
+    }
+
+    private static boolean isDeflate(Extension extension) {
+        return PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName());
+    }
+}
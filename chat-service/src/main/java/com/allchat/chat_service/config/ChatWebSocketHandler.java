@@ -2,24 +2,58 @@ package com.allchat.chat_service.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.handler.ExceptionWebSocketHandlerDecorator;
 
+import com.allchat.chat_service.cluster.ChatBackplane;
+import com.allchat.chat_service.cluster.ChatGroup;
+import com.allchat.chat_service.cluster.GroupDirectory;
+import com.allchat.chat_service.cluster.MessageRelay;
+import com.allchat.chat_service.cluster.RelayedFrame;
+import com.allchat.chat_service.cluster.SessionDirectory;
+import com.allchat.chat_service.heartbeat.Heartbeat;
+import com.allchat.chat_service.heartbeat.HeartbeatMonitor;
+import com.allchat.chat_service.logging.ChatEvent;
+import com.allchat.chat_service.logging.ChatEventLog;
+import com.allchat.chat_service.matchmaking.Match;
+import com.allchat.chat_service.metrics.ChatMetrics;
+import com.allchat.chat_service.matchmaking.MatchListener;
+import com.allchat.chat_service.matchmaking.MatchPreferences;
+import com.allchat.chat_service.matchmaking.MatchmakingPool;
+import com.allchat.chat_service.protocol.ControlMessageEncoder;
+import com.allchat.chat_service.protocol.FrameHeader;
+import com.allchat.chat_service.protocol.FrameHeaderParser;
+import com.allchat.chat_service.protocol.FrameType;
+import com.allchat.chat_service.protocol.PeerFrame;
+import com.allchat.chat_service.session.ChatBatcher;
+import com.allchat.chat_service.session.ChatSession;
+import com.allchat.chat_service.session.InboundGuard;
+import com.allchat.chat_service.session.InboundLimiter;
+import com.allchat.chat_service.session.MessageClass;
+import com.allchat.chat_service.session.OutboundSession;
+import com.allchat.chat_service.session.OutboundSessionManager;
+import com.allchat.chat_service.session.ParkedSession;
+import com.allchat.chat_service.session.SessionResumer;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import io.micrometer.common.lang.NonNull;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * WebSocket handler for managing real-time chat communications.
@@ -30,6 +64,19 @@ import java.util.stream.Collectors;
  * - User matching for chat sessions
  * - Message routing between matched users
  * - WebRTC signaling for peer-to-peer connections
+ *
+ * Only the WebSocket sessions of this node are kept here. Matchmaking and group state come from the
+ * {@link ChatBackplane}, frames for users connected to another node go through its {@link MessageRelay}.
+ *
+ * A group is a matched pair or an N-way room: a match creates a pair, join-group adds users to an existing
+ * group up to chat.groups.max-size. Each group is one {@link ChatGroup} in the {@link GroupDirectory}, so a
+ * membership check is one lookup and a frame to a room of 50 costs the same per recipient as a 1:1 chat.
+ *
+ * The servlet engine calls the TextWebSocketHandler methods below. The reactive engine
+ * (spring.main.web-application-type=reactive) drives the same routing through connected(), received()
+ * and disconnected() from {@link ReactiveChatWebSocketHandler}, with a {@link ChatSession} of its own.
+ * Clients of the binary protocol are served by {@link BinaryChatWebSocketHandler}, which shares the routing
+ * below. Signaling and chat frames are routed as {@link PeerFrame}s, each session puts them in its protocol.
  * 
  *  Why use TextWebSocketHandler instead of WebSocketHandler ?
     The WebSocketHandler interface is the base interface for WebSocket handlers.
@@ -37,22 +84,124 @@ import java.util.stream.Collectors;
     which implements the WebSocketHandler interface and provides additional methods for handling text messages.
  */
 @Component
-public class ChatWebSocketHandler extends TextWebSocketHandler {
+public class ChatWebSocketHandler extends TextWebSocketHandler implements MatchListener {
 
     private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
 
-    /** Maps user IDs to their WebSocket sessions */
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    /** Attribute of a servlet WebSocketSession holding its send pipeline */
+    static final String CHAT_SESSION_ATTRIBUTE = "chatSession";
+
+    /** Maps user IDs to the send pipeline of their WebSocket sessions on this node */
+    private final Map<String, ChatSession> sessions = new ConcurrentHashMap<>();
+
+    /** Wraps sessions in a bounded, asynchronous send pipeline */
+    private final OutboundSessionManager outboundSessionManager;
+
+    /** Coalesces the chat messages of JSON sessions when enabled */
+    private final ChatBatcher chatBatcher;
+
+    /** Pings every session and reaps the ones that stop answering */
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    /** Holds the place of users whose connection dropped until they resume */
+    private final SessionResumer sessionResumer;
     
-    /** Tracks users who are currently looking for a chat match */
-    private final Map<String, Boolean> lookingForMatch = new ConcurrentHashMap<>();
+    /** Users who are currently looking for a chat match, shared by the cluster */
+    private final MatchmakingPool matchmakingPool;
+
+    /** Last matching preferences sent by each user, reused when a user is put back in the pool */
+    private final Map<String, MatchPreferences> matchPreferences;
     
-    /** Maps user IDs to their matched group (set of users in the same chat) */
-    private final Map<String, Set<String>> matchedGroups = new ConcurrentHashMap<>();
+    /** Chat groups and the group of every matched user, shared by the cluster */
+    private final GroupDirectory groupDirectory;
+
+    /** Largest group join-group may grow a group to */
+    private final int maxGroupSize;
+
+    /** Which node every connected user is on */
+    private final SessionDirectory sessionDirectory;
+
+    /** Delivers frames to users connected to other nodes */
+    private final MessageRelay messageRelay;
+
+    /** ID of this chat-service node in the cluster */
+    private final String nodeId;
+
+    /** Frame size and per-session rate limits of inbound frames */
+    private final InboundGuard inboundGuard;
+
+    /** Sampled, fixed-field events of the hot path */
+    private final ChatEventLog chatEventLog;
+
+    /** Inbound frame and group meters */
+    private final ChatMetrics chatMetrics;
     
     /** JSON object mapper for message serialization/deserialization */
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /** Reads only the routing fields of relayed frames, no JSON tree is built for them */
+    private final FrameHeaderParser frameHeaderParser = new FrameHeaderParser(objectMapper.getFactory());
+
+    /**
+     * Constructor to inject required dependencies
+     * @param chatBackplane Cluster-wide matchmaking, group state and relay
+     * @param outboundSessionManager Creates the send pipeline of every session
+     * @param chatBatcher Coalesces chat messages of JSON sessions when enabled
+     * @param heartbeatMonitor Pings sessions and reaps the ones that stop answering
+     * @param sessionResumer Holds dropped users' places for a resume
+     * @param inboundGuard Limits frame size and message rates of every session
+     * @param chatEventLog Sampled event log for per frame and per match events
+     * @param chatMetrics Inbound frame and group meters
+     * @param nodeId ID of this node in the cluster
+     * @param maxGroupSize Largest group join-group may grow a group to
+     */
+    public ChatWebSocketHandler(ChatBackplane chatBackplane,
+                                OutboundSessionManager outboundSessionManager,
+                                ChatBatcher chatBatcher,
+                                HeartbeatMonitor heartbeatMonitor,
+                                SessionResumer sessionResumer,
+                                InboundGuard inboundGuard,
+                                ChatEventLog chatEventLog,
+                                ChatMetrics chatMetrics,
+                                @Value("${chat.cluster.node-id:${random.uuid}}") String nodeId,
+                                @Value("${chat.groups.max-size:50}") int maxGroupSize) {
+        this.matchmakingPool = chatBackplane.matchmakingPool();
+        this.matchPreferences = chatBackplane.matchPreferences();
+        this.groupDirectory = chatBackplane.groupDirectory();
+        this.sessionDirectory = chatBackplane.sessionDirectory();
+        this.messageRelay = chatBackplane.messageRelay();
+        this.outboundSessionManager = outboundSessionManager;
+        this.chatBatcher = chatBatcher;
+        this.heartbeatMonitor = heartbeatMonitor;
+        this.sessionResumer = sessionResumer;
+        this.inboundGuard = inboundGuard;
+        this.chatEventLog = chatEventLog;
+        this.chatMetrics = chatMetrics;
+        this.nodeId = nodeId;
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    /**
+     * Starts receiving frames relayed by other nodes.
+     */
+    @PostConstruct
+    public void joinCluster() {
+        messageRelay.subscribe(nodeId, this::deliverRelayed);
+        log.info("Chat node joined the cluster - Node: {}", nodeId);
+    }
+
+    /**
+     * Stops receiving relayed frames and releases the users of this node in the session directory.
+     */
+    @PreDestroy
+    public void leaveCluster() {
+        messageRelay.unsubscribe(nodeId);
+        for (String userId : sessions.keySet()) {
+            sessionDirectory.unregister(userId, nodeId);
+        }
+        log.info("Chat node left the cluster - Node: {}", nodeId);
+    }
+
     /**
      * Handles new WebSocket connections.
      * Extracts user ID and stores the session for future communication.
@@ -60,9 +209,54 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
         String userId = extractUserId(session);
-        sessions.put(userId, session);
-        log.info("WebSocket connection established - User: {}, Session ID: {}, Remote Address: {}, Active Sessions: {}", 
-            userId, session.getId(), session.getRemoteAddress(), sessions.keySet());
+        OutboundSession pipeline = outboundSessionManager.open(session);
+        ChatSession chatSession = chatBatcher.wrap(pipeline);
+        session.getAttributes().put(InboundLimiter.ATTRIBUTE, inboundGuard.newLimiter());
+        session.getAttributes().put(CHAT_SESSION_ATTRIBUTE, chatSession);
+        session.getAttributes().put(Heartbeat.ATTRIBUTE, heartbeatMonitor.start(pipeline, () -> reap(userId, chatSession)));
+        connected(userId, chatSession, extractResumeToken(session.getUri()));
+    }
+
+    @Override
+    public void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
+        long receivedAt = System.nanoTime();
+        received(extractUserId(session), (ChatSession) session.getAttributes().get(CHAT_SESSION_ATTRIBUTE),
+            (InboundLimiter) session.getAttributes().get(InboundLimiter.ATTRIBUTE), message, receivedAt);
+    }
+
+    @Override
+    protected void handlePongMessage(@NonNull WebSocketSession session, @NonNull PongMessage message) {
+        pong(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        stopHeartbeat(session);
+        disconnected(extractUserId(session), (ChatSession) session.getAttributes().get(CHAT_SESSION_ATTRIBUTE),
+            closeStatus.getCode());
+    }
+
+    /**
+     * Registers the session of a newly connected user on this node and sends it its resume token.
+     * If the user's previous session is parked, the new one takes its place: with the previous session's
+     * token the user is back in their group and gets what was sent meanwhile, without it the previous
+     * session is cleaned up as if it had closed for good.
+     * @param resumeToken token of the previous session sent by the client, null if none
+     */
+    public void connected(String userId, ChatSession session, String resumeToken) {
+        ChatSession previous = sessions.put(userId, session);
+        sessionDirectory.register(userId, nodeId);
+        chatEventLog.log(ChatEvent.SESSION_OPENED, userId, session.getId());
+        if (previous instanceof ParkedSession parked && sessionResumer.tryResume(parked, resumeToken)) {
+            ChatGroup group = groupDirectory.groupOf(userId);
+            if (group != null) {
+                // Before the kept frames: binary clients get the handles of the group with it
+                session.send(ControlMessageEncoder.sessionResumed(group.id(), group.members()), MessageClass.CONTROL);
+            }
+            parked.resumeTo(session);
+            chatEventLog.log(ChatEvent.SESSION_RESUMED, userId, parked.getId());
+        }
+        session.send(ControlMessageEncoder.resumeToken(sessionResumer.issueToken(userId)), MessageClass.CONTROL);
     }
 
     /**
@@ -73,21 +267,54 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
      * - offer/answer/ice-candidate: WebRTC signaling
      * - chat: Regular chat messages
      * - end-chat: User ends the chat session
+     * - join-group: User joins an existing group by its ID
+     *
+     * Only the routing fields are parsed up front. Relayed frames (signaling and chat) are forwarded
+     * as the same TextMessage, only looking-for-match is parsed into a tree for its preferences.
+     *
+     * Oversized frames close the session before anything is parsed. Every frame is then checked against
+     * the session's budget for its class, frames over budget are dropped and a session that keeps
+     * flooding is closed. Malformed JSON, including a chat frame that is not exactly one JSON object,
+     * closes the session with 1007: it is the client's fault, unlike a 1011 it does not hold the user's
+     * place for a resume.
+     *
+     * @param receivedAt System.nanoTime() when the frame was received
      */
-    @Override
-    public void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
-        String userId = extractUserId(session);
-        JsonNode jsonNode = objectMapper.readTree(message.getPayload());
-        String type = jsonNode.get("type").asText();
+    public void received(String userId, ChatSession session, InboundLimiter limiter, TextMessage message, long receivedAt)
+            throws IOException {
+        int length = InboundGuard.utf8Length(message.getPayload());
+        if (length > inboundGuard.getMaxTextFrameSize()) {
+            log.warn("Oversized frame, closing session - User: {}, Session ID: {}, Size: {}", 
+                userId, session.getId(), length);
+            inboundGuard.oversized();
+            session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            return;
+        }
+        FrameHeader header;
+        try {
+            header = frameHeaderParser.parse(message.getPayload());
+        } catch (IOException e) {
+            malformed(userId, session, e);
+            return;
+        }
+        String type = header.type();
+        chatMetrics.frameReceived(type, length);
+
+        if (!withinBudget(userId, session, limiter, header.messageClass(), type)) {
+            return;
+        }
+        if (type == null) {
+            log.warn("Message without type received - User: {}, Session ID: {}", userId, session.getId());
+            return;
+        }
 
-        log.info("Received message - Type: {}, From User: {}, Session ID: {}, User's Group: {}", 
-            type, userId, session.getId(), matchedGroups.get(userId));
-        log.info("Full message payload: {}", message.getPayload());
+        chatEventLog.log(ChatEvent.FRAME_RECEIVED, userId, type);
 
         try {
             switch (type) {
                 case "looking-for-match":
-                    handleLookingForMatch(userId);
+                    JsonNode jsonNode = objectMapper.readTree(message.getPayload());
+                    handleLookingForMatch(userId, MatchPreferences.from(jsonNode.get("preferences")));
                     break;
                 case "cancel-match":
                     handleCancelMatch(userId);
@@ -95,46 +322,172 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 case "offer":
                 case "answer":
                 case "ice-candidate":
-                    log.info("Processing WebRTC message - Type: {}, From: {}, Current Group: {}", 
-                        type, userId, matchedGroups.get(userId));
-                    forwardWebRTCMessage(message.getPayload(), jsonNode);
+                    // Routed as the session's user, the frame is relayed as is so its "from" must name them
+                    if (header.from() != null && !header.from().equals(userId)) {
+                        log.warn("Signaling frame from another user dropped - User: {}, From: {}", userId, header.from());
+                        chatEventLog.log(ChatEvent.SIGNAL_BLOCKED, userId, header.to());
+                        break;
+                    }
+                    forwardWebRTCMessage(PeerFrame.fromText(FrameType.fromKey(type), userId, message),
+                        header.to(), userId, receivedAt);
                     break;
                 case "chat":
-                    handleChatMessage(message.getPayload(), userId);
+                    // Checked in full, the header parser stops at the routing fields
+                    handleChatMessage(PeerFrame.fromCheckedText(FrameType.CHAT, userId, message), userId, receivedAt);
                     break;
                 case "end-chat":
                     handleEndChat(userId);
                     break;
+                case "join-group":
+                    handleJoinGroup(userId, objectMapper.readTree(message.getPayload()).path("groupId").asText(null));
+                    break;
                 default:
                     log.warn("Unhandled message type received - Type: {}, User: {}", type, userId);
             }
+        } catch (JsonProcessingException e) {
+            malformed(userId, session, e);
         } catch (Exception e) {
             log.error("Error processing message - Type: {}, User: {}, Error: {}", type, userId, e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * Closes the session of a client that sent a frame that does not parse.
+     */
+    void malformed(String userId, ChatSession session, IOException e) {
+        log.warn("Malformed frame, closing session - User: {}, Session ID: {}, Error: {}", userId, session.getId(), e.getMessage());
+        session.close(CloseStatus.BAD_DATA);
+    }
+
+    /**
+     * Checks a frame against the session's budget for its class, end-chat and cancel-match against the
+     * teardown budget.
+     * @return false if the frame is dropped, the session is closed if it keeps flooding
+     */
+    boolean withinBudget(String userId, ChatSession session, InboundLimiter limiter, MessageClass messageClass, String type) {
+        if (limiter == null) {
+            return true;
+        }
+        boolean teardown = FrameHeader.isTeardown(type);
+        switch (teardown ? limiter.checkTeardown() : limiter.check(messageClass)) {
+            case THROTTLE:
+                if (teardown) {
+                    inboundGuard.throttledTeardown();
+                } else {
+                    inboundGuard.throttled(messageClass);
+                }
+                log.debug("Frame throttled - Type: {}, User: {}", type, userId);
+                return false;
+            case CLOSE:
+                inboundGuard.abusiveDisconnected();
+                log.warn("Session exceeded its rate budget, closing - User: {}, Session ID: {}", userId, session.getId());
+                session.close(CloseStatus.POLICY_VIOLATION);
+                return false;
+            default:
+                return true;
+        }
+    }
+
     /**
      * Handles WebSocket connection closures.
      * Cleans up user session and notifies other users in the group.
+     * A session that is no longer the user's current one (reaped, or replaced by a reconnect of the same
+     * user) only drops what it still buffers, the user's state belongs to the current session.
+     * A user in a group whose connection dropped is parked instead, the cleanup waits for the resume window
+     * to end (see {@link SessionResumer}).
      */
-    @Override
-    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
-        String userId = extractUserId(session);
-        log.info("WebSocket connection closing - User: {}, Session ID: {}, Status: {}, User's Group: {}", 
-            userId, session.getId(), closeStatus.getCode(), matchedGroups.get(userId));
-        
+    public void disconnected(String userId, ChatSession session, int closeCode) throws IOException {
+        if (sessionResumer.isResumable(closeCode) && groupDirectory.groupOf(userId) != null && park(userId, session)) {
+            chatEventLog.log(ChatEvent.SESSION_PARKED, userId, session.getId(), closeCode);
+            return;
+        }
+        if (!sessions.remove(userId, session)) {
+            session.discard();
+            return;
+        }
         try {
             handleUserDisconnection(userId);
-            sessions.remove(userId);
-            log.info("User disconnected and cleanup completed - User: {}, Remaining Sessions: {}", 
-                userId, sessions.keySet());
+            session.discard();
+            sessionDirectory.unregister(userId, nodeId);
+            matchPreferences.remove(userId);
+            sessionResumer.forgetToken(userId);
+            chatEventLog.log(ChatEvent.SESSION_CLOSED, userId, session.getId(), closeCode);
         } catch (Exception e) {
             log.error("Error during connection cleanup - User: {}, Error: {}", userId, e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * Puts a parked session in the place of the user's dropped one and starts its resume window.
+     * @return false if the session was no longer the user's current one or has no resume token
+     */
+    private boolean park(String userId, ChatSession session) {
+        ParkedSession parked = sessionResumer.park(userId, session.getId(), expired -> resumeExpired(userId, expired));
+        if (parked == null || !sessions.replace(userId, session, parked)) {
+            return false;
+        }
+        session.discard();
+        sessionResumer.startWindow(parked);
+        return true;
+    }
+
+    /**
+     * Cleans up after a user whose resume window ended without a resume. If the user connected again
+     * meanwhile, only the group of the old session is left, the new session keeps the user's registration.
+     */
+    private void resumeExpired(String userId, ParkedSession parked) {
+        boolean current = sessions.remove(userId, parked);
+        try {
+            handleUserDisconnection(userId);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error cleaning up after resume window - User: {}, Error: {}", userId, e.getMessage(), e);
+        }
+        if (current) {
+            sessionDirectory.unregister(userId, nodeId);
+            matchPreferences.remove(userId);
+            sessionResumer.forgetToken(userId);
+        }
+        chatEventLog.log(ChatEvent.RESUME_EXPIRED, userId, parked.getId());
+    }
+
+    /**
+     * Closes a session that stopped answering pings and cleans up after its user at once: the engine may
+     * only notice a half-open connection when TCP gives up, long after the client is gone.
+     * Called on a reaper thread of the {@link HeartbeatMonitor}.
+     */
+    public void reap(String userId, ChatSession session) {
+        log.info("Reaping unresponsive session - User: {}, Session ID: {}", userId, session.getId());
+        chatEventLog.log(ChatEvent.SESSION_REAPED, userId, session.getId());
+        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        try {
+            disconnected(userId, session, CloseStatus.SESSION_NOT_RELIABLE.getCode());
+        } catch (IOException | RuntimeException e) {
+            // Logged by disconnected(), nothing is left to do for a dead session
+        }
+    }
+
+    /**
+     * Records a pong on the heartbeat of a servlet session.
+     */
+    static void pong(WebSocketSession session) {
+        Heartbeat heartbeat = (Heartbeat) session.getAttributes().get(Heartbeat.ATTRIBUTE);
+        if (heartbeat != null) {
+            heartbeat.pong();
+        }
+    }
+
+    /**
+     * Stops the heartbeat of a closed servlet session.
+     */
+    static void stopHeartbeat(WebSocketSession session) {
+        Heartbeat heartbeat = (Heartbeat) session.getAttributes().get(Heartbeat.ATTRIBUTE);
+        if (heartbeat != null) {
+            heartbeat.stop();
+        }
+    }
+
     /**
      * Performs cleanup when a user disconnects.
      * Removes user from matching pool and handles group cleanup.
@@ -143,279 +496,359 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         log.debug("Starting user disconnection cleanup - User: {}", userId);
         
         // Remove from looking for match pool
-        if (lookingForMatch.remove(userId) != null) {
+        if (matchmakingPool.cancel(userId)) {
             log.debug("Removed user from matching pool - User: {}", userId);
         }
 
         // Handle matched group cleanup
-        Set<String> userGroup = matchedGroups.remove(userId);  // Remove user's group entry
+        ChatGroup userGroup = groupDirectory.leave(userId);
         if (userGroup != null) {
-            log.info("Removed user from matched groups - User: {}, Group Size: {}", 
-                userId, userGroup.size());
+            Set<String> remainingUsers = userGroup.members();
+            chatEventLog.log(ChatEvent.USER_LEFT_GROUP, userId, remainingUsers.size() + 1);
             
             // Notify remaining users in the group
-            Set<String> remainingUsers = new HashSet<>(userGroup);
-            remainingUsers.remove(userId);
             notifyGroupAboutUserLeft(remainingUsers, userId);
 
             // If group size falls below 2, end the chat for remaining users
             if (remainingUsers.size() < 2) {
-                log.info("Group size below minimum threshold, ending group chat - Remaining Size: {}", remainingUsers.size());
-                endGroupChat(remainingUsers);
+                if (log.isDebugEnabled()) {
+                    log.debug("Group size below minimum threshold, ending group chat - Remaining Size: {}", remainingUsers.size());
+                }
+                endGroupChat(userGroup, null);
             }
         }
     }
 
     /**
      * Processes match requests from users.
-     * Attempts to pair users looking for matches into chat groups.
+     * Puts the user in the matching pool, pairing happens on the next matchmaking tick.
+     * A user still in a group gets match-cancelled: a match would replace their group entry
+     * while the group's other members still count them in. They end the chat first.
      */
-    private void handleLookingForMatch(String userId) throws IOException {
-        // Log the current state before matching
-        log.info("Starting match search - User: {}, Current matched groups: {}, Looking for match: {}", 
-            userId, matchedGroups.keySet(), lookingForMatch.keySet());
-            
-        lookingForMatch.put(userId, true);
-        log.info("User started looking for match - User: {}", userId);
-
-        // Try to find matches
-        List<String> availableUsers = lookingForMatch.entrySet().stream()
-                .filter(entry -> entry.getValue() && !entry.getKey().equals(userId))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        log.info("Available users for matching - User: {}, Available: {}", userId, availableUsers);
-
-        // If we have enough users for a match (2 or more)
-        if (!availableUsers.isEmpty()) {
-            // Create a new group with the current user and one other user
-            Set<String> matchedGroup = new HashSet<>();
-            matchedGroup.add(userId);
-            matchedGroup.add(availableUsers.get(0));
-
-            log.info("Match found - Creating group: {}", matchedGroup);
-
-            // Update matched groups with separate copies of the set for each user
-            for (String uid : matchedGroup) {
-                Set<String> userGroup = new HashSet<>(matchedGroup);
-                matchedGroups.put(uid, userGroup);
-                lookingForMatch.remove(uid);
-                log.info("Added user to matched group - User: {}, Group: {}", uid, userGroup);
-            }
+    void handleLookingForMatch(String userId, MatchPreferences preferences) throws IOException {
+        if (groupDirectory.groupOf(userId) != null) {
+            log.warn("Match request from a user in a group refused - User: {}", userId);
+            chatEventLog.log(ChatEvent.MATCH_REQUESTED, userId, 0);
+            sendToUser(userId, ControlMessageEncoder.matchCancelled(userId), MessageClass.CONTROL);
+            return;
+        }
+        matchPreferences.put(userId, preferences);
+        boolean added = matchmakingPool.enqueue(userId, preferences, nodeId);
+        chatEventLog.log(ChatEvent.MATCH_REQUESTED, userId, added ? 1 : 0);
+    }
 
-            // Verify the matching state
-            for (String uid : matchedGroup) {
-                Set<String> group = matchedGroups.get(uid);
-                log.info("Verifying match state - User: {}, Group: {}", uid, group);
+    /**
+     * Commits the matches formed by a matchmaking tick.
+     * Called on the matchmaking thread, never on a WebSocket thread.
+     */
+    @Override
+    public void onMatches(List<Match> matches) {
+        for (Match match : matches) {
+            try {
+                commitMatch(match);
+            } catch (IOException e) {
+                log.error("Error committing match - Match: {}, Error: {}", match, e.getMessage(), e);
             }
+        }
+    }
 
-            // Notify matched users
-            notifyMatchFound(matchedGroup);
-            log.info("Match notifications sent - Group: {}", matchedGroup);
-        } else {
-            log.info("No match found - User: {}, Will keep looking", userId);
+    /**
+     * Turns a match into a chat group and notifies both users.
+     * If one of them disconnected while waiting for the tick, or joined a group before the match group
+     * could claim them, the other goes back to the pool.
+     * Both users may be connected to any node of the cluster.
+     */
+    private void commitMatch(Match match) throws IOException {
+        if (!isConnected(match.first()) || !isConnected(match.second())) {
+            String stillConnected = isConnected(match.first()) ? match.first() : match.second();
+            if (isConnected(stillConnected)) {
+                matchmakingPool.enqueue(stillConnected, preferencesOf(stillConnected), nodeOf(stillConnected));
+            }
+            chatEventLog.log(ChatEvent.MATCH_DROPPED, match.first(), match.second());
+            return;
+        }
+        // Create a new group with the two claimed users, both map to it by its ID
+        ChatGroup matchedGroup = groupDirectory.create(match.users());
+        if (matchedGroup == null) {
+            // One of them joined a group after being claimed, the other goes back to the pool
+            for (String userId : match.users()) {
+                if (groupDirectory.groupOf(userId) == null) {
+                    matchmakingPool.enqueue(userId, preferencesOf(userId), nodeOf(userId));
+                }
+            }
+            chatEventLog.log(ChatEvent.MATCH_DROPPED, match.first(), match.second());
+            return;
         }
+
+        // Notify matched users
+        notifyMatchFound(matchedGroup);
+        chatEventLog.log(ChatEvent.MATCH_FOUND, match.first(), match.second(),
+            TimeUnit.NANOSECONDS.toMillis(Math.max(match.firstWaitNanos(), match.secondWaitNanos())));
     }
 
     /**
      * Handles match cancellation requests.
      * Removes user from the matching pool.
      */
-    private void handleCancelMatch(String userId) throws IOException {
-        Boolean wasLooking = lookingForMatch.remove(userId);
-        log.info("User cancelled matching - User: {}, Was Looking: {}, Current Looking: {}", 
-            userId, wasLooking, lookingForMatch.keySet());
-        sendToUser(userId, createMessage("match-cancelled", null, userId));
+    void handleCancelMatch(String userId) throws IOException {
+        boolean wasLooking = matchmakingPool.cancel(userId);
+        chatEventLog.log(ChatEvent.MATCH_CANCELLED, userId, wasLooking ? 1 : 0);
+        sendToUser(userId, ControlMessageEncoder.matchCancelled(userId), MessageClass.CONTROL);
     }
 
     /**
      * Routes chat messages between matched users.
      * Only forwards messages to users in the same group.
+     * The frame is immutable and is shared by all recipients.
      */
-    private void handleChatMessage(String payload, String fromUserId) throws IOException {
-        Set<String> userGroup = matchedGroups.get(fromUserId);
+    void handleChatMessage(PeerFrame payload, String fromUserId, long receivedAt) throws IOException {
+        ChatGroup userGroup = groupDirectory.groupOf(fromUserId);
         if (userGroup != null) {
-            log.debug("Processing chat message - From: {}, Group Size: {}", fromUserId, userGroup.size());
             int messagesSent = 0;
             
-            for (String toUserId : userGroup) {
+            for (String toUserId : userGroup.members()) {
                 if (!toUserId.equals(fromUserId)) {
-                    sendToUser(toUserId, payload);
+                    sendToUser(toUserId, payload, MessageClass.CHAT, receivedAt);
                     messagesSent++;
                 }
             }
             
-            log.info("Chat message forwarded - From: {}, Recipients: {}", fromUserId, messagesSent);
+            chatEventLog.log(ChatEvent.CHAT_FORWARDED, fromUserId, messagesSent);
         } else {
-            log.warn("Chat message received from user not in any group - User: {}", fromUserId);
+            chatEventLog.log(ChatEvent.CHAT_WITHOUT_GROUP, fromUserId);
         }
     }
 
     /**
      * Processes chat end requests.
-     * Cleans up the chat group and notifies all participants.
+     * A pair ends for both users. In a larger group only the user leaves, the others chat on.
      */
-    private void handleEndChat(String userId) throws IOException {
-        Set<String> userGroup = matchedGroups.get(userId);
-        if (userGroup != null) {
-            log.info("Ending chat for user - User: {}, User's Group: {}, All Groups: {}", 
-                userId, userGroup, matchedGroups);
-            endGroupChat(userGroup);
-        } else {
-            log.warn("End chat request received from user not in any group - User: {}, All Groups: {}", 
-                userId, matchedGroups);
+    void handleEndChat(String userId) throws IOException {
+        ChatGroup userGroup = groupDirectory.groupOf(userId);
+        if (userGroup == null) {
+            log.debug("End chat request received from user not in any group - User: {}", userId);
+            return;
+        }
+        chatEventLog.log(ChatEvent.CHAT_ENDED, userId, userGroup.size());
+        if (userGroup.size() <= 2) {
+            endGroupChat(userGroup, userId);
+            return;
+        }
+        if (groupDirectory.leave(userId) == userGroup) {
+            sendToUser(userId, ControlMessageEncoder.endChat(userId), MessageClass.CONTROL);
+            Set<String> remainingUsers = userGroup.members();
+            notifyGroupAboutUserLeft(remainingUsers, userId);
+            if (remainingUsers.size() < 2) {
+                endGroupChat(userGroup, null);
+            }
+        }
+    }
+
+    /**
+     * Adds a user to an existing group, e.g. a room whose ID another member shared.
+     * The user gets match-found with every member, the others get user-joined-match.
+     * A user who is in a group already, or a group that is full or gone, gets join-refused.
+     */
+    void handleJoinGroup(String userId, String groupId) throws IOException {
+        matchmakingPool.cancel(userId);
+        ChatGroup group = groupId != null ? groupDirectory.join(groupId, userId, maxGroupSize) : null;
+        if (group == null) {
+            chatEventLog.log(ChatEvent.JOIN_REFUSED, userId, groupId);
+            sendToUser(userId, ControlMessageEncoder.joinRefused(userId), MessageClass.CONTROL);
+            return;
+        }
+        Set<String> members = group.members();
+        chatEventLog.log(ChatEvent.GROUP_JOINED, userId, members.size());
+        sendToUser(userId, ControlMessageEncoder.matchFound(group.id(), members), MessageClass.CONTROL);
+        TextMessage joinedMessage = ControlMessageEncoder.userJoinedMatch(userId);
+        for (String memberId : members) {
+            if (!memberId.equals(userId)) {
+                sendToUser(memberId, joinedMessage, MessageClass.CONTROL);
+            }
         }
     }
 
     /**
      * Sends match notifications to users when a match is found.
-     * Includes information about all users in the matched group.
+     * Includes the group's ID and all users in the matched group.
      */
-    private void notifyMatchFound(Set<String> matchedGroup) throws IOException {
-        log.info("Preparing match notifications - Group: {}, Current matched groups: {}", 
-            matchedGroup, matchedGroups);
-            
-        String matchFoundMessage = createMessage("match-found", matchedGroup, null);
+    private void notifyMatchFound(ChatGroup matchedGroup) throws IOException {
+        // Encoded once, the same immutable message goes to every user of the group
+        Set<String> members = matchedGroup.members();
+        TextMessage matchFoundMessage = ControlMessageEncoder.matchFound(matchedGroup.id(), members);
         
-        for (String userId : matchedGroup) {
-            Set<String> userGroup = matchedGroups.get(userId);
-            log.info("Sending match notification - User: {}, User's group: {}", userId, userGroup);
-            sendToUser(userId, matchFoundMessage);
+        for (String userId : members) {
+            sendToUser(userId, matchFoundMessage, MessageClass.CONTROL);
         }
-        
-        log.info("Match notifications completed - Group: {}", matchedGroup);
     }
 
     /**
      * Notifies remaining users when someone leaves the chat group.
      */
     private void notifyGroupAboutUserLeft(Set<String> group, String leftUserId) throws IOException {
-        String message = createMessage("user-left-match", null, leftUserId);
-        log.info("Notifying group about user departure - Left User: {}, Remaining Group Size: {}", 
-            leftUserId, group.size());
-        
+        TextMessage message = ControlMessageEncoder.userLeftMatch(leftUserId);
         int notificationsSent = 0;
         for (String userId : group) {
             if (!userId.equals(leftUserId)) {
-                sendToUser(userId, message);
+                sendToUser(userId, message, MessageClass.CONTROL);
                 notificationsSent++;
             }
         }
         
-        log.debug("User left notifications sent - Recipients: {}", notificationsSent);
+        if (log.isDebugEnabled()) {
+            log.debug("User left notifications sent - Recipients: {}", notificationsSent);
+        }
     }
 
     /**
      * Ends a group chat session.
-     * Cleans up group state and optionally returns users to matching pool.
+     * Removes the group and returns every user but the initiator to the matching pool.
+     * @param initiator user who ended the chat, null to name any remaining member
      */
-    private void endGroupChat(Set<String> group) throws IOException {
-        if (group == null || group.isEmpty()) {
-            log.warn("Attempted to end empty or null group chat - Current Groups: {}", matchedGroups);
+    private void endGroupChat(ChatGroup chatGroup, String initiator) throws IOException {
+        // Only one caller gets the members, a group ended concurrently is ended once
+        Set<String> group = groupDirectory.end(chatGroup);
+        if (group.isEmpty()) {
+            log.debug("Attempted to end empty or ended group chat");
             return;
         }
 
-        log.info("Starting group chat end - Group: {}, Current Groups: {}", group, matchedGroups);
-        String initiator = group.iterator().next();
+        if (initiator == null) {
+            initiator = group.iterator().next();
+        }
+        TextMessage endChatMessage = ControlMessageEncoder.endChat(initiator);
         
         // Send end-chat message to all users in the group
         for (String userId : group) {
-            // Remove from matched groups
-            Set<String> removedGroup = matchedGroups.remove(userId);
-            log.info("Removing user from matched groups - User: {}, Removed Group: {}, Remaining Groups: {}", 
-                userId, removedGroup, matchedGroups);
-            
-            // Add back to looking for match except for the initiator
-            if (!userId.equals(initiator)) {
-                lookingForMatch.put(userId, true);
-                log.info("Added user back to matching pool - User: {}, Current Looking: {}", 
-                    userId, lookingForMatch.keySet());
+            // Add back to looking for match except for the initiator and users whose connection dropped
+            if (!userId.equals(initiator) && !(sessions.get(userId) instanceof ParkedSession)) {
+                matchmakingPool.enqueue(userId, preferencesOf(userId), nodeOf(userId));
+                chatEventLog.log(ChatEvent.REQUEUED, userId, initiator);
             }
             
             // Send end-chat message
-            sendToUser(userId, createMessage("end-chat", null, initiator));
+            sendToUser(userId, endChatMessage, MessageClass.CONTROL);
         }
-        
-        log.info("Group chat ended - Final Groups: {}, Looking For Match: {}", 
-            matchedGroups, lookingForMatch.keySet());
     }
 
     /**
      * Handles WebRTC signaling messages between matched users.
      * Ensures messages are only forwarded between properly matched users.
      */
-    private void forwardWebRTCMessage(String payload, JsonNode message) throws IOException {
-        String to = message.get("to").asText();
-        String from = message.get("from").asText();
-        String type = message.get("type").asText();
+    void forwardWebRTCMessage(PeerFrame payload, String to, String from, long receivedAt) throws IOException {
 
-        log.debug("Processing WebRTC message - Type: {}, From: {}, To: {}", type, from, to);
-        
-        // Debug logging for matched groups
-        Set<String> fromGroup = matchedGroups.get(from);
-        Set<String> toGroup = matchedGroups.get(to);
-        log.info("Matched groups state - From user group: {}, To user group: {}", 
-            fromGroup != null ? fromGroup : "null", 
-            toGroup != null ? toGroup : "null");
-
-        // Verify both users are properly matched
-        boolean isValidMatch = fromGroup != null && toGroup != null && 
-                             fromGroup.contains(to) && toGroup.contains(from) &&
-                             fromGroup.equals(toGroup);
+        ChatGroup fromGroup = from != null ? groupDirectory.groupOf(from) : null;
+
+        // Verify both users are in the same group: a member's entry always points to its group
+        boolean isValidMatch = to != null && fromGroup != null && fromGroup.contains(to);
 
         if (isValidMatch) {
-            WebSocketSession recipientSession = sessions.get(to);
-            if (recipientSession != null && recipientSession.isOpen()) {
-                log.info("Forwarding WebRTC signal - Type: {}, From: {}, To: {}", type, from, to);
-                recipientSession.sendMessage(new TextMessage(payload));
-            } else {
-                log.warn("Cannot forward WebRTC signal - Recipient session invalid or closed - To: {}", to);
-            }
+            sendToUser(to, payload, MessageClass.SIGNALING, receivedAt);
+            chatEventLog.log(ChatEvent.SIGNAL_FORWARDED, from, to);
         } else {
-            log.warn("WebRTC signal forwarding blocked - Invalid match state - From: {}, To: {}, FromGroup: {}, ToGroup: {}", 
-                    from, to, fromGroup, toGroup);
+            chatEventLog.log(ChatEvent.SIGNAL_BLOCKED, from, to);
         }
     }
 
     /**
-     * Creates a formatted JSON message for WebSocket communication.
-     * @param type Message type identifier
-     * @param users Set of users involved (optional)
-     * @param userId Specific user ID (optional)
-     * @return JSON string representation of the message
+     * @return the preferences the user last searched with, ANY if they never sent any
+     */
+    private MatchPreferences preferencesOf(String userId) {
+        return matchPreferences.getOrDefault(userId, MatchPreferences.ANY);
+    }
+
+    /**
+     * @return true if the user has an open session on any node of the cluster
      */
-    private String createMessage(String type, Set<String> users, String userId) throws IOException {
-        ObjectNode message = objectMapper.createObjectNode();
-        message.put("type", type);
-        if (users != null) message.put("users", objectMapper.valueToTree(users));
-        if (userId != null) message.put("userId", userId);
+    private boolean isConnected(String userId) {
+        return sessions.containsKey(userId) || sessionDirectory.locate(userId) != null;
+    }
+
+    /**
+     * @return ID of the node the user is connected to, null if the user is not connected
+     */
+    private String nodeOf(String userId) {
+        return sessions.containsKey(userId) ? nodeId : sessionDirectory.locate(userId);
+    }
 
-        String messageStr = objectMapper.writeValueAsString(message);
-        log.debug("Created message - Type: {}, Size: {} bytes", type, messageStr.length());
-        return messageStr;
+    /**
+     * Queues a message for a specific user if their session is active.
+     * Users on this node get it through their send pipeline (asynchronous, see {@link ChatSession}),
+     * users on another node through the message relay.
+     */
+    private void sendToUser(String userId, WebSocketMessage<?> message, MessageClass messageClass) throws IOException {
+        sendToUser(userId, message, messageClass, 0);
     }
 
     /**
-     * Sends a message to a specific user if their session is active.
+     * @param receivedAt System.nanoTime() when a forwarded frame was received, 0 for server messages.
+     * Forward latency is only measured for recipients on this node, frames relayed to another node are not timed.
      */
-    private void sendToUser(String userId, String message) throws IOException {
-        WebSocketSession session = sessions.get(userId);
+    private void sendToUser(String userId, WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) throws IOException {
+        ChatSession session = sessions.get(userId);
         if (session != null && session.isOpen()) {
-            session.sendMessage(new TextMessage(message));
+            session.send(message, messageClass, receivedAt);
             log.debug("Message sent to user - User: {}, Session ID: {}", userId, session.getId());
+            return;
+        }
+        String userNode = sessionDirectory.locate(userId);
+        if (userNode != null && !userNode.equals(nodeId)
+                && messageRelay.publish(userNode, RelayedFrame.of(userId, message, messageClass))) {
+            log.debug("Message relayed to user - User: {}, Node: {}", userId, userNode);
+            return;
+        }
+        chatEventLog.log(ChatEvent.SEND_FAILED, userId);
+    }
+
+    /**
+     * Delivers a frame relayed by another node to a user connected to this node.
+     * Relayed frames are never relayed again, a user who moved in between misses the frame.
+     */
+    private void deliverRelayed(RelayedFrame frame) {
+        ChatSession session = sessions.get(frame.toUserId());
+        if (session != null && session.isOpen()) {
+            session.send(frame.toMessage(), frame.messageClass());
         } else {
-            log.warn("Failed to send message - User session invalid or closed - User: {}", userId);
+            chatEventLog.log(ChatEvent.SEND_FAILED, frame.toUserId());
         }
     }
 
     /**
      * Extracts user ID from WebSocket session query parameters.
-     * Expected format: "?userId=<value>"
+     * Expected format: "?userId=<value>", optionally followed by "&resumeToken=<value>"
      */
     private String extractUserId(WebSocketSession session) {
-        String query = session.getUri().getQuery();
-        String userId = query.substring(query.indexOf("=") + 1);
-        log.debug("Extracted user ID from session - User: {}, Session ID: {}", userId, session.getId());
-        return userId;
+        return queryParameter(session.getUri(), "userId");
+    }
+
+    /**
+     * Extracts the resume token from the handshake query parameters, null if there is none.
+     * Expected format: "?userId=<value>&resumeToken=<value>"
+     */
+    static String extractResumeToken(URI uri) {
+        return queryParameter(uri, "resumeToken");
+    }
+
+    /**
+     * @return the value of a query parameter, null if the URI has none. Read on every frame for the
+     *         user ID, so no map of the parameters is built.
+     */
+    static String queryParameter(URI uri, String name) {
+        String query = uri.getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (int start = 0; start < query.length(); ) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            int valueStart = start + name.length() + 1;
+            if (valueStart <= end && query.startsWith(name, start) && query.charAt(valueStart - 1) == '=') {
+                return query.substring(valueStart, end);
+            }
+            start = end + 1;
+        }
+        return null;
     }
 }
@@ -0,0 +1,135 @@
+package com.allchat.chat_service.config;
+
+import com.allchat.chat_service.heartbeat.Heartbeat;
+import com.allchat.chat_service.heartbeat.HeartbeatMonitor;
+import com.allchat.chat_service.session.ChatBatcher;
+import com.allchat.chat_service.session.ChatSession;
+import com.allchat.chat_service.session.InboundGuard;
+import com.allchat.chat_service.session.InboundLimiter;
+import com.allchat.chat_service.session.OutboundSessionManager;
+import com.allchat.chat_service.session.ReactiveOutboundSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chat endpoint of the reactive engine (Spring WebFlux on Reactor Netty), enabled with
+ * spring.main.web-application-type=reactive.
+ *
+ * Adapts a reactive WebSocketSession to {@link ChatWebSocketHandler}, which does the routing for both engines:
+ * - inbound text frames are handed to received() on the Netty event loop, nothing on that path blocks
+ * - outbound frames are the session's {@link ReactiveOutboundSession} Flux, written as Netty has room for them
+ * - when either side ends, the user is disconnected exactly like a closed servlet session
+ * - pongs answer the {@link HeartbeatMonitor}'s pings, which are emitted by the session's ReactiveOutboundSession
+ *
+ * No thread is held per connection, a connection costs its Netty channel and the chat state only.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveChatWebSocketHandler implements WebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveChatWebSocketHandler.class);
+
+    /** Routes frames between users, shared with the servlet engine */
+    private final ChatWebSocketHandler chatWebSocketHandler;
+
+    /** Wraps sessions in a bounded, backpressure-aware send pipeline */
+    private final OutboundSessionManager outboundSessionManager;
+
+    /** Per-session rate limits of inbound frames */
+    private final InboundGuard inboundGuard;
+
+    /** Coalesces chat messages when enabled */
+    private final ChatBatcher chatBatcher;
+
+    /** Pings every session and reaps the ones that stop answering */
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param chatWebSocketHandler Routes frames between matched users
+     * @param outboundSessionManager Creates the send pipeline of every session
+     * @param inboundGuard Limits message rates of every session
+     * @param chatBatcher Coalesces chat messages when enabled
+     * @param heartbeatMonitor Pings sessions and reaps the ones that stop answering
+     */
+    public ReactiveChatWebSocketHandler(ChatWebSocketHandler chatWebSocketHandler,
+                                        OutboundSessionManager outboundSessionManager,
+                                        InboundGuard inboundGuard,
+                                        ChatBatcher chatBatcher,
+                                        HeartbeatMonitor heartbeatMonitor) {
+        this.chatWebSocketHandler = chatWebSocketHandler;
+        this.outboundSessionManager = outboundSessionManager;
+        this.inboundGuard = inboundGuard;
+        this.chatBatcher = chatBatcher;
+        this.heartbeatMonitor = heartbeatMonitor;
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        URI uri = session.getHandshakeInfo().getUri();
+        String userId = ChatWebSocketHandler.queryParameter(uri, "userId");
+        ReactiveOutboundSession outboundSession = outboundSessionManager.open(session);
+        ChatSession chatSession = chatBatcher.wrap(outboundSession);
+        InboundLimiter limiter = inboundGuard.newLimiter();
+        Heartbeat heartbeat = heartbeatMonitor.start(outboundSession, () -> chatWebSocketHandler.reap(userId, chatSession));
+        chatWebSocketHandler.connected(userId, chatSession, ChatWebSocketHandler.extractResumeToken(uri));
+        // Close code of the connection, 0 until Reactor Netty reports it
+        AtomicInteger closeCode = new AtomicInteger();
+        session.closeStatus().subscribe(status -> closeCode.set(status.getCode()));
+
+        Mono<Void> inbound = session.receive()
+                .doOnNext(message -> {
+                    if (message.getType() == WebSocketMessage.Type.PONG) {
+                        heartbeat.pong();
+                        return;
+                    }
+                    if (message.getType() != WebSocketMessage.Type.TEXT) {
+                        return;
+                    }
+                    long receivedAt = System.nanoTime();
+                    try {
+                        chatWebSocketHandler.received(userId, chatSession, limiter,
+                            new TextMessage(message.getPayloadAsText()), receivedAt);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                // Client closed: complete the outbound Flux so send() completes as well
+                .doFinally(signal -> {
+                    heartbeat.stop();
+                    chatSession.discard();
+                })
+                .then();
+        Mono<Void> outbound = session.send(outboundSession.frames());
+
+        return Mono.when(inbound, outbound)
+                .doFinally(signal -> disconnected(userId, chatSession, signal, closeCode.get()));
+    }
+
+    /**
+     * @param reportedCloseCode close code of the connection, 0 if none was reported: the signal tells how it ended
+     */
+    private void disconnected(String userId, ChatSession chatSession, SignalType signal, int reportedCloseCode) {
+        int closeCode = reportedCloseCode != 0 ? reportedCloseCode
+            : signal == SignalType.ON_COMPLETE ? CloseStatus.NORMAL.getCode() : CloseStatus.SERVER_ERROR.getCode();
+        try {
+            chatWebSocketHandler.disconnected(userId, chatSession, closeCode);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error during connection cleanup - User: {}, Error: {}", userId, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.allchat.chat_service.config;
+
+import com.allchat.chat_service.admission.AdmissionController;
+import com.allchat.chat_service.admission.AdmissionDecision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.server.RequestUpgradeStrategy;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handshake of the reactive engine, applies the admission control of {@link ChatHandshakeInterceptor}
+ * before the connection is upgraded. The session slot taken by admission is given back when the session
+ * ends, or when the request completes without a session being opened (a failed upgrade).
+ */
+class ReactiveHandshakeService extends HandshakeWebSocketService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveHandshakeService.class);
+
+    /** Sheds new connections when this node is full, overloaded or a client connects too fast */
+    private final AdmissionController admissionController;
+
+    ReactiveHandshakeService(RequestUpgradeStrategy upgradeStrategy, AdmissionController admissionController) {
+        super(upgradeStrategy);
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public Mono<Void> handleRequest(ServerWebExchange exchange, WebSocketHandler handler) {
+        ServerHttpRequest request = exchange.getRequest();
+        AdmissionDecision decision = admissionController.admit(remoteIp(request));
+        if (!decision.admitted()) {
+            log.debug("Handshake rejected - Reason: {}, Remote Address: {}, Retry After: {}s",
+                decision.reason(), request.getRemoteAddress(), decision.retryAfterSeconds());
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(decision.reason().status());
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+            return response.setComplete();
+        }
+        AtomicBoolean opened = new AtomicBoolean();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                admissionController.release();
+            }
+        };
+        WebSocketHandler holdingSlot = new WebSocketHandler() {
+            @Override
+            public List<String> getSubProtocols() {
+                return handler.getSubProtocols();
+            }
+
+            @Override
+            public Mono<Void> handle(WebSocketSession session) {
+                opened.set(true);
+                return handler.handle(session).doFinally(signal -> release.run());
+            }
+        };
+        return super.handleRequest(exchange, holdingSlot)
+            .doFinally(signal -> {
+                if (!opened.get()) {
+                    release.run();
+                }
+            });
+    }
+
+    private static String remoteIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return null;
+        }
+        return remoteAddress.getAddress() != null ? remoteAddress.getAddress().getHostAddress() : remoteAddress.getHostString();
+    }
+}
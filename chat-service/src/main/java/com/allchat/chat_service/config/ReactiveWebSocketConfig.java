@@ -0,0 +1,68 @@
+package com.allchat.chat_service.config;
+
+import com.allchat.chat_service.admission.AdmissionController;
+import com.allchat.chat_service.compression.CompressionPolicy;
+import com.allchat.chat_service.compression.DeflateExtensionHandler;
+import com.allchat.chat_service.session.InboundGuard;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import reactor.netty.NettyPipeline;
+import reactor.netty.http.server.WebsocketServerSpec;
+
+import java.util.Map;
+
+/**
+ * WebSocket configuration of the reactive engine, the counterpart of {@link WebSocketConfig}.
+ * Active when the service runs as a reactive web application (spring.main.web-application-type=reactive).
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebSocketConfig {
+
+    /**
+     * Runs the reactive engine on Reactor Netty. Tomcat stays on the classpath for the servlet engine
+     * and would otherwise be picked as the reactive server too.
+     *
+     * permessage-deflate is negotiated by a {@link DeflateExtensionHandler} per connection rather than
+     * Reactor Netty's compress option, so the {@link CompressionPolicy} decides frame by frame.
+     * @param compressionPolicy Decides which frames are compressed
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(CompressionPolicy compressionPolicy) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        if (compressionPolicy.isEnabled()) {
+            factory.addServerCustomizers(server -> server.doOnChannelInit((observer, channel, remoteAddress) ->
+                    channel.pipeline().addAfter(NettyPipeline.HttpCodec, "chatDeflateExtension",
+                            new DeflateExtensionHandler(compressionPolicy))));
+        }
+        return factory;
+    }
+
+    /**
+     * Registers the chat endpoint at /ws, ahead of the annotated controllers
+     * @param reactiveChatWebSocketHandler Handles WebSocket communication
+     */
+    @Bean
+    public HandlerMapping chatWebSocketMapping(ReactiveChatWebSocketHandler reactiveChatWebSocketHandler) {
+        return new SimpleUrlHandlerMapping(Map.of("/ws", reactiveChatWebSocketHandler), Ordered.HIGHEST_PRECEDENCE);
+    }
+
+    /**
+     * Upgrades admitted handshakes on Reactor Netty, oversized text frames are refused by Netty before they are aggregated
+     * @param admissionController Decides whether this node takes another session
+     * @param inboundGuard Holds the maximum text frame size (chat.inbound.max-text-frame-size)
+     */
+    @Bean
+    public WebSocketHandlerAdapter webSocketHandlerAdapter(AdmissionController admissionController, InboundGuard inboundGuard) {
+        ReactorNettyRequestUpgradeStrategy upgradeStrategy = new ReactorNettyRequestUpgradeStrategy(
+                () -> WebsocketServerSpec.builder().maxFramePayloadLength(inboundGuard.getMaxTextFrameSize()));
+        return new WebSocketHandlerAdapter(new ReactiveHandshakeService(upgradeStrategy, admissionController));
+    }
+}
@@ -1,37 +1,52 @@
 package com.allchat.chat_service.config;
 
+import com.allchat.chat_service.compression.CompressionPolicy;
+import com.allchat.chat_service.session.InboundGuard;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 /**
  * WebSocket Configuration class that sets up and configures WebSocket endpoints for the chat service.
  * This class enables WebSocket support and defines the WebSocket connection handling.
+ * Only used by the servlet engine, see {@link ReactiveWebSocketConfig} for the reactive one.
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
     /**
-     * Handler for WebSocket messages and connection lifecycle events
+     * Handler for WebSocket messages and connection lifecycle events, by negotiated subprotocol
      */
-    private final ChatWebSocketHandler chatWebSocketHandler;
+    private final ChatProtocolDispatcher chatProtocolDispatcher;
 
     /**
      * Interceptor for WebSocket handshake process to handle authentication and session setup
      */
     private final ChatHandshakeInterceptor chatHandshakeInterceptor;
 
+    /**
+     * Decides whether permessage-deflate is offered to clients
+     */
+    private final CompressionPolicy compressionPolicy;
+
     /**
      * Constructor to inject required dependencies
-     * @param chatWebSocketHandler Handles WebSocket communication
+     * @param chatProtocolDispatcher Handles WebSocket communication of JSON and binary clients
      * @param chatHandshakeInterceptor Manages WebSocket connection establishment
+     * @param compressionPolicy Decides whether permessage-deflate is offered to clients
      */
-    public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler, ChatHandshakeInterceptor chatHandshakeInterceptor) {
-        this.chatWebSocketHandler = chatWebSocketHandler;
+    public WebSocketConfig(ChatProtocolDispatcher chatProtocolDispatcher, ChatHandshakeInterceptor chatHandshakeInterceptor,
+                           CompressionPolicy compressionPolicy) {
+        this.chatProtocolDispatcher = chatProtocolDispatcher;
         this.chatHandshakeInterceptor = chatHandshakeInterceptor;
+        this.compressionPolicy = compressionPolicy;
     }
 
     /**
@@ -40,9 +55,21 @@ public class WebSocketConfig implements WebSocketConfigurer {
      */
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(chatWebSocketHandler, "/ws")  // Registers WebSocket endpoint at /ws
+        registry.addHandler(chatProtocolDispatcher, "/ws") // Registers WebSocket endpoint at /ws
                 .setAllowedOrigins("*")                   // Enables CORS for all origins
                 .addInterceptors(chatHandshakeInterceptor)// Adds handshake interceptor for connection setup
-                .setHandshakeHandler(new DefaultHandshakeHandler());
+                .setHandshakeHandler(new DefaultHandshakeHandler(new ChatRequestUpgradeStrategy(compressionPolicy)));
+    }
+
+    /**
+     * Configures the WebSocket container so oversized text and binary frames are refused before they are buffered
+     * @param inboundGuard Holds the maximum frame size (chat.inbound.max-text-frame-size)
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(InboundGuard inboundGuard) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(inboundGuard.getMaxTextFrameSize());
+        container.setMaxBinaryMessageBufferSize(inboundGuard.getMaxTextFrameSize());
+        return container;
     }
 }
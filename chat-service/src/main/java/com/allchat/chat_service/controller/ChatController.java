@@ -6,8 +6,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.allchat.chat_service.placement.ChatPlacement;
+import com.allchat.chat_service.placement.ChatPlacementService;
 import com.allchat.chat_service.service.ChatService;
 
 @RestController
@@ -16,8 +19,11 @@ public class ChatController {
 
     private final ChatService chatService;
 
-    public ChatController(ChatService chatService) {
+    private final ChatPlacementService chatPlacementService;
+
+    public ChatController(ChatService chatService, ChatPlacementService chatPlacementService) {
         this.chatService = chatService;
+        this.chatPlacementService = chatPlacementService;
     }
 
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
@@ -35,4 +41,16 @@ public class ChatController {
         boolean result = chatService.stopChat();
         return result ? new ResponseEntity<>("Chat stopped", HttpStatus.OK) : new ResponseEntity<>("Unable to stop chat", HttpStatus. INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Tells the client (or gateway) which chat-service instance to open the WebSocket on.
+     * The instance is chosen by user ID only, matched users share an instance only when the matchmaking pool
+     * paired them with a partner already connected to the same one.
+     */
+    @GetMapping("/placement")
+    public ResponseEntity<ChatPlacement> placement(@RequestParam String userId) {
+        ChatPlacement placement = chatPlacementService.placementFor(userId);
+        log.info("Placing user - User: {}, Placement: {}", userId, placement);
+        return placement != null ? new ResponseEntity<>(placement, HttpStatus.OK) : new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -0,0 +1,129 @@
+package com.allchat.chat_service.heartbeat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel: timeouts are hashed into a ring of slots by the tick they are due on, and every tick
+ * looks at one slot only. Scheduling is O(1) and a tick costs the timeouts of its slot, however many
+ * timeouts are pending, where one scheduled task per session would keep them all in a heap.
+ *
+ * A timeout due more than a full turn ahead stays in its slot and is passed over until its turn comes.
+ * Slots are intrusive singly-linked lists, placing a timeout in its slot allocates nothing.
+ *
+ * Only the thread calling {@link #tick()} touches the slots. schedule() may be called from any thread,
+ * it queues the timeout (one queue node per call) and the next tick puts it in its slot.
+ * A timeout whose expire() throws is logged, the other timeouts of its tick still expire.
+ */
+class HashedTimingWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /**
+     * Something to run when its tick is reached. A timeout is in the wheel at most once at a time.
+     */
+    abstract static class Timeout {
+
+        /** Ticks to wait, set by schedule() and turned into the deadline when the timeout is placed */
+        private long delay;
+
+        /** Tick the timeout is due on, tick thread only */
+        private long deadline;
+
+        /** Next timeout of the same slot, tick thread only */
+        private Timeout next;
+
+        /**
+         * Runs on the tick thread, must not block. May schedule this timeout again.
+         */
+        abstract void expire();
+    }
+
+    private final Timeout[] slots;
+
+    private final int mask;
+
+    /** Timeouts scheduled since the last tick */
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    /** Ticks since the wheel was created, tick thread only */
+    private long tick;
+
+    /** Timeouts in the slots, written by the tick thread only */
+    private volatile int size;
+
+    /**
+     * @param slots number of slots, rounded up to a power of two; a turn of the wheel should cover the usual delay
+     */
+    HashedTimingWheel(int slots) {
+        int length = Integer.highestOneBit(Math.max(slots, 1) - 1) << 1;
+        this.slots = new Timeout[Math.max(length, 1)];
+        this.mask = this.slots.length - 1;
+    }
+
+    /**
+     * Schedules a timeout to expire once the given number of ticks has passed.
+     */
+    void schedule(Timeout timeout, long delayTicks) {
+        timeout.delay = Math.max(delayTicks, 1);
+        scheduled.add(timeout);
+    }
+
+    /**
+     * Advances the wheel by one tick and expires the timeouts of the slot it reaches.
+     */
+    void tick() {
+        placeScheduled();
+        tick++;
+        int slot = (int) (tick & mask);
+        Timeout due = null;
+        Timeout kept = null;
+        int expired = 0;
+        for (Timeout timeout = slots[slot]; timeout != null; ) {
+            Timeout next = timeout.next;
+            if (timeout.deadline <= tick) {
+                timeout.next = due;
+                due = timeout;
+                expired++;
+            } else {
+                timeout.next = kept;
+                kept = timeout;
+            }
+            timeout = next;
+        }
+        slots[slot] = kept;
+        size -= expired;
+        while (due != null) {
+            Timeout next = due.next;
+            due.next = null;
+            try {
+                due.expire();
+            } catch (RuntimeException e) {
+                log.error("Timeout failed to expire - Timeout: {}, Error: {}", due, e.getMessage(), e);
+            }
+            due = next;
+        }
+    }
+
+    /**
+     * @return timeouts waiting in the wheel, not counting the ones scheduled since the last tick
+     */
+    int size() {
+        return size;
+    }
+
+    private void placeScheduled() {
+        int placed = 0;
+        for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            timeout.deadline = tick + timeout.delay;
+            int slot = (int) (timeout.deadline & mask);
+            timeout.next = slots[slot];
+            slots[slot] = timeout;
+            placed++;
+        }
+        size += placed;
+    }
+}
@@ -0,0 +1,71 @@
+package com.allchat.chat_service.heartbeat;
+
+import com.allchat.chat_service.session.ChatSession;
+
+/**
+ * Heartbeat of one session, created by {@link HeartbeatMonitor#start}.
+ *
+ * Every interval the wheel checks whether the ping sent last time was answered, then pings again.
+ * After the configured number of unanswered pings in a row the session is reaped.
+ */
+public final class Heartbeat extends HashedTimingWheel.Timeout {
+
+    /** Attribute of a servlet WebSocketSession holding its heartbeat */
+    public static final String ATTRIBUTE = "heartbeat";
+
+    private final HeartbeatMonitor monitor;
+
+    /** Send pipeline of the session, pings bypass the session's protocol and batching */
+    private final ChatSession pipeline;
+
+    /** Cleans up after the session once it is reaped */
+    private final Runnable reaper;
+
+    /** Set by a pong, cleared by the tick thread when it checks the session */
+    private volatile boolean answered = true;
+
+    /** Set once the session closed or was reaped, the next expiry drops the heartbeat */
+    private volatile boolean stopped;
+
+    /** Unanswered pings in a row, tick thread only */
+    private int missed;
+
+    Heartbeat(HeartbeatMonitor monitor, ChatSession pipeline, Runnable reaper) {
+        this.monitor = monitor;
+        this.pipeline = pipeline;
+        this.reaper = reaper;
+    }
+
+    /**
+     * Records a pong from the client, called by the WebSocket engine's thread.
+     */
+    public void pong() {
+        if (!answered) {
+            answered = true;
+        }
+    }
+
+    /**
+     * Stops pinging, called when the session closes.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    void expire() {
+        if (stopped) {
+            return;
+        }
+        if (answered) {
+            answered = false;
+            missed = 0;
+        } else if (++missed >= monitor.getMaxMissedPongs()) {
+            stopped = true;
+            monitor.reap(reaper);
+            return;
+        }
+        monitor.ping(pipeline);
+        monitor.schedule(this);
+    }
+}
@@ -0,0 +1,156 @@
+package com.allchat.chat_service.heartbeat;
+
+import com.allchat.chat_service.session.ChatSession;
+import com.allchat.chat_service.session.MessageClass;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.PingMessage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects half-open connections: every session is pinged at a fixed interval and reaped once it leaves
+ * too many pings in a row unanswered. A client whose TCP connection died without a FIN never closes its
+ * session, without a heartbeat it would stay connected and could be matched with live users.
+ *
+ * The heartbeats of all sessions are timeouts of one {@link HashedTimingWheel}, advanced by a single
+ * "chat-heartbeat" thread, rather than one scheduled task per session. The tick thread only buffers pings
+ * in the sessions' send pipelines; reaping closes the session and runs the chat cleanup, which may block,
+ * so it runs on a virtual thread of its own.
+ *
+ * Settings under chat.heartbeat:
+ * - enabled: ping sessions at all
+ * - interval-ms: time between pings, a pong must arrive within it
+ * - max-missed-pongs: unanswered pings in a row after which the session is reaped
+ * - tick-ms: resolution of the wheel, pings of a session drift by up to one tick
+ *
+ * A dead session is reaped between max-missed-pongs and max-missed-pongs + 1 intervals after its last pong.
+ * Meters: chat.heartbeat.pings, chat.heartbeat.reaped and chat.heartbeat.sessions (sessions on the wheel).
+ */
+@Component
+public class HeartbeatMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatMonitor.class);
+
+    private static final PingMessage PING = new PingMessage();
+
+    private final boolean enabled;
+
+    private final long intervalTicks;
+
+    private final int maxMissedPongs;
+
+    private final HashedTimingWheel wheel;
+
+    /** Advances the wheel, never blocks */
+    private final ScheduledExecutorService tickScheduler;
+
+    /** Closes and cleans up reaped sessions */
+    private final ExecutorService reaperExecutor;
+
+    private final LongAdder pings = new LongAdder();
+
+    private final LongAdder reaped = new LongAdder();
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the heartbeat meters are published to
+     * @param enabled Ping sessions and reap the ones that stop answering
+     * @param intervalMs Time between pings of a session
+     * @param maxMissedPongs Unanswered pings in a row after which a session is reaped
+     * @param tickMs Resolution of the timing wheel
+     */
+    public HeartbeatMonitor(MeterRegistry meterRegistry,
+                            @Value("${chat.heartbeat.enabled:true}") boolean enabled,
+                            @Value("${chat.heartbeat.interval-ms:25000}") long intervalMs,
+                            @Value("${chat.heartbeat.max-missed-pongs:2}") int maxMissedPongs,
+                            @Value("${chat.heartbeat.tick-ms:100}") long tickMs) {
+        this.enabled = enabled;
+        this.intervalTicks = Math.max(intervalMs / tickMs, 1);
+        this.maxMissedPongs = Math.max(maxMissedPongs, 1);
+        // One turn covers the interval, every heartbeat expires on its first pass over its slot
+        this.wheel = new HashedTimingWheel((int) Math.min(intervalTicks + 1, 1 << 16));
+        this.tickScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reaperExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-reaper-", 0).factory());
+        if (enabled) {
+            tickScheduler.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+
+        FunctionCounter.builder("chat.heartbeat.pings", pings, LongAdder::sum)
+                .description("Pings sent to WebSocket sessions")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.heartbeat.reaped", reaped, LongAdder::sum)
+                .description("Sessions closed because they stopped answering pings")
+                .register(meterRegistry);
+        Gauge.builder("chat.heartbeat.sessions", wheel, HashedTimingWheel::size)
+                .description("Sessions with a pending heartbeat")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the heartbeat of a newly established session.
+     * @param pipeline Send pipeline of the session, before any protocol or batching wrapper
+     * @param reaper Closes the session and cleans up after it once it stopped answering
+     * @return the heartbeat, to be told about pongs and stopped when the session closes
+     */
+    public Heartbeat start(ChatSession pipeline, Runnable reaper) {
+        Heartbeat heartbeat = new Heartbeat(this, pipeline, reaper);
+        if (enabled) {
+            schedule(heartbeat);
+        }
+        return heartbeat;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        tickScheduler.shutdownNow();
+        reaperExecutor.shutdown();
+    }
+
+    int getMaxMissedPongs() {
+        return maxMissedPongs;
+    }
+
+    void schedule(Heartbeat heartbeat) {
+        wheel.schedule(heartbeat, intervalTicks);
+    }
+
+    void ping(ChatSession pipeline) {
+        try {
+            if (pipeline.send(PING, MessageClass.CONTROL)) {
+                pings.increment();
+            }
+        } catch (RuntimeException e) {
+            // Unanswered like any lost ping, the session is reaped if it keeps failing
+            log.debug("Error sending ping - Session ID: {}, Error: {}", pipeline.getId(), e.getMessage());
+        }
+    }
+
+    void reap(Runnable reaper) {
+        reaped.increment();
+        reaperExecutor.execute(reaper);
+    }
+
+    private void tick() {
+        try {
+            wheel.tick();
+        } catch (RuntimeException e) {
+            // An exception would cancel the tick task and with it every heartbeat
+            log.error("Error advancing heartbeat wheel - Error: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.allchat.chat_service.logging;
+
+import java.util.Locale;
+
+/**
+ * Events written by {@link ChatEventLog}, each with its own sampling rate.
+ *
+ * Per frame events are sampled by default, lifecycle events (one per session or match) are always written.
+ * The rate of every event can be set with chat.logging.sample-rate.&lt;event&gt; and changed at runtime
+ * through the chatlogging actuator endpoint.
+ */
+public enum ChatEvent {
+
+    FRAME_RECEIVED(0.0),
+    SIGNAL_FORWARDED(0.01),
+    SIGNAL_BLOCKED(1.0),
+    CHAT_FORWARDED(0.01),
+    CHAT_WITHOUT_GROUP(1.0),
+    SESSION_OPENED(1.0),
+    SESSION_CLOSED(1.0),
+    SESSION_REAPED(1.0),
+    SESSION_PARKED(1.0),
+    SESSION_RESUMED(1.0),
+    RESUME_EXPIRED(1.0),
+    MATCH_REQUESTED(1.0),
+    MATCH_CANCELLED(1.0),
+    MATCH_FOUND(1.0),
+    MATCH_DROPPED(1.0),
+    USER_LEFT_GROUP(1.0),
+    GROUP_JOINED(1.0),
+    JOIN_REFUSED(1.0),
+    CHAT_ENDED(1.0),
+    REQUEUED(1.0),
+    SEND_FAILED(0.1);
+
+    private final double defaultSampleRate;
+
+    /** Name used in the log line, the configuration key and the actuator endpoint */
+    private final String key;
+
+    ChatEvent(double defaultSampleRate) {
+        this.defaultSampleRate = defaultSampleRate;
+        this.key = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public double defaultSampleRate() {
+        return defaultSampleRate;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    /**
+     * @return the event with the given key, null if there is none
+     */
+    public static ChatEvent fromKey(String key) {
+        for (ChatEvent event : values()) {
+            if (event.key.equals(key)) {
+                return event;
+            }
+        }
+        return null;
+    }
+}
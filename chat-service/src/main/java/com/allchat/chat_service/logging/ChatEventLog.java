@@ -0,0 +1,97 @@
+package com.allchat.chat_service.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Structured, sampled event log of the chat hot path.
+ *
+ * Every event has fixed fields (event, user, peer, value) and is written to the "chat.events" logger
+ * at INFO. An event is dropped before anything is formatted when the logger is off for INFO or the
+ * event is sampled out, so callers pass only IDs and numbers, never payloads or collections.
+ *
+ * Sampling rates are between 0 (never) and 1 (always), see {@link ChatEvent}.
+ */
+@Component
+public class ChatEventLog {
+
+    private static final Logger events = LoggerFactory.getLogger("chat.events");
+
+    /**
+     * Indexed by ChatEvent.ordinal(). Written only through the actuator endpoint, a new rate may take
+     * a moment to be seen by every thread, which is fine for sampling.
+     */
+    private final double[] sampleRates = new double[ChatEvent.values().length];
+
+    /**
+     * Constructor to inject required dependencies
+     * @param environment Source of the chat.logging.sample-rate.&lt;event&gt; overrides
+     */
+    public ChatEventLog(Environment environment) {
+        for (ChatEvent event : ChatEvent.values()) {
+            sampleRates[event.ordinal()] = environment.getProperty(
+                    "chat.logging.sample-rate." + event.key(), Double.class, event.defaultSampleRate());
+        }
+    }
+
+    /**
+     * @return true if an occurrence of the event is to be written now
+     */
+    public boolean isSampled(ChatEvent event) {
+        return events.isInfoEnabled() && sample(event);
+    }
+
+    /** Sampling decision alone, without the level guard */
+    boolean sample(ChatEvent event) {
+        double rate = sampleRates[event.ordinal()];
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public void log(ChatEvent event, String userId) {
+        if (isSampled(event)) {
+            events.info("event={} user={}", event.key(), userId);
+        }
+    }
+
+    public void log(ChatEvent event, String userId, String peerId) {
+        if (isSampled(event)) {
+            events.info("event={} user={} peer={}", event.key(), userId, peerId);
+        }
+    }
+
+    public void log(ChatEvent event, String userId, long value) {
+        if (isSampled(event)) {
+            events.info("event={} user={} value={}", event.key(), userId, value);
+        }
+    }
+
+    public void log(ChatEvent event, String userId, String peerId, long value) {
+        if (isSampled(event)) {
+            events.info("event={} user={} peer={} value={}", event.key(), userId, peerId, value);
+        }
+    }
+
+    /**
+     * @return the current sampling rate of every event, by event key
+     */
+    public Map<String, Double> getSampleRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (ChatEvent event : ChatEvent.values()) {
+            rates.put(event.key(), sampleRates[event.ordinal()]);
+        }
+        return rates;
+    }
+
+    /**
+     * @param rate clamped to [0, 1]
+     */
+    public void setSampleRate(ChatEvent event, double rate) {
+        sampleRates[event.ordinal()] = Math.max(0.0, Math.min(1.0, rate));
+    }
+}
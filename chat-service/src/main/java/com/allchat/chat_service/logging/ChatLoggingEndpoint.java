@@ -0,0 +1,41 @@
+package com.allchat.chat_service.logging;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint to read and tune the sampling rates of the chat event log at runtime.
+ *
+ * GET  /actuator/chatlogging                          all rates
+ * POST /actuator/chatlogging/{event} {"rate": 0.05}   sets the rate of one event
+ */
+@Component
+@Endpoint(id = "chatlogging")
+public class ChatLoggingEndpoint {
+
+    private final ChatEventLog chatEventLog;
+
+    public ChatLoggingEndpoint(ChatEventLog chatEventLog) {
+        this.chatEventLog = chatEventLog;
+    }
+
+    @ReadOperation
+    public Map<String, Double> sampleRates() {
+        return chatEventLog.getSampleRates();
+    }
+
+    @WriteOperation
+    public Map<String, Double> setSampleRate(@Selector String event, double rate) {
+        ChatEvent chatEvent = ChatEvent.fromKey(event);
+        if (chatEvent == null) {
+            throw new IllegalArgumentException("Unknown chat event: " + event);
+        }
+        chatEventLog.setSampleRate(chatEvent, rate);
+        return chatEventLog.getSampleRates();
+    }
+}
@@ -0,0 +1,343 @@
+package com.allchat.chat_service.matchmaking;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link MatchmakingPool} kept in memory, indexed by the users' {@link MatchPreferences}.
+ *
+ * Every waiting user holds a {@link Ticket}. The ticket is indexed by user ID (O(1) lookup and cancel)
+ * and sits in the FIFO bucket(s) of its current {@link MatchLevel}. Users in the same bucket are
+ * compatible, so pairing only ever looks at the head of a bucket and never scans the pool.
+ *
+ * - enqueue: O(1), lock-free
+ * - cancel: O(1), lock-free. The ticket is flipped to CANCELLED and left in its buckets as a
+ *   tombstone, pairing skips it when it reaches the head.
+ * - pairWaiting: pairs users inside the buckets that received users since the last tick and widens
+ *   users who waited longer than the fallback wait, amortized O(1) per pair or widened user.
+ *   Users of a bucket drained in one tick are paired with a partner on their own node first,
+ *   the ones without one are then paired across nodes in arrival order. The more users a bucket
+ *   receives per tick, the more pairs end up on a single node.
+ *
+ * A ticket only leaves the WAITING state through a single CAS, so a user can never be claimed
+ * by two matches. Pairing is driven by {@link MatchmakingScheduler} and is serialized by a lock,
+ * producers never take it.
+ *
+ * Nodes sharing an {@link com.allchat.chat_service.cluster.InMemoryChatBackplane} share the pool.
+ */
+public class InMemoryMatchmakingPool implements MatchmakingPool {
+
+    /** Maps user IDs to their live ticket */
+    private final Map<String, Ticket> waiting = new ConcurrentHashMap<>();
+
+    /** Maps bucket keys to the users waiting in them, empty buckets are removed */
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /** Buckets that received users since they were last paired */
+    private final Queue<Bucket> dirtyBuckets = new ConcurrentLinkedQueue<>();
+
+    /** Per level, tickets in the order they entered it. The head is always the next one to widen */
+    private final Map<MatchLevel, Queue<Ticket>> widenQueues = new EnumMap<>(MatchLevel.class);
+
+    /** Time a user waits on a level before moving to the next broader one */
+    private final long fallbackWaitNanos;
+
+    /** Serializes pairWaiting() so the unpaired leftover can be put back at the head of its bucket */
+    private final ReentrantLock pairLock = new ReentrantLock();
+
+    /** Live tickets drained from the bucket being paired, in arrival order, guarded by pairLock */
+    private final List<Ticket> drainedTickets = new ArrayList<>();
+
+    /** Drained ticket still looking for a partner on its node, per node, guarded by pairLock */
+    private final Map<String, Ticket> pendingByNode = new HashMap<>();
+
+    /**
+     * @param fallbackWaitMs Time a user waits on a bucket level before being widened to the next one
+     */
+    public InMemoryMatchmakingPool(long fallbackWaitMs) {
+        this.fallbackWaitNanos = TimeUnit.MILLISECONDS.toNanos(fallbackWaitMs);
+        for (MatchLevel level : MatchLevel.values()) {
+            widenQueues.put(level, new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * Puts the user on the most specific level their preferences allow.
+     */
+    @Override
+    public boolean enqueue(String userId, MatchPreferences preferences, String nodeId) {
+        Ticket ticket = new Ticket(userId, preferences, nodeId, System.nanoTime());
+        if (waiting.putIfAbsent(userId, ticket) != null) {
+            return false;
+        }
+        place(ticket);
+        return true;
+    }
+
+    @Override
+    public boolean cancel(String userId) {
+        Ticket ticket = waiting.get(userId);
+        if (ticket == null || !ticket.cancel()) {
+            return false;
+        }
+        waiting.remove(userId, ticket);
+        return true;
+    }
+
+    @Override
+    public boolean isWaiting(String userId) {
+        return waiting.containsKey(userId);
+    }
+
+    @Override
+    public int size() {
+        return waiting.size();
+    }
+
+    /**
+     * Widens users who waited too long on their level, then pairs users inside every bucket that
+     * received users since the last call, in arrival order. With an odd number of users in a bucket
+     * the last one is put back at the head so it keeps its place for the next tick.
+     */
+    @Override
+    public List<Match> pairWaiting(int maxBatchSize) {
+        List<Match> matches = new ArrayList<>();
+        pairLock.lock();
+        try {
+            long now = System.nanoTime();
+            widenExpired(now);
+
+            int budget = maxBatchSize;
+            List<Bucket> unfinished = new ArrayList<>();
+            Bucket bucket;
+            while (budget >= 2 && (bucket = dirtyBuckets.poll()) != null) {
+                bucket.dirty.set(false);
+                budget -= pairBucket(bucket, budget, now, matches);
+                if (budget < 2) {
+                    unfinished.add(bucket);
+                } else {
+                    removeIfEmpty(bucket);
+                }
+            }
+            for (Bucket pending : unfinished) {
+                pending.markDirty(dirtyBuckets);
+            }
+        } finally {
+            pairLock.unlock();
+        }
+        return matches;
+    }
+
+    /**
+     * Adds the ticket to the buckets of its current level. Must only be called once per level.
+     */
+    private void place(Ticket ticket) {
+        MatchLevel level = ticket.level;
+        for (String key : level.bucketKeys(ticket.preferences)) {
+            Bucket bucket = buckets.compute(key, (k, existing) -> {
+                Bucket target = existing != null ? existing : new Bucket(k, level);
+                target.queue.offerLast(ticket);
+                return target;
+            });
+            bucket.markDirty(dirtyBuckets);
+        }
+        if (level != MatchLevel.ANY) {
+            widenQueues.get(level).offer(ticket);
+        }
+    }
+
+    /**
+     * Moves users who waited longer than the fallback wait on their level to the next broader one.
+     * Every level has the same wait, so only the heads of the widen queues have to be checked.
+     * Must be called while holding pairLock.
+     */
+    private void widenExpired(long now) {
+        for (Map.Entry<MatchLevel, Queue<Ticket>> entry : widenQueues.entrySet()) {
+            Queue<Ticket> queue = entry.getValue();
+            Ticket ticket;
+            while ((ticket = queue.peek()) != null) {
+                if (!ticket.isWaiting() || ticket.level != entry.getKey()) {
+                    queue.poll();
+                    continue;
+                }
+                if (now - ticket.levelSince < fallbackWaitNanos) {
+                    break;
+                }
+                queue.poll();
+                List<String> previousKeys = ticket.level.bucketKeys(ticket.preferences);
+                ticket.level = ticket.level.next(ticket.preferences);
+                ticket.levelSince = now;
+                place(ticket);
+                for (String key : previousKeys) {
+                    Bucket previous = buckets.get(key);
+                    if (previous != null) {
+                        removeIfEmpty(previous);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pairs live tickets from the head of the bucket until it is empty or the budget is used up,
+     * partners on the same node first. Must be called while holding pairLock.
+     * @return number of live tickets taken out of the bucket
+     */
+    private int pairBucket(Bucket bucket, int budget, long now, List<Match> matches) {
+        List<Ticket> drained = drainedTickets;
+        drained.clear();
+        Ticket ticket;
+        while (drained.size() < budget && (ticket = bucket.queue.pollFirst()) != null) {
+            if (bucket.holds(ticket)) {
+                drained.add(ticket);
+            }
+        }
+
+        // Same node pairs, at most one ticket per node is left without a partner
+        pendingByNode.clear();
+        for (Ticket next : drained) {
+            Ticket pending = pendingByNode.remove(next.nodeId);
+            Ticket survivor = pending == null ? next : pair(pending, next, bucket.level, now, matches);
+            if (survivor != null) {
+                pendingByNode.put(next.nodeId, survivor);
+            }
+        }
+
+        // Cross node pairs of the leftovers, in arrival order
+        Ticket pending = null;
+        for (Ticket next : drained) {
+            if (next.isWaiting()) {
+                pending = pending == null ? next : pair(pending, next, bucket.level, now, matches);
+            }
+        }
+        int taken = drained.size();
+        pendingByNode.clear();
+        drained.clear();
+
+        if (pending != null && bucket.holds(pending)) {
+            bucket.queue.offerFirst(pending);
+            taken--;
+        }
+        return taken;
+    }
+
+    /**
+     * Claims both tickets and adds their match.
+     * @return null if they were matched, otherwise the one still waiting (null if neither is)
+     */
+    private Ticket pair(Ticket first, Ticket second, MatchLevel level, long now, List<Match> matches) {
+        if (!first.claim()) {
+            return second.isWaiting() ? second : null;
+        }
+        if (!second.claim()) {
+            // cancelled after it was drained, first waits for the next one
+            first.release();
+            return first;
+        }
+        waiting.remove(first.userId, first);
+        waiting.remove(second.userId, second);
+        matches.add(new Match(first.userId, second.userId, level, now - first.enqueuedAt,
+                now - second.enqueuedAt, first.nodeId != null && first.nodeId.equals(second.nodeId)));
+        return null;
+    }
+
+    /**
+     * Drops tombstones from the head of the bucket and removes it from the index once it is empty.
+     * Runs inside compute so a concurrent enqueue can never add to a bucket that is being removed.
+     */
+    private void removeIfEmpty(Bucket bucket) {
+        buckets.computeIfPresent(bucket.key, (k, existing) -> {
+            Ticket head;
+            while ((head = existing.queue.peekFirst()) != null && !existing.holds(head)) {
+                existing.queue.pollFirst();
+            }
+            return existing.queue.isEmpty() ? null : existing;
+        });
+    }
+
+    /**
+     * Users of one bucket key, all on the same level.
+     */
+    private static final class Bucket {
+
+        private final String key;
+        private final MatchLevel level;
+        private final Deque<Ticket> queue = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private Bucket(String key, MatchLevel level) {
+            this.key = key;
+            this.level = level;
+        }
+
+        /**
+         * @return true if the ticket is still waiting on this bucket's level
+         */
+        private boolean holds(Ticket ticket) {
+            return ticket.isWaiting() && ticket.level == level;
+        }
+
+        private void markDirty(Queue<Bucket> dirtyBuckets) {
+            if (dirty.compareAndSet(false, true)) {
+                dirtyBuckets.offer(this);
+            }
+        }
+    }
+
+    /**
+     * A single stay of a user in the pool.
+     */
+    private static final class Ticket {
+
+        private static final int WAITING = 0;
+        private static final int MATCHED = 1;
+        private static final int CANCELLED = 2;
+
+        private final String userId;
+        private final MatchPreferences preferences;
+        private final String nodeId;
+        private final long enqueuedAt;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /** Current level and when the ticket entered it, only changed while holding pairLock */
+        private volatile MatchLevel level;
+        private volatile long levelSince;
+
+        private Ticket(String userId, MatchPreferences preferences, String nodeId, long enqueuedAt) {
+            this.userId = userId;
+            this.preferences = preferences;
+            this.nodeId = nodeId;
+            this.enqueuedAt = enqueuedAt;
+            this.level = MatchLevel.first(preferences);
+            this.levelSince = enqueuedAt;
+        }
+
+        private boolean claim() {
+            return state.compareAndSet(WAITING, MATCHED);
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        private void release() {
+            state.compareAndSet(MATCHED, WAITING);
+        }
+
+        private boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+    }
+}
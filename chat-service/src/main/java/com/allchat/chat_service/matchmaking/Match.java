@@ -0,0 +1,27 @@
+package com.allchat.chat_service.matchmaking;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A pair of users claimed together from the {@link MatchmakingPool}.
+ * Both users have already been removed from the waiting pool when a Match is handed out.
+ *
+ * @param level bucket level the two users were paired on
+ * @param firstWaitNanos time the first user spent in the pool
+ * @param secondWaitNanos time the second user spent in the pool
+ * @param colocated true if both users are connected to the same node
+ */
+public record Match(String first, String second, MatchLevel level, long firstWaitNanos, long secondWaitNanos,
+                    boolean colocated) {
+
+    /**
+     * @return both users, the members of the group the match becomes
+     */
+    public Set<String> users() {
+        Set<String> users = new HashSet<>(2);
+        users.add(first);
+        users.add(second);
+        return users;
+    }
+}
@@ -0,0 +1,75 @@
+package com.allchat.chat_service.matchmaking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How specific a matchmaking bucket is. A waiting user starts at the most specific level their
+ * preferences allow and is widened one level at a time after chat.matchmaking.fallback-wait-ms.
+ *
+ * - INTEREST: same language, region and at least one shared interest
+ * - REGION: same language and region
+ * - LANGUAGE: same language
+ * - ANY: anyone
+ *
+ * A missing language or region is treated as its own value ("*").
+ */
+public enum MatchLevel {
+
+    INTEREST,
+    REGION,
+    LANGUAGE,
+    ANY;
+
+    private static final String WILDCARD = "*";
+
+    /**
+     * @return the most specific level the preferences can be matched on
+     */
+    public static MatchLevel first(MatchPreferences preferences) {
+        return INTEREST.appliesTo(preferences) ? INTEREST : INTEREST.next(preferences);
+    }
+
+    /**
+     * @return the next broader level the preferences can be matched on, ANY stays ANY
+     */
+    public MatchLevel next(MatchPreferences preferences) {
+        MatchLevel[] levels = values();
+        for (int i = ordinal() + 1; i < levels.length; i++) {
+            if (levels[i].appliesTo(preferences)) {
+                return levels[i];
+            }
+        }
+        return ANY;
+    }
+
+    /**
+     * Keys of the buckets a user with these preferences waits in at this level.
+     * Only INTEREST can return more than one key, one per interest.
+     */
+    public List<String> bucketKeys(MatchPreferences preferences) {
+        String language = preferences.language() != null ? preferences.language() : WILDCARD;
+        String region = preferences.region() != null ? preferences.region() : WILDCARD;
+        return switch (this) {
+            case INTEREST -> {
+                List<String> keys = new ArrayList<>(preferences.interests().size());
+                for (String interest : preferences.interests()) {
+                    keys.add("interest:" + language + "|" + region + "|" + interest);
+                }
+                yield keys;
+            }
+            case REGION -> List.of("region:" + language + "|" + region);
+            case LANGUAGE -> List.of("language:" + language);
+            case ANY -> List.of("any");
+        };
+    }
+
+    private boolean appliesTo(MatchPreferences preferences) {
+        return switch (this) {
+            case INTEREST -> !preferences.interests().isEmpty();
+            case REGION -> preferences.region() != null;
+            case LANGUAGE -> preferences.language() != null;
+            case ANY -> true;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.allchat.chat_service.matchmaking;
+
+import java.util.List;
+
+/**
+ * Receives the matches formed by a matchmaking tick.
+ */
+public interface MatchListener {
+
+    /**
+     * Called on the matchmaking thread once per tick that produced at least one match.
+     * @param matches matches formed during the tick, in arrival order
+     */
+    void onMatches(List<Match> matches);
+}
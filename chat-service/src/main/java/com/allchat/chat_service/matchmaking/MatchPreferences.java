@@ -0,0 +1,73 @@
+package com.allchat.chat_service.matchmaking;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Matching preferences sent with "looking-for-match".
+ * Expected format: {"type": "looking-for-match", "preferences": {"language": "en", "region": "eu", "interests": ["music"]}}
+ *
+ * Every field is optional. Values are trimmed, lower-cased and capped in length and count,
+ * since they end up as keys of the matchmaking index.
+ */
+public record MatchPreferences(String language, String region, Set<String> interests) {
+
+    /** Preferences of a user who accepts anyone */
+    public static final MatchPreferences ANY = new MatchPreferences(null, null, Set.of());
+
+    private static final int MAX_INTERESTS = 5;
+    private static final int MAX_VALUE_LENGTH = 32;
+
+    public MatchPreferences {
+        language = normalize(language);
+        region = normalize(region);
+        Set<String> normalized = new LinkedHashSet<>();
+        if (interests != null) {
+            for (String interest : interests) {
+                String value = normalize(interest);
+                if (value != null && normalized.size() < MAX_INTERESTS) {
+                    normalized.add(value);
+                }
+            }
+        }
+        interests = Collections.unmodifiableSet(normalized);
+    }
+
+    /**
+     * Reads the "preferences" object of a looking-for-match message.
+     * @param node preferences node, may be null or missing
+     * @return parsed preferences, {@link #ANY} if none were sent
+     */
+    public static MatchPreferences from(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            return ANY;
+        }
+        Set<String> interests = new LinkedHashSet<>();
+        JsonNode interestsNode = node.path("interests");
+        if (interestsNode.isArray()) {
+            for (JsonNode interest : interestsNode) {
+                interests.add(interest.asText());
+            }
+        }
+        return new MatchPreferences(textOrNull(node.get("language")), textOrNull(node.get("region")), interests);
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        return trimmed.length() > MAX_VALUE_LENGTH ? trimmed.substring(0, MAX_VALUE_LENGTH) : trimmed;
+    }
+}
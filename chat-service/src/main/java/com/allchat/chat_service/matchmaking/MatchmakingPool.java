@@ -0,0 +1,42 @@
+package com.allchat.chat_service.matchmaking;
+
+import java.util.List;
+
+/**
+ * Users waiting for a chat partner, shared by the nodes of a cluster through the
+ * {@link com.allchat.chat_service.cluster.ChatBackplane}.
+ *
+ * A user can be claimed by at most one match: once pairWaiting() returned a user in a match, the user
+ * is no longer waiting and cancel() returns false for them. Pairing is driven by {@link MatchmakingScheduler}.
+ */
+public interface MatchmakingPool {
+
+    /**
+     * Puts the user in the pool. Pairing happens on the next matchmaking tick.
+     * @param nodeId node the user is connected to, partners on the same node are preferred
+     * @return false if the user was already waiting
+     */
+    boolean enqueue(String userId, MatchPreferences preferences, String nodeId);
+
+    /**
+     * Removes the user from the pool.
+     * @return true if the user was waiting and has not been claimed by a match
+     */
+    boolean cancel(String userId);
+
+    boolean isWaiting(String userId);
+
+    /**
+     * @return number of users currently waiting
+     */
+    int size();
+
+    /**
+     * Pairs compatible waiting users, widening the preferences of users who waited too long.
+     * Among compatible users, a partner connected to the same node is preferred so the pair's frames
+     * never cross the relay. A user left without a partner keeps their place for the next call.
+     * @param maxBatchSize maximum number of users taken out of the pool in one call
+     * @return the matches formed, both users of every match have left the pool
+     */
+    List<Match> pairWaiting(int maxBatchSize);
+}
@@ -0,0 +1,130 @@
+package com.allchat.chat_service.matchmaking;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairs waiting users in batches instead of on the WebSocket thread that received "looking-for-match".
+ *
+ * Every tick drains up to chat.matchmaking.max-batch-size users from the {@link MatchmakingPool},
+ * pairs them in one pass and hands all matches of the tick to the {@link MatchListener} at once.
+ * Ticks run with a fixed delay of chat.matchmaking.tick-interval-ms, so a slow tick is never overlapped.
+ * Time to match is published per bucket level (p50/p99) to tune chat.matchmaking.fallback-wait-ms,
+ * chat.matchmaking.pairs.colocated against chat.matchmaking.pairs.formed is the share of pairs on one node.
+ */
+@Component
+public class MatchmakingScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchmakingScheduler.class);
+
+    private final MatchmakingPool matchmakingPool;
+
+    private final MatchListener matchListener;
+
+    private final int maxBatchSize;
+
+    /** Users paired per tick */
+    private final DistributionSummary batchSize;
+
+    /** Matches formed per tick */
+    private final DistributionSummary pairsPerTick;
+
+    private final Counter pairsFormed;
+
+    /** Matches whose users are connected to the same node */
+    private final Counter colocatedPairs;
+
+    /** Time spent pairing and notifying per tick */
+    private final Timer tickTimer;
+
+    /** Time from entering the pool to being matched, per bucket level */
+    private final Map<MatchLevel, Timer> timeToMatch = new EnumMap<>(MatchLevel.class);
+
+    /**
+     * Constructor to inject required dependencies
+     * @param matchmakingPool Waiting pool drained on every tick
+     * @param matchListener Commits the matches of a tick (ChatWebSocketHandler)
+     * @param meterRegistry Registry the per tick metrics are published to
+     * @param maxBatchSize Maximum number of users drained per tick
+     */
+    public MatchmakingScheduler(MatchmakingPool matchmakingPool,
+                                MatchListener matchListener,
+                                MeterRegistry meterRegistry,
+                                @Value("${chat.matchmaking.max-batch-size:1000}") int maxBatchSize) {
+        this.matchmakingPool = matchmakingPool;
+        this.matchListener = matchListener;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = DistributionSummary.builder("chat.matchmaking.tick.batch.size")
+                .description("Users paired per matchmaking tick")
+                .register(meterRegistry);
+        this.pairsPerTick = DistributionSummary.builder("chat.matchmaking.tick.pairs")
+                .description("Matches formed per matchmaking tick")
+                .register(meterRegistry);
+        this.pairsFormed = Counter.builder("chat.matchmaking.pairs.formed")
+                .description("Total matches formed")
+                .register(meterRegistry);
+        this.colocatedPairs = Counter.builder("chat.matchmaking.pairs.colocated")
+                .description("Matches whose users are connected to the same node")
+                .register(meterRegistry);
+        this.tickTimer = Timer.builder("chat.matchmaking.tick.duration")
+                .description("Time spent pairing and notifying per matchmaking tick")
+                .register(meterRegistry);
+        for (MatchLevel level : MatchLevel.values()) {
+            timeToMatch.put(level, Timer.builder("chat.matchmaking.time-to-match")
+                    .description("Time from entering the waiting pool to being matched")
+                    .tag("bucket", level.name().toLowerCase(Locale.ROOT))
+                    .publishPercentiles(0.5, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        Gauge.builder("chat.matchmaking.waiting", matchmakingPool, MatchmakingPool::size)
+                .description("Users currently waiting for a match")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.matchmaking.tick-interval-ms:10}")
+    public void tick() {
+        if (matchmakingPool.size() < 2) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Match> matches = matchmakingPool.pairWaiting(maxBatchSize);
+        int colocated = 0;
+        for (Match match : matches) {
+            if (match.colocated()) {
+                colocated++;
+            }
+            Timer timer = timeToMatch.get(match.level());
+            timer.record(match.firstWaitNanos(), TimeUnit.NANOSECONDS);
+            timer.record(match.secondWaitNanos(), TimeUnit.NANOSECONDS);
+        }
+        try {
+            if (!matches.isEmpty()) {
+                matchListener.onMatches(matches);
+            }
+        } catch (Exception e) {
+            log.error("Error delivering matches - Matches: {}, Error: {}", matches.size(), e.getMessage(), e);
+        } finally {
+            batchSize.record(matches.size() * 2);
+            pairsPerTick.record(matches.size());
+            pairsFormed.increment(matches.size());
+            colocatedPairs.increment(colocated);
+            tickTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        log.debug("Matchmaking tick completed - Pairs: {}, Still Waiting: {}", matches.size(), matchmakingPool.size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.allchat.chat_service.metrics;
+
+import com.allchat.chat_service.cluster.ChatBackplane;
+import com.allchat.chat_service.cluster.GroupDirectory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Meters of the inbound side of ChatWebSocketHandler.
+ *
+ * - chat.frames.in{type}: frames received, by frame type
+ * - chat.frames.in.bytes{type}: their payload size in bytes (UTF-8 length of text frames)
+ * - chat.groups.active / chat.groups.members: matched groups and the users in them
+ *
+ * Sessions, the waiting pool, time to match, frames out, forward latency and send failures are published
+ * where they are measured: OutboundSessionManager and MatchmakingScheduler.
+ * Counters are FunctionCounters over LongAdders indexed by frame type, counting a frame never contends
+ * and never looks a meter up in the registry.
+ */
+@Component
+public class ChatMetrics {
+
+    /** Frame types with their own series, anything else is counted as "other" */
+    private static final String[] FRAME_TYPES = {
+            "looking-for-match", "cancel-match", "offer", "answer", "ice-candidate", "chat", "end-chat", "join-group", "other"
+    };
+
+    private static final int OTHER = FRAME_TYPES.length - 1;
+
+    private final LongAdder[] framesIn = new LongAdder[FRAME_TYPES.length];
+
+    private final LongAdder[] bytesIn = new LongAdder[FRAME_TYPES.length];
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the chat meters are published to
+     * @param chatBackplane Source of the matched groups
+     */
+    public ChatMetrics(MeterRegistry meterRegistry, ChatBackplane chatBackplane) {
+        for (int i = 0; i < FRAME_TYPES.length; i++) {
+            framesIn[i] = new LongAdder();
+            bytesIn[i] = new LongAdder();
+            FunctionCounter.builder("chat.frames.in", framesIn[i], LongAdder::sum)
+                    .description("Frames received from WebSocket sessions")
+                    .tag("type", FRAME_TYPES[i])
+                    .register(meterRegistry);
+            FunctionCounter.builder("chat.frames.in.bytes", bytesIn[i], LongAdder::sum)
+                    .description("Payload size of the frames received from WebSocket sessions")
+                    .baseUnit("bytes")
+                    .tag("type", FRAME_TYPES[i])
+                    .register(meterRegistry);
+        }
+
+        GroupDirectory groupDirectory = chatBackplane.groupDirectory();
+        Gauge.builder("chat.groups.members", groupDirectory, GroupDirectory::memberCount)
+                .description("Users in a matched group")
+                .register(meterRegistry);
+        Gauge.builder("chat.groups.active", groupDirectory, GroupDirectory::groupCount)
+                .description("Matched groups")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param type type of the frame, null if it had none
+     * @param length payload length of the frame in bytes
+     */
+    public void frameReceived(String type, int length) {
+        int index = indexOf(type);
+        framesIn[index].increment();
+        bytesIn[index].add(length);
+    }
+
+    private static int indexOf(String type) {
+        if (type == null) {
+            return OTHER;
+        }
+        return switch (type) {
+            case "looking-for-match" -> 0;
+            case "cancel-match" -> 1;
+            case "offer" -> 2;
+            case "answer" -> 3;
+            case "ice-candidate" -> 4;
+            case "chat" -> 5;
+            case "end-chat" -> 6;
+            case "join-group" -> 7;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.allchat.chat_service.placement;
+
+/**
+ * Where a user should open their chat WebSocket.
+ *
+ * @param instanceId Eureka instance ID of the chat-service node
+ * @param url WebSocket URL of the node
+ * @param colocatedWith ID of a member of the user's group placed on the same node, null if there is none
+ */
+public record ChatPlacement(String instanceId, String url, String colocatedWith) {
+}
@@ -0,0 +1,117 @@
+package com.allchat.chat_service.placement;
+
+import com.allchat.chat_service.cluster.ChatBackplane;
+import com.allchat.chat_service.cluster.ChatGroup;
+import com.allchat.chat_service.cluster.GroupDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sticky placement of chat users on chat-service instances.
+ *
+ * Instances come from the Eureka registry every service already registers with and are put on a
+ * {@link ConsistentHashRing}. A user is always placed by their user ID: users connect before they are
+ * matched, and a user reconnecting while in a group must land on the node holding their resume window.
+ * Matched users share a node only when the {@link com.allchat.chat_service.matchmaking.MatchmakingPool}
+ * paired them that way, it prefers a partner connected to the same node. colocatedWith reports such a partner.
+ *
+ * The ring is rebuilt when the registry fetch shows a different set of instances. Because the ring is
+ * consistent, only users of the arcs that changed owner are sent to another node.
+ *
+ * chat.placement.virtual-nodes sets the points per instance on the ring.
+ */
+@Service
+public class ChatPlacementService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatPlacementService.class);
+
+    private final DiscoveryClient discoveryClient;
+
+    private final GroupDirectory groupDirectory;
+
+    private final String serviceId;
+
+    private final int virtualNodes;
+
+    /** Ring and the instances on it, replaced as a whole on every rebuild */
+    private volatile Snapshot snapshot = new Snapshot(ConsistentHashRing.of(Set.of(), 1), Map.of());
+
+    /**
+     * Constructor to inject required dependencies
+     * @param discoveryClient Eureka client listing the chat-service instances
+     * @param chatBackplane Source of the matched groups used for co-location
+     * @param serviceId Name the chat-service instances are registered under
+     * @param virtualNodes Points per instance on the ring
+     */
+    public ChatPlacementService(DiscoveryClient discoveryClient,
+                                ChatBackplane chatBackplane,
+                                @Value("${spring.application.name}") String serviceId,
+                                @Value("${chat.placement.virtual-nodes:160}") int virtualNodes) {
+        this.discoveryClient = discoveryClient;
+        this.groupDirectory = chatBackplane.groupDirectory();
+        this.serviceId = serviceId;
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * @return the instance the user should connect to, null if no chat-service instance is registered
+     */
+    public ChatPlacement placementFor(String userId) {
+        Snapshot current = snapshot;
+        if (current.ring().isEmpty()) {
+            refresh();
+            current = snapshot;
+        }
+
+        ConsistentHashRing ring = current.ring();
+        String instanceId = ring.nodeFor(userId);
+        if (instanceId == null) {
+            return null;
+        }
+
+        String colocatedWith = null;
+        ChatGroup group = groupDirectory.groupOf(userId);
+        if (group != null) {
+            colocatedWith = group.members().stream()
+                    .filter(member -> !member.equals(userId) && instanceId.equals(ring.nodeFor(member)))
+                    .sorted().findFirst().orElse(null);
+        }
+        return new ChatPlacement(instanceId, webSocketUrl(current.instances().get(instanceId)), colocatedWith);
+    }
+
+    /**
+     * Rebuilds the ring after every registry fetch if the set of instances changed.
+     */
+    @EventListener(HeartbeatEvent.class)
+    public void refresh() {
+        Map<String, ServiceInstance> instances = new HashMap<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            instances.put(instance.getInstanceId(), instance);
+        }
+        Snapshot current = snapshot;
+        if (instances.keySet().equals(current.instances().keySet())) {
+            return;
+        }
+        snapshot = new Snapshot(ConsistentHashRing.of(instances.keySet(), virtualNodes),
+                Collections.unmodifiableMap(instances));
+        log.info("Placement ring rebuilt - Instances: {}", snapshot.ring().nodes());
+    }
+
+    private static String webSocketUrl(ServiceInstance instance) {
+        return (instance.isSecure() ? "wss" : "ws") + "://" + instance.getHost() + ":" + instance.getPort() + "/ws";
+    }
+
+    private record Snapshot(ConsistentHashRing ring, Map<String, ServiceInstance> instances) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.allchat.chat_service.placement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring of chat-service nodes.
+ *
+ * Every node is placed on the ring virtualNodes times, a key belongs to the first point at or after
+ * its hash. When a node joins or leaves, only the keys of the arcs it gains or loses move
+ * (about 1/N of them), every other key keeps its node.
+ *
+ * Points are kept in a sorted long[] with a parallel owner array, a lookup is one hash and a binary search.
+ */
+public final class ConsistentHashRing {
+
+    private static final ConsistentHashRing EMPTY = new ConsistentHashRing(new long[0], new String[0], List.of());
+
+    private final long[] points;
+
+    private final String[] owners;
+
+    private final List<String> nodes;
+
+    private ConsistentHashRing(long[] points, String[] owners, List<String> nodes) {
+        this.points = points;
+        this.owners = owners;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param nodes IDs of the nodes on the ring, duplicates are ignored
+     * @param virtualNodes points per node, more points spread keys more evenly
+     */
+    public static ConsistentHashRing of(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            return EMPTY;
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        List<String> sortedNodes = new ArrayList<>(new TreeSet<>(nodes));
+        int size = sortedNodes.size() * virtualNodes;
+        long[] entries = new long[size];
+        String[] unsortedOwners = new String[size];
+        int index = 0;
+        for (String node : sortedNodes) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                entries[index] = hash(node + "#" + replica);
+                unsortedOwners[index] = node;
+                index++;
+            }
+        }
+
+        // Sort points and owners together, ties (practically never) are broken by node ID
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byPoint = Long.compare(entries[a], entries[b]);
+            return byPoint != 0 ? byPoint : unsortedOwners[a].compareTo(unsortedOwners[b]);
+        });
+        long[] points = new long[size];
+        String[] owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = entries[order[i]];
+            owners[i] = unsortedOwners[order[i]];
+        }
+        return new ConsistentHashRing(points, owners, List.copyOf(sortedNodes));
+    }
+
+    /**
+     * @return the node owning the key, null if the ring is empty
+     */
+    public String nodeFor(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * @return IDs of the nodes on the ring, sorted
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return points.length == 0;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the murmur3 fmix64 avalanche
+     * so that similar keys (sequential replicas, UUIDs sharing a prefix) spread over the whole ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,118 @@
+package com.allchat.chat_service.protocol;
+
+import org.springframework.web.socket.BinaryMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Compact binary form of the chat protocol, used by clients that negotiate the
+ * {@value #SUBPROTOCOL} WebSocket subprotocol. Clients without it keep using JSON text frames.
+ *
+ * Every frame is a 5 byte header followed by the body, all numbers big-endian:
+ * - type: 1 byte, the code of the {@link FrameType}
+ * - peer: 2 bytes, session-local handle of the other user, 0 for none.
+ *   Client to server it is the recipient of a signaling frame, server to client the sender of the frame.
+ * - length: 2 bytes, length of the body
+ *
+ * Handles replace the user IDs JSON frames carry in "to" and "from". The server hands them out in
+ * match-found, whose body lists every user of the group as handle (2 bytes), ID length (1 byte), ID (UTF-8).
+ * end-chat, user-left-match and match-cancelled carry the user they are about as the peer handle, no body.
+ * session-resumed has the body of match-found and hands out handles anew, resume-token carries the token
+ * (ASCII) as its body.
+ *
+ * The body of looking-for-match is the JSON object of the preferences, the body of signaling and chat frames
+ * is a UTF-8 JSON object with the payload fields (e.g. {"candidate":{...}}). The server only checks that it
+ * is one (a session sending anything else is closed with 1007) and converts it to the JSON form, with the
+ * server's "type" and "from", when the recipient is a JSON client. Frames of JSON clients reach
+ * binary clients with the full JSON frame as body, routing fields included.
+ */
+public final class BinaryFrameCodec {
+
+    public static final String SUBPROTOCOL = "allchat.binary.v1";
+
+    public static final int HEADER_SIZE = 5;
+
+    public static final int MAX_BODY_LENGTH = 0xFFFF;
+
+    /** Peer handle of frames that are not about another user */
+    public static final int NO_PEER = 0;
+
+    public static final int MAX_PEER_HANDLE = 0xFFFF;
+
+    private BinaryFrameCodec() {
+    }
+
+    /**
+     * @param payload a complete binary frame, read from its position
+     * @return the frame, its type is null if the code is unknown. The body is a view of the payload.
+     * @throws IOException if the frame is shorter than its header or its length does not match
+     */
+    public static BinaryFrame decode(ByteBuffer payload) throws IOException {
+        if (payload.remaining() < HEADER_SIZE) {
+            throw new IOException("Binary frame shorter than its header");
+        }
+        int start = payload.position();
+        int code = payload.get(start) & 0xFF;
+        int peerHandle = payload.getShort(start + 1) & 0xFFFF;
+        int length = payload.getShort(start + 3) & 0xFFFF;
+        if (length != payload.remaining() - HEADER_SIZE) {
+            throw new IOException("Binary frame length " + length + " does not match its body of "
+                    + (payload.remaining() - HEADER_SIZE) + " bytes");
+        }
+        ByteBuffer body = payload.slice(start + HEADER_SIZE, length);
+        return new BinaryFrame(FrameType.fromCode(code), peerHandle, body);
+    }
+
+    /**
+     * @param body read from its position, left unchanged
+     * @throws IllegalArgumentException if the body is longer than {@link #MAX_BODY_LENGTH}
+     */
+    public static BinaryMessage encode(FrameType type, int peerHandle, ByteBuffer body) {
+        int length = body.remaining();
+        if (length > MAX_BODY_LENGTH) {
+            throw new IllegalArgumentException("Binary frame body of " + length + " bytes is over the limit");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + length);
+        frame.put((byte) type.code())
+                .putShort((short) peerHandle)
+                .putShort((short) length)
+                .put(body.duplicate())
+                .flip();
+        return new BinaryMessage(frame);
+    }
+
+    /**
+     * @param handles user IDs of the group and the handle each one got in the recipient's session
+     */
+    public static ByteBuffer matchFoundBody(Map<String, Integer> handles) {
+        byte[][] ids = new byte[handles.size()][];
+        int[] idHandles = new int[handles.size()];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : handles.entrySet()) {
+            ids[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (ids[i].length > 0xFF) {
+                throw new IllegalArgumentException("User ID longer than 255 bytes");
+            }
+            idHandles[i] = entry.getValue();
+            length += 3 + ids[i].length;
+            i++;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        for (i = 0; i < ids.length; i++) {
+            body.putShort((short) idHandles[i]).put((byte) ids[i].length).put(ids[i]);
+        }
+        return body.flip();
+    }
+
+    /**
+     * A decoded binary frame.
+     * @param type null if the code is unknown
+     * @param peerHandle session-local handle of the other user, {@link #NO_PEER} for none
+     */
+    public record BinaryFrame(FrameType type, int peerHandle, ByteBuffer body) {
+    }
+}
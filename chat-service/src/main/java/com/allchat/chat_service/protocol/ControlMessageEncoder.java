@@ -0,0 +1,142 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encodes the server's control messages.
+ *
+ * Every control message has a fixed shape, so it is written from a template straight into a
+ * StringBuilder instead of going through an ObjectNode. The result is an immutable TextMessage
+ * which is encoded once per event and shared by every recipient.
+ *
+ * Output is identical to the ObjectMapper form: {"type":"end-chat","userId":"..."}
+ * and {"type":"match-found","groupId":"...","users":["...","..."]}. session-resumed has the shape of match-found,
+ * resume-token is {"type":"resume-token","token":"..."}.
+ * A chat-batch frame carries chat messages as they are: {"type":"chat-batch","messages":[{...},{...}]}.
+ */
+public final class ControlMessageEncoder {
+
+    private static final String MATCH_FOUND_PREFIX = "{\"type\":\"match-found\",\"groupId\":\"";
+    private static final String SESSION_RESUMED_PREFIX = "{\"type\":\"session-resumed\",\"groupId\":\"";
+    private static final String GROUP_USERS = "\",\"users\":[";
+    private static final String RESUME_TOKEN_PREFIX = "{\"type\":\"resume-token\",\"token\":\"";
+    private static final String END_CHAT_PREFIX = "{\"type\":\"end-chat\",\"userId\":\"";
+    private static final String USER_LEFT_MATCH_PREFIX = "{\"type\":\"user-left-match\",\"userId\":\"";
+    private static final String MATCH_CANCELLED_PREFIX = "{\"type\":\"match-cancelled\",\"userId\":\"";
+    private static final String USER_JOINED_MATCH_PREFIX = "{\"type\":\"user-joined-match\",\"userId\":\"";
+    private static final String JOIN_REFUSED_PREFIX = "{\"type\":\"join-refused\",\"userId\":\"";
+    private static final String CHAT_BATCH_PREFIX = "{\"type\":\"chat-batch\",\"messages\":[";
+
+    private static final JsonStringEncoder JSON_STRING_ENCODER = JsonStringEncoder.getInstance();
+
+    private ControlMessageEncoder() {
+    }
+
+    /**
+     * @param groupId ID of the group, for others to join it
+     * @param users every user of the group
+     */
+    public static TextMessage matchFound(String groupId, Collection<String> users) {
+        return groupMessage(MATCH_FOUND_PREFIX, groupId, users);
+    }
+
+    /**
+     * @param groupId ID of the group the resumed user is in
+     * @param users every user of the group
+     */
+    public static TextMessage sessionResumed(String groupId, Collection<String> users) {
+        return groupMessage(SESSION_RESUMED_PREFIX, groupId, users);
+    }
+
+    /**
+     * @param token resume token of the recipient's session
+     */
+    public static TextMessage resumeToken(String token) {
+        return withUserId(RESUME_TOKEN_PREFIX, token);
+    }
+
+    private static TextMessage groupMessage(String prefix, String groupId, Collection<String> users) {
+        StringBuilder builder = new StringBuilder(prefix.length() + groupId.length()
+                + GROUP_USERS.length() + users.size() * 40 + 2);
+        builder.append(prefix);
+        JSON_STRING_ENCODER.quoteAsString(groupId, builder);
+        builder.append(GROUP_USERS);
+        boolean first = true;
+        for (String user : users) {
+            if (!first) {
+                builder.append(',');
+            }
+            builder.append('"');
+            JSON_STRING_ENCODER.quoteAsString(user, builder);
+            builder.append('"');
+            first = false;
+        }
+        return new TextMessage(builder.append("]}"));
+    }
+
+    /**
+     * @param initiator user who ended the chat
+     */
+    public static TextMessage endChat(String initiator) {
+        return withUserId(END_CHAT_PREFIX, initiator);
+    }
+
+    /**
+     * @param leftUserId user who left the group
+     */
+    public static TextMessage userLeftMatch(String leftUserId) {
+        return withUserId(USER_LEFT_MATCH_PREFIX, leftUserId);
+    }
+
+    /**
+     * @param userId user whose match search was cancelled
+     */
+    public static TextMessage matchCancelled(String userId) {
+        return withUserId(MATCH_CANCELLED_PREFIX, userId);
+    }
+
+    /**
+     * @param joinedUserId user who joined the group
+     */
+    public static TextMessage userJoinedMatch(String joinedUserId) {
+        return withUserId(USER_JOINED_MATCH_PREFIX, joinedUserId);
+    }
+
+    /**
+     * @param userId user whose join-group was refused
+     */
+    public static TextMessage joinRefused(String userId) {
+        return withUserId(JOIN_REFUSED_PREFIX, userId);
+    }
+
+    /**
+     * @param messages chat messages in the order they were sent, each a single JSON object
+     *                 (checked at ingress by {@link PeerFrame#fromCheckedText}), pasted as they are
+     */
+    public static TextMessage chatBatch(List<TextMessage> messages) {
+        int length = CHAT_BATCH_PREFIX.length() + messages.size() + 2;
+        for (TextMessage message : messages) {
+            length += message.getPayload().length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(CHAT_BATCH_PREFIX);
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(messages.get(i).getPayload());
+        }
+        return new TextMessage(builder.append("]}"));
+    }
+
+    private static TextMessage withUserId(String prefix, String userId) {
+        StringBuilder builder = new StringBuilder(prefix.length() + userId.length() + 2);
+        builder.append(prefix);
+        JSON_STRING_ENCODER.quoteAsString(userId, builder);
+        return new TextMessage(builder.append("\"}"));
+    }
+}
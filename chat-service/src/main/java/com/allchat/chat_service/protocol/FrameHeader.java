@@ -0,0 +1,42 @@
+package com.allchat.chat_service.protocol;
+
+import com.allchat.chat_service.session.MessageClass;
+
+/**
+ * Routing fields of an inbound frame, read without building a JSON tree.
+ * Fields that were not present (or not needed for routing) are null.
+ */
+public record FrameHeader(String type, String to, String from) {
+
+    /**
+     * @return true for WebRTC signaling frames, which are routed by their "to" field. Their "from" field
+     * is only checked against the sending session's user, it never decides the route.
+     */
+    public boolean isSignaling() {
+        return isSignaling(type);
+    }
+
+    /**
+     * @return the budget the frame is rate limited against: signaling, chat, or matchmaking control
+     * (looking-for-match, join-group and anything unknown). end-chat and cancel-match are control frames
+     * with a budget of their own, see {@link #isTeardown(String)}
+     */
+    public MessageClass messageClass() {
+        if (isSignaling()) {
+            return MessageClass.SIGNALING;
+        }
+        return "chat".equals(type) ? MessageClass.CHAT : MessageClass.CONTROL;
+    }
+
+    /**
+     * @return true for end-chat and cancel-match, which have a rate budget of their own
+     * (see {@link com.allchat.chat_service.session.InboundLimiter})
+     */
+    public static boolean isTeardown(String type) {
+        return "end-chat".equals(type) || "cancel-match".equals(type);
+    }
+
+    static boolean isSignaling(String type) {
+        return "offer".equals(type) || "answer".equals(type) || "ice-candidate".equals(type);
+    }
+}
@@ -0,0 +1,57 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads the "type", "to" and "from" fields of a text frame with a streaming parser.
+ *
+ * Frames that are relayed as they are (chat, offer, answer, ice-candidate) never need a JsonNode tree:
+ * every other top level field, including SDP blobs, is skipped without being decoded, and parsing stops
+ * as soon as the fields needed to route the frame have been seen.
+ */
+public class FrameHeaderParser {
+
+    private final JsonFactory jsonFactory;
+
+    public FrameHeaderParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * @param payload JSON text of the frame
+     * @return the routing fields, type is null if the frame has no string "type" field
+     * @throws IOException if the payload is not a JSON object
+     */
+    public FrameHeader parse(String payload) throws IOException {
+        String type = null;
+        String to = null;
+        String from = null;
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Frame is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING) {
+                    switch (field) {
+                        case "type" -> type = parser.getText();
+                        case "to" -> to = parser.getText();
+                        case "from" -> from = parser.getText();
+                        default -> { }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                if (type != null && (!FrameHeader.isSignaling(type) || (to != null && from != null))) {
+                    break;
+                }
+            }
+        }
+        return new FrameHeader(type, to, from);
+    }
+}
@@ -0,0 +1,81 @@
+package com.allchat.chat_service.protocol;
+
+import com.allchat.chat_service.session.MessageClass;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Frame types of the chat protocol with their code in the binary protocol, see {@link BinaryFrameCodec}.
+ * The key is the "type" field of the JSON form.
+ */
+public enum FrameType {
+
+    LOOKING_FOR_MATCH(1, "looking-for-match", MessageClass.CONTROL),
+    CANCEL_MATCH(2, "cancel-match", MessageClass.CONTROL),
+    OFFER(3, "offer", MessageClass.SIGNALING),
+    ANSWER(4, "answer", MessageClass.SIGNALING),
+    ICE_CANDIDATE(5, "ice-candidate", MessageClass.SIGNALING),
+    CHAT(6, "chat", MessageClass.CHAT),
+    END_CHAT(7, "end-chat", MessageClass.CONTROL),
+    JOIN_GROUP(11, "join-group", MessageClass.CONTROL),
+
+    /** Server to client only */
+    MATCH_FOUND(8, "match-found", MessageClass.CONTROL),
+    USER_LEFT_MATCH(9, "user-left-match", MessageClass.CONTROL),
+    MATCH_CANCELLED(10, "match-cancelled", MessageClass.CONTROL),
+    USER_JOINED_MATCH(12, "user-joined-match", MessageClass.CONTROL),
+    JOIN_REFUSED(13, "join-refused", MessageClass.CONTROL),
+    RESUME_TOKEN(14, "resume-token", MessageClass.CONTROL),
+    SESSION_RESUMED(15, "session-resumed", MessageClass.CONTROL);
+
+    private static final FrameType[] BY_CODE = new FrameType[256];
+
+    /** values() copies the array on every call, the lookups of every frame go through these tables */
+    private static final Map<String, FrameType> BY_KEY = new HashMap<>();
+
+    static {
+        for (FrameType type : values()) {
+            BY_CODE[type.code] = type;
+            BY_KEY.put(type.key, type);
+        }
+    }
+
+    private final int code;
+
+    private final String key;
+
+    private final MessageClass messageClass;
+
+    FrameType(int code, String key, MessageClass messageClass) {
+        this.code = code;
+        this.key = key;
+        this.messageClass = messageClass;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public MessageClass messageClass() {
+        return messageClass;
+    }
+
+    /**
+     * @return the type with the given binary code, null if unknown
+     */
+    public static FrameType fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    /**
+     * @return the type with the given JSON "type" field, null if unknown
+     */
+    public static FrameType fromKey(String key) {
+        return key != null ? BY_KEY.get(key) : null;
+    }
+}
@@ -0,0 +1,193 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A signaling or chat frame routed from one user to the others, JSON and binary clients alike.
+ *
+ * It keeps the form its sender used and builds the other one at most once, when the first recipient
+ * speaking the other protocol needs it: a frame between two JSON clients is still the inbound TextMessage,
+ * a frame between two binary clients is never turned into JSON. Both forms are immutable and shared by
+ * every recipient. As a WebSocketMessage its payload is the JSON form.
+ *
+ * A binary body, and the text of a chat frame, must be a single JSON object, which is checked when the frame
+ * is built: chat frames may be coalesced into one chat-batch frame, a broken one would break the whole
+ * batch for its recipient. The routing fields of the
+ * JSON form are always the server's: "type" and "from" keys of the body are dropped when it is converted.
+ */
+public final class PeerFrame implements WebSocketMessage<String> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final FrameType type;
+
+    private final String fromUserId;
+
+    /** Set if the sender was a binary client, the body is then the form the frame arrived in */
+    private final boolean binary;
+
+    /** JSON form, given or built on first use. Racing builders produce equal messages. */
+    private volatile TextMessage text;
+
+    /** Binary body, given or built on first use, read only through duplicates */
+    private volatile ByteBuffer body;
+
+    private PeerFrame(FrameType type, String fromUserId, TextMessage text, ByteBuffer body) {
+        this.type = type;
+        this.fromUserId = fromUserId;
+        this.text = text;
+        this.body = body;
+        this.binary = body != null;
+    }
+
+    /**
+     * @param text the frame as a JSON client sent it
+     */
+    public static PeerFrame fromText(FrameType type, String fromUserId, TextMessage text) {
+        return new PeerFrame(type, fromUserId, text, null);
+    }
+
+    /**
+     * @param text the frame as a JSON client sent it, the routing fields may have been the only ones read
+     * @throws JsonProcessingException if the text is not a single JSON object
+     */
+    public static PeerFrame fromCheckedText(FrameType type, String fromUserId, TextMessage text)
+            throws JsonProcessingException {
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(text.getPayload())) {
+            requireJsonObject(parser, false);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            // Reading a String only fails on its content
+            throw new IllegalStateException(e);
+        }
+        return fromText(type, fromUserId, text);
+    }
+
+    /**
+     * @param body body of the binary frame, copied: the container reuses its buffer once the handler returns
+     * @throws IllegalArgumentException if the body is neither empty nor a single JSON object
+     */
+    public static PeerFrame fromBinary(FrameType type, String fromUserId, ByteBuffer body) {
+        byte[] copy = new byte[body.remaining()];
+        body.duplicate().get(copy);
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(copy)) {
+            requireJsonObject(parser, true);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Frame body is not valid JSON: " + e.getMessage(), e);
+        }
+        return new PeerFrame(type, fromUserId, null, ByteBuffer.wrap(copy).asReadOnlyBuffer());
+    }
+
+    /**
+     * Walks the tokens without building a tree, a frame is checked once whatever its recipients.
+     * @param emptyAllowed accept input without any token
+     */
+    private static void requireJsonObject(JsonParser parser, boolean emptyAllowed) throws IOException {
+        JsonToken first = parser.nextToken();
+        if (first == null && emptyAllowed) {
+            return;
+        }
+        if (first != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Frame is not a JSON object");
+        }
+        parser.skipChildren();
+        if (parser.nextToken() != null) {
+            throw new JsonParseException(parser, "Frame has content after its JSON object");
+        }
+    }
+
+    public FrameType type() {
+        return type;
+    }
+
+    public String fromUserId() {
+        return fromUserId;
+    }
+
+    /**
+     * @return true if the sender was a binary client, false for a JSON client
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return the JSON form. A binary body is converted to {"type":"offer","from":"...", + its other fields}
+     */
+    public TextMessage textMessage() {
+        TextMessage current = text;
+        if (current == null) {
+            ObjectNode json = OBJECT_MAPPER.createObjectNode();
+            json.put("type", type.key());
+            json.put("from", fromUserId);
+            try {
+                JsonNode fields = body.hasRemaining() ? OBJECT_MAPPER.readTree(bodyBytes()) : null;
+                if (fields != null && fields.isObject()) {
+                    fields.fields().forEachRemaining(field -> json.putIfAbsent(field.getKey(), field.getValue()));
+                }
+                current = new TextMessage(OBJECT_MAPPER.writeValueAsString(json));
+            } catch (IOException e) {
+                // Checked by fromBinary, a body that gets here always parses
+                throw new IllegalStateException("Cannot convert frame body to JSON", e);
+            }
+            text = current;
+        }
+        return current;
+    }
+
+    private byte[] bodyBytes() {
+        ByteBuffer view = body.duplicate();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the binary body, a read only view positioned at its start
+     */
+    public ByteBuffer body() {
+        ByteBuffer current = body;
+        if (current == null) {
+            current = StandardCharsets.UTF_8.encode(text.getPayload()).asReadOnlyBuffer();
+            body = current;
+        }
+        return current.duplicate();
+    }
+
+    @Override
+    public String getPayload() {
+        return textMessage().getPayload();
+    }
+
+    /**
+     * @return size of the form the frame arrived in, the other form is close to it
+     */
+    @Override
+    public int getPayloadLength() {
+        TextMessage current = text;
+        return current != null ? current.getPayload().length() : body.remaining();
+    }
+
+    @Override
+    public boolean isLast() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "PeerFrame[type=" + type.key() + ", from=" + fromUserId + "]";
+    }
+}
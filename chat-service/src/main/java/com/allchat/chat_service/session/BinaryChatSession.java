@@ -0,0 +1,172 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.protocol.BinaryFrameCodec;
+import com.allchat.chat_service.protocol.FrameType;
+import com.allchat.chat_service.protocol.PeerFrame;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session of a client speaking the binary protocol ({@link BinaryFrameCodec}), in front of its send pipeline.
+ *
+ * Encodes every frame for this client before it is buffered: a {@link PeerFrame} gets the header with the
+ * sender's handle in this session, the server's JSON control messages are translated (they are rare, once
+ * per match or chat end). Handles are given out when a match is found or the session is resumed and stay valid
+ * until the next one, a user seen without a handle (e.g. a frame of the previous group still in flight) gets a new one.
+ */
+public class BinaryChatSession implements ChatSession {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryChatSession.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final ByteBuffer EMPTY_BODY = ByteBuffer.allocate(0);
+
+    private final ChatSession delegate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Handle of every peer known to this session, guarded by lock */
+    private final Map<String, Integer> handles = new HashMap<>();
+
+    /** User ID of every handle, index 0 is unused, guarded by lock */
+    private String[] userIds = new String[8];
+
+    /** Next handle to give out, guarded by lock */
+    private int nextHandle = 1;
+
+    public BinaryChatSession(ChatSession delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    /**
+     * @return the user a client's peer handle stands for, null if this session never gave it out
+     */
+    public String userIdFor(int handle) {
+        lock.lock();
+        try {
+            return handle > 0 && handle < nextHandle ? userIds[handle] : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+        BinaryMessage encoded;
+        try {
+            encoded = encode(message);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Cannot encode frame for binary session - Session ID: {}, Frame: {}, Error: {}",
+                getId(), message, e.getMessage());
+            return false;
+        }
+        return encoded != null && delegate.send(encoded, messageClass, receivedAt);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        delegate.close(status);
+    }
+
+    @Override
+    public void discard() {
+        delegate.discard();
+    }
+
+    private BinaryMessage encode(WebSocketMessage<?> message) throws IOException {
+        if (message instanceof BinaryMessage binaryMessage) {
+            return binaryMessage;
+        }
+        if (message instanceof PeerFrame peerFrame) {
+            return BinaryFrameCodec.encode(peerFrame.type(), handleFor(peerFrame.fromUserId()), peerFrame.body());
+        }
+        if (message instanceof TextMessage textMessage) {
+            return encodeControl(textMessage);
+        }
+        throw new IllegalArgumentException("Unsupported message " + message.getClass().getSimpleName());
+    }
+
+    /**
+     * Translates a control message of {@link com.allchat.chat_service.protocol.ControlMessageEncoder}.
+     */
+    private BinaryMessage encodeControl(TextMessage message) throws IOException {
+        JsonNode node = OBJECT_MAPPER.readTree(message.getPayload());
+        FrameType type = FrameType.fromKey(node.path("type").asText(null));
+        if (type == FrameType.MATCH_FOUND || type == FrameType.SESSION_RESUMED) {
+            Map<String, Integer> groupHandles = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                handles.clear();
+                nextHandle = 1;
+                for (JsonNode user : node.path("users")) {
+                    String userId = user.asText();
+                    groupHandles.put(userId, handleFor(userId));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return BinaryFrameCodec.encode(type, BinaryFrameCodec.NO_PEER, BinaryFrameCodec.matchFoundBody(groupHandles));
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown control message type");
+        }
+        if (type == FrameType.RESUME_TOKEN) {
+            return BinaryFrameCodec.encode(type, BinaryFrameCodec.NO_PEER,
+                ByteBuffer.wrap(node.path("token").asText().getBytes(StandardCharsets.US_ASCII)));
+        }
+        String userId = node.path("userId").asText(null);
+        int peer = userId != null ? handleFor(userId) : BinaryFrameCodec.NO_PEER;
+        return BinaryFrameCodec.encode(type, peer, EMPTY_BODY);
+    }
+
+    private int handleFor(String userId) {
+        lock.lock();
+        try {
+            Integer handle = handles.get(userId);
+            if (handle != null) {
+                return handle;
+            }
+            if (nextHandle > BinaryFrameCodec.MAX_PEER_HANDLE) {
+                // 65535 peers without a match in between, start over
+                handles.clear();
+                nextHandle = 1;
+            }
+            int assigned = nextHandle++;
+            if (assigned >= userIds.length) {
+                String[] grown = new String[Math.min(userIds.length * 2, BinaryFrameCodec.MAX_PEER_HANDLE + 1)];
+                System.arraycopy(userIds, 0, grown, 0, userIds.length);
+                userIds = grown;
+            }
+            userIds[assigned] = userId;
+            handles.put(userId, assigned);
+            return assigned;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
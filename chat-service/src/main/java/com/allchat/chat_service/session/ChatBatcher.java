@@ -0,0 +1,123 @@
+package com.allchat.chat_service.session;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in coalescing of chat messages: a JSON session wrapped here collects the chat messages it is sent
+ * for a short window and sends them as one chat-batch frame, {"type":"chat-batch","messages":[...]}.
+ * A fan-out of bursts then costs one frame per recipient and window instead of one per message.
+ *
+ * Settings under chat.batching:
+ * - enabled: wrap JSON sessions, off by default: clients must understand chat-batch frames
+ * - window-ms: time the first message of a batch may wait for others
+ * - max-messages, max-size: a batch reaching either is sent at once, max-size in payload characters
+ *
+ * Signaling and control frames are never held back, they are sent at once after the pending batch so
+ * a session's frames keep their order. A batch of a single message is sent as that message.
+ * Binary clients are not batched.
+ *
+ * Meters: chat.batch.flushes{trigger} counts the batches sent by what sent them (size, time, or order when a
+ * frame of another class pushed them out), chat.batch.messages is the number of messages per batch.
+ * chat.relay.forward.latency of class chat includes the wait in the batch, timed from its oldest message.
+ */
+@Component
+public class ChatBatcher {
+
+    /** Why a batch was sent */
+    enum Trigger {
+        SIZE, TIME, ORDER
+    }
+
+    private final boolean enabled;
+
+    private final long windowNanos;
+
+    private final int maxMessages;
+
+    private final int maxSize;
+
+    /** Sends batches whose window ran out, only hands them to their session's send pipeline */
+    private final ScheduledExecutorService flushScheduler;
+
+    private final LongAdder[] flushes = new LongAdder[Trigger.values().length];
+
+    private final DistributionSummary batchMessages;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the batching meters are published to
+     * @param enabled Coalesce the chat messages of JSON sessions
+     * @param windowMs Time the first message of a batch may wait for others
+     * @param maxMessages Messages that send a batch at once
+     * @param maxSize Payload characters that send a batch at once
+     */
+    public ChatBatcher(MeterRegistry meterRegistry,
+                       @Value("${chat.batching.enabled:false}") boolean enabled,
+                       @Value("${chat.batching.window-ms:10}") long windowMs,
+                       @Value("${chat.batching.max-messages:32}") int maxMessages,
+                       @Value("${chat.batching.max-size:16384}") int maxSize) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxMessages = maxMessages;
+        this.maxSize = maxSize;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-batch-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (Trigger trigger : Trigger.values()) {
+            flushes[trigger.ordinal()] = new LongAdder();
+            FunctionCounter.builder("chat.batch.flushes", flushes[trigger.ordinal()], LongAdder::sum)
+                    .description("Chat batches sent, by what sent them")
+                    .tag("trigger", trigger.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        this.batchMessages = DistributionSummary.builder("chat.batch.messages")
+                .description("Chat messages per batch sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the session coalescing its chat messages, the session itself if batching is disabled
+     */
+    public ChatSession wrap(ChatSession session) {
+        return enabled ? new CoalescingChatSession(session, this) : session;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+    }
+
+    int getMaxMessages() {
+        return maxMessages;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sends the session's batch once the window of its first message ran out, unless it was sent before.
+     */
+    void scheduleFlush(CoalescingChatSession session, long batch) {
+        flushScheduler.schedule(() -> session.flushExpired(batch), windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void flushed(Trigger trigger, int messages) {
+        flushes[trigger.ordinal()].increment();
+        batchMessages.record(messages);
+    }
+}
@@ -0,0 +1,38 @@
+package com.allchat.chat_service.session;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * Send side of a connected chat user, independent of the WebSocket engine.
+ *
+ * {@link OutboundSession} serves the servlet engine, {@link ReactiveOutboundSession} the reactive one.
+ * Frames are always TextMessages, which only hold the payload and are shared by every recipient.
+ */
+public interface ChatSession {
+
+    String getId();
+
+    boolean isOpen();
+
+    /**
+     * Buffers the frame for asynchronous delivery. Never blocks on the network.
+     * @param receivedAt System.nanoTime() when a forwarded frame was received, 0 for server messages
+     * @return false if the frame was rejected because the session is closed or was disconnected
+     */
+    boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt);
+
+    default boolean send(WebSocketMessage<?> message, MessageClass messageClass) {
+        return send(message, messageClass, 0);
+    }
+
+    /**
+     * Closes the underlying connection, what is still buffered is dropped.
+     */
+    void close(CloseStatus status);
+
+    /**
+     * Drops everything still buffered, called once the underlying session is closed.
+     */
+    void discard();
+}
@@ -0,0 +1,153 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.protocol.ControlMessageEncoder;
+import com.allchat.chat_service.protocol.PeerFrame;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session of a JSON client in front of its send pipeline, coalescing chat messages into chat-batch frames
+ * (see {@link ChatBatcher}).
+ *
+ * Batches are handed to the send pipeline under the lock, so a batch sent by the flush timer and a frame
+ * sent by a WebSocket thread cannot overtake each other. The send pipeline only buffers, nothing blocks.
+ */
+public class CoalescingChatSession implements ChatSession {
+
+    private final ChatSession delegate;
+
+    private final ChatBatcher batcher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Chat messages of the current batch, guarded by lock */
+    private final List<TextMessage> pending = new ArrayList<>();
+
+    /** Payload characters in pending, guarded by lock */
+    private int pendingSize;
+
+    /** receivedAt of the oldest forwarded message in pending, 0 if none, guarded by lock */
+    private long oldestReceivedAt;
+
+    /** Number of the current batch, a flush scheduled for an earlier one does nothing, guarded by lock */
+    private long batch;
+
+    /** Set once the session is closed or discarded, guarded by lock */
+    private boolean closed;
+
+    CoalescingChatSession(ChatSession delegate, ChatBatcher batcher) {
+        this.delegate = delegate;
+        this.batcher = batcher;
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            TextMessage text = chatText(message, messageClass);
+            if (text == null) {
+                return flush(ChatBatcher.Trigger.ORDER) && delegate.send(message, messageClass, receivedAt);
+            }
+            if (pending.isEmpty()) {
+                batcher.scheduleFlush(this, batch);
+            }
+            pending.add(text);
+            pendingSize += text.getPayload().length();
+            if (oldestReceivedAt == 0) {
+                oldestReceivedAt = receivedAt;
+            }
+            if (pending.size() >= batcher.getMaxMessages() || pendingSize >= batcher.getMaxSize()) {
+                return flush(ChatBatcher.Trigger.SIZE);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        clear();
+        delegate.close(status);
+    }
+
+    @Override
+    public void discard() {
+        clear();
+        delegate.discard();
+    }
+
+    /**
+     * Sends the batch the flush timer was scheduled for, if it is still pending.
+     */
+    void flushExpired(long expiredBatch) {
+        lock.lock();
+        try {
+            if (!closed && expiredBatch == batch) {
+                flush(ChatBatcher.Trigger.TIME);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     * @return false if the send pipeline disconnected the session
+     */
+    private boolean flush(ChatBatcher.Trigger trigger) {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        TextMessage message = pending.size() == 1 ? pending.get(0) : ControlMessageEncoder.chatBatch(pending);
+        long receivedAt = oldestReceivedAt;
+        batcher.flushed(trigger, pending.size());
+        pending.clear();
+        pendingSize = 0;
+        oldestReceivedAt = 0;
+        batch++;
+        return delegate.send(message, MessageClass.CHAT, receivedAt);
+    }
+
+    private void clear() {
+        lock.lock();
+        try {
+            closed = true;
+            pending.clear();
+            pendingSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the JSON form of a chat message, null for frames that are not batched
+     */
+    private static TextMessage chatText(WebSocketMessage<?> message, MessageClass messageClass) {
+        if (messageClass != MessageClass.CHAT) {
+            return null;
+        }
+        if (message instanceof PeerFrame peerFrame) {
+            return peerFrame.textMessage();
+        }
+        return message instanceof TextMessage textMessage ? textMessage : null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.admission.TokenBucket;
+import com.allchat.chat_service.protocol.BinaryFrameCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Limits what a single client may send: frame size and per-class message rates.
+ *
+ * Limits are configured under chat.inbound:
+ * - max-text-frame-size: largest text or binary frame accepted, also set on the WebSocket container. At most
+ *   {@link BinaryFrameCodec#MAX_BODY_LENGTH}, a JSON frame forwarded to a binary client is the body of its frame
+ * - signaling/chat/control-per-second and -burst: rate budget of each {@link MessageClass}
+ * - teardown-per-second and -burst: budget of end-chat and cancel-match, apart from the control budget so
+ *   join or unknown frames cannot use it up and leave a client unable to leave its match
+ * - violations-per-second / max-violations: throttled frames tolerated before the session is closed
+ */
+@Component
+public class InboundGuard {
+
+    private final int maxTextFrameSize;
+
+    private final double[] permitsPerSecond = new double[MessageClass.values().length];
+
+    private final int[] bursts = new int[MessageClass.values().length];
+
+    private final double teardownPerSecond;
+
+    private final int teardownBurst;
+
+    private final double violationsPerSecond;
+
+    private final int maxViolations;
+
+    /** Indexed by MessageClass.ordinal() */
+    private final Counter[] throttled = new Counter[MessageClass.values().length];
+
+    private final Counter throttledTeardown;
+
+    private final Counter oversized;
+
+    private final Counter abusiveDisconnects;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the inbound limit counters are published to
+     * @param maxTextFrameSize Largest text frame accepted, in bytes, at most {@link BinaryFrameCodec#MAX_BODY_LENGTH}
+     * @param signalingPerSecond Sustained rate of offer/answer/ice-candidate frames
+     * @param signalingBurst Signaling frames accepted at once (ICE gathering sends many candidates quickly)
+     * @param chatPerSecond Sustained rate of chat frames
+     * @param chatBurst Chat frames accepted at once
+     * @param controlPerSecond Sustained rate of looking-for-match, join-group and unknown frames
+     * @param controlBurst Control frames accepted at once
+     * @param teardownPerSecond Sustained rate of end-chat and cancel-match frames
+     * @param teardownBurst Teardown frames accepted at once
+     * @param violationsPerSecond Rate at which throttled frames are forgiven
+     * @param maxViolations Throttled frames tolerated at once before the session is closed
+     */
+    public InboundGuard(MeterRegistry meterRegistry,
+                        @Value("${chat.inbound.max-text-frame-size:65535}") int maxTextFrameSize,
+                        @Value("${chat.inbound.signaling-per-second:50}") double signalingPerSecond,
+                        @Value("${chat.inbound.signaling-burst:200}") int signalingBurst,
+                        @Value("${chat.inbound.chat-per-second:10}") double chatPerSecond,
+                        @Value("${chat.inbound.chat-burst:30}") int chatBurst,
+                        @Value("${chat.inbound.control-per-second:1}") double controlPerSecond,
+                        @Value("${chat.inbound.control-burst:10}") int controlBurst,
+                        @Value("${chat.inbound.teardown-per-second:5}") double teardownPerSecond,
+                        @Value("${chat.inbound.teardown-burst:20}") int teardownBurst,
+                        @Value("${chat.inbound.violations-per-second:1}") double violationsPerSecond,
+                        @Value("${chat.inbound.max-violations:50}") int maxViolations) {
+        if (maxTextFrameSize > BinaryFrameCodec.MAX_BODY_LENGTH) {
+            throw new IllegalArgumentException("chat.inbound.max-text-frame-size must be at most "
+                    + BinaryFrameCodec.MAX_BODY_LENGTH + ", the body limit of binary frames: " + maxTextFrameSize);
+        }
+        this.maxTextFrameSize = maxTextFrameSize;
+        permitsPerSecond[MessageClass.SIGNALING.ordinal()] = signalingPerSecond;
+        bursts[MessageClass.SIGNALING.ordinal()] = signalingBurst;
+        permitsPerSecond[MessageClass.CHAT.ordinal()] = chatPerSecond;
+        bursts[MessageClass.CHAT.ordinal()] = chatBurst;
+        permitsPerSecond[MessageClass.CONTROL.ordinal()] = controlPerSecond;
+        bursts[MessageClass.CONTROL.ordinal()] = controlBurst;
+        this.teardownPerSecond = teardownPerSecond;
+        this.teardownBurst = teardownBurst;
+        this.violationsPerSecond = violationsPerSecond;
+        this.maxViolations = maxViolations;
+
+        for (MessageClass messageClass : MessageClass.values()) {
+            throttled[messageClass.ordinal()] = Counter.builder("chat.inbound.throttled")
+                    .description("Inbound frames dropped because the session exceeded its rate budget")
+                    .tag("class", messageClass.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        this.throttledTeardown = Counter.builder("chat.inbound.throttled")
+                .description("Inbound frames dropped because the session exceeded its rate budget")
+                .tag("class", "teardown")
+                .register(meterRegistry);
+        this.oversized = Counter.builder("chat.inbound.oversized")
+                .description("Sessions closed for sending a text frame over the size limit")
+                .register(meterRegistry);
+        this.abusiveDisconnects = Counter.builder("chat.inbound.abusive.disconnects")
+                .description("Sessions closed for exceeding their rate budget repeatedly")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the rate budgets of a newly established session.
+     */
+    public InboundLimiter newLimiter() {
+        TokenBucket[] budgets = new TokenBucket[MessageClass.values().length];
+        for (int i = 0; i < budgets.length; i++) {
+            budgets[i] = new TokenBucket(permitsPerSecond[i], bursts[i]);
+        }
+        return new InboundLimiter(budgets, new TokenBucket(teardownPerSecond, teardownBurst),
+                new TokenBucket(violationsPerSecond, maxViolations));
+    }
+
+    public int getMaxTextFrameSize() {
+        return maxTextFrameSize;
+    }
+
+    /**
+     * Size of a text frame on the wire, counted over the chars instead of encoding them
+     * (TextMessage.getPayloadLength() encodes the whole payload to count it).
+     * @return UTF-8 length of the text in bytes
+     */
+    public static int utf8Length(String text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // 4 bytes for the pair
+                bytes += 2;
+                i++;
+            } else {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    public void throttled(MessageClass messageClass) {
+        throttled[messageClass.ordinal()].increment();
+    }
+
+    public void throttledTeardown() {
+        throttledTeardown.increment();
+    }
+
+    public void oversized() {
+        oversized.increment();
+    }
+
+    public void abusiveDisconnected() {
+        abusiveDisconnects.increment();
+    }
+}
@@ -0,0 +1,56 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.admission.TokenBucket;
+
+/**
+ * Inbound rate budgets of one WebSocket session, one token bucket per {@link MessageClass} and one for the
+ * frames leaving a match (end-chat, cancel-match), which must get through however many other control
+ * frames the client sent.
+ *
+ * A frame over its budget is throttled (dropped) and takes a token from the violation bucket.
+ * A session that keeps flooding until the violation bucket is empty is to be closed.
+ * Checking a frame is a few CAS operations and never allocates.
+ */
+public class InboundLimiter {
+
+    /** Attribute of the WebSocket session holding its limiter */
+    public static final String ATTRIBUTE = InboundLimiter.class.getName();
+
+    public enum Verdict {
+        ACCEPT,
+        THROTTLE,
+        CLOSE
+    }
+
+    /** Indexed by MessageClass.ordinal() */
+    private final TokenBucket[] budgets;
+
+    private final TokenBucket teardown;
+
+    private final TokenBucket violations;
+
+    InboundLimiter(TokenBucket[] budgets, TokenBucket teardown, TokenBucket violations) {
+        this.budgets = budgets;
+        this.teardown = teardown;
+        this.violations = violations;
+    }
+
+    public Verdict check(MessageClass messageClass) {
+        return check(budgets[messageClass.ordinal()]);
+    }
+
+    /**
+     * Checks an end-chat or cancel-match frame against the teardown budget.
+     */
+    public Verdict checkTeardown() {
+        return check(teardown);
+    }
+
+    private Verdict check(TokenBucket budget) {
+        long now = System.nanoTime();
+        if (budget.tryAcquire(now) == 0) {
+            return Verdict.ACCEPT;
+        }
+        return violations.tryAcquire(now) == 0 ? Verdict.THROTTLE : Verdict.CLOSE;
+    }
+}
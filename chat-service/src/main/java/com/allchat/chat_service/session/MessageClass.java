@@ -0,0 +1,25 @@
+package com.allchat.chat_service.session;
+
+/**
+ * Kind of a frame. Outbound, it decides what may be dropped when a session's send buffer overflows.
+ * Inbound, every class has its own rate budget, see {@link InboundLimiter}.
+ */
+public enum MessageClass {
+
+    /**
+     * Server notifications (match-found, end-chat, user-left-match, match-cancelled), never dropped.
+     * Inbound: matchmaking control frames (looking-for-match, join-group, cancel-match, end-chat). cancel-match
+     * and end-chat are checked against a teardown budget of their own, see {@link InboundLimiter}
+     */
+    CONTROL,
+
+    /** WebRTC offer/answer/ice-candidate relayed between peers, never dropped */
+    SIGNALING,
+
+    /** Chat messages relayed between peers, oldest are dropped first on overflow */
+    CHAT;
+
+    public boolean droppable() {
+        return this == CHAT;
+    }
+}
@@ -0,0 +1,196 @@
+package com.allchat.chat_service.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Send pipeline in front of a single WebSocketSession.
+ *
+ * send() only buffers the frame and returns, frames are written by the sender executor of
+ * {@link OutboundSessionManager}, one drain at a time per session so WebSocketSession.sendMessage
+ * is never called concurrently and frames keep their order.
+ *
+ * The buffer is bounded in bytes and handled according to the session's {@link OverflowPolicy} (see {@link SendBuffer}).
+ * A client whose in-flight send takes longer than the send time limit is disconnected as a slow consumer.
+ *
+ * State is guarded by a ReentrantLock rather than a monitor, so a virtual thread waiting for it
+ * does not pin its carrier thread.
+ */
+public class OutboundSession implements ChatSession {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundSession.class);
+
+    /** Frames written per drain before the sender thread is handed to the next session */
+    private static final int MAX_FRAMES_PER_DRAIN = 64;
+
+    private final WebSocketSession delegate;
+
+    private final OutboundSessionManager manager;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Buffered frames, guarded by lock */
+    private final SendBuffer buffer;
+
+    /** True while a drain is scheduled or running, guarded by lock */
+    private boolean draining;
+
+    /** Set once the session is closed or discarded, guarded by lock */
+    private boolean closed;
+
+    /** Set once discard() released the session from the manager's count, guarded by lock */
+    private boolean released;
+
+    /** System.nanoTime() when the in-flight send started, 0 when idle */
+    private volatile long sendStartedAt;
+
+    OutboundSession(WebSocketSession delegate, OutboundSessionManager manager, OverflowPolicy overflowPolicy) {
+        this.delegate = delegate;
+        this.manager = manager;
+        this.buffer = new SendBuffer(manager, overflowPolicy);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    public WebSocketSession getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+        CloseStatus disconnect = null;
+        boolean schedule = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (isSendTimeLimitExceeded()) {
+                disconnect = CloseStatus.SESSION_NOT_RELIABLE;
+                manager.slowConsumerDisconnected();
+            } else if (!buffer.add(message, messageClass, receivedAt)) {
+                disconnect = CloseStatus.SESSION_NOT_RELIABLE;
+            } else if (!draining) {
+                draining = true;
+                schedule = true;
+            }
+            if (disconnect != null) {
+                discardBuffer();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (disconnect != null) {
+            disconnect(disconnect);
+            return false;
+        }
+        if (schedule) {
+            manager.execute(this::drain);
+        }
+        return true;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        lock.lock();
+        try {
+            discardBuffer();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            delegate.close(status);
+        } catch (IOException e) {
+            log.debug("Error closing session - Session ID: {}, Error: {}", delegate.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void discard() {
+        lock.lock();
+        try {
+            discardBuffer();
+            if (!released) {
+                released = true;
+                manager.sessionClosed();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes buffered frames until the buffer is empty or this drain used up its share.
+     */
+    private void drain() {
+        for (int sent = 0; sent < MAX_FRAMES_PER_DRAIN; sent++) {
+            SendBuffer.Outbound next;
+            lock.lock();
+            try {
+                next = buffer.poll();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            sendStartedAt = System.nanoTime();
+            try {
+                delegate.sendMessage(next.message());
+            } catch (IOException | RuntimeException e) {
+                manager.sendFailed();
+                log.warn("Failed to send message - Session ID: {}, Error: {}", delegate.getId(), e.getMessage());
+                lock.lock();
+                try {
+                    discardBuffer();
+                    draining = false;
+                } finally {
+                    lock.unlock();
+                }
+                disconnect(CloseStatus.SERVER_ERROR);
+                return;
+            } finally {
+                sendStartedAt = 0;
+            }
+            manager.sent(next.messageClass(), next.size(), next.receivedAt());
+        }
+        manager.execute(this::drain);
+    }
+
+    private boolean isSendTimeLimitExceeded() {
+        long startedAt = sendStartedAt;
+        return startedAt != 0 && System.nanoTime() - startedAt > manager.getSendTimeLimitNanos();
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void discardBuffer() {
+        closed = true;
+        buffer.clear();
+    }
+
+    private void disconnect(CloseStatus status) {
+        log.warn("Closing slow or failed session - Session ID: {}, Status: {}", delegate.getId(), status);
+        try {
+            delegate.close(status);
+        } catch (IOException e) {
+            log.debug("Error closing session - Session ID: {}, Error: {}", delegate.getId(), e.getMessage());
+        }
+    }
+}
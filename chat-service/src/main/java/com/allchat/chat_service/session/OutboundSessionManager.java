@@ -0,0 +1,221 @@
+package com.allchat.chat_service.session;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates the {@link OutboundSession} send pipeline for every WebSocket session and owns
+ * the sender threads that write buffered frames to the network. Sessions of the reactive engine
+ * get a {@link ReactiveOutboundSession} instead, sharing the limits and meters.
+ *
+ * Limits are configured under chat.outbound:
+ * - buffer-size-limit: bytes a session may have buffered before its overflow policy applies
+ * - send-time-limit-ms: time a single send may take before the client is treated as a slow consumer
+ * - overflow-policy: DROP_OLDEST_CHAT or DISCONNECT
+ * - sender-threads: size of the sender pool, unused with virtual threads
+ *
+ * With spring.threads.virtual.enabled Tomcat runs WebSocket message handling on virtual threads and every
+ * drain gets its own virtual thread, so a blocked sendMessage no longer holds a platform thread.
+ * Frames of a session keep their order either way: only one drain per session runs at a time.
+ *
+ * Per frame meters are FunctionCounters over LongAdders held here (indexed by MessageClass.ordinal()),
+ * so counting a frame is an uncontended add and never looks a meter up in the registry.
+ */
+@Component
+public class OutboundSessionManager {
+
+    private final ExecutorService senderExecutor;
+
+    private final int bufferSizeLimit;
+
+    private final long sendTimeLimitNanos;
+
+    private final OverflowPolicy overflowPolicy;
+
+    /** Frames buffered over all sessions */
+    private final LongAdder queueDepth = new LongAdder();
+
+    /** Sessions opened and not discarded yet */
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    private final LongAdder[] dropped = newAdders();
+
+    /** Frames written to the network */
+    private final LongAdder[] framesOut = newAdders();
+
+    /** Payload bytes written to the network */
+    private final LongAdder[] bytesOut = newAdders();
+
+    /** Time from receiving a forwarded frame to its sendMessage completing */
+    private final Timer[] forwardLatency = new Timer[MessageClass.values().length];
+
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+
+    private final LongAdder sendFailures = new LongAdder();
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the send pipeline metrics are published to
+     * @param bufferSizeLimit Bytes a session may buffer before the overflow policy applies
+     * @param sendTimeLimitMs Time a single send may take before the client is disconnected
+     * @param overflowPolicy What to do when a session's buffer is full
+     * @param senderThreads Number of threads writing frames to the network
+     * @param virtualThreads Write frames on virtual threads instead of the sender pool
+     */
+    public OutboundSessionManager(MeterRegistry meterRegistry,
+                                  @Value("${chat.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+                                  @Value("${chat.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                                  @Value("${chat.outbound.overflow-policy:DROP_OLDEST_CHAT}") OverflowPolicy overflowPolicy,
+                                  @Value("${chat.outbound.sender-threads:32}") int senderThreads,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.overflowPolicy = overflowPolicy;
+        if (virtualThreads) {
+            this.senderExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-sender-", 0).factory());
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.senderExecutor = Executors.newFixedThreadPool(senderThreads, runnable -> {
+                Thread thread = new Thread(runnable, "chat-sender-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        Gauge.builder("chat.outbound.queue.depth", queueDepth, LongAdder::sum)
+                .description("Frames buffered for delivery over all sessions")
+                .register(meterRegistry);
+        Gauge.builder("chat.sessions.active", activeSessions, AtomicInteger::get)
+                .description("Open WebSocket sessions on this node")
+                .register(meterRegistry);
+        for (MessageClass messageClass : MessageClass.values()) {
+            String tag = messageClass.name().toLowerCase(Locale.ROOT);
+            int index = messageClass.ordinal();
+            FunctionCounter.builder("chat.outbound.dropped", dropped[index], LongAdder::sum)
+                    .description("Frames dropped because a session's send buffer overflowed")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("chat.frames.out", framesOut[index], LongAdder::sum)
+                    .description("Frames written to WebSocket sessions")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("chat.frames.out.bytes", bytesOut[index], LongAdder::sum)
+                    .description("Payload bytes written to WebSocket sessions")
+                    .baseUnit("bytes")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            if (messageClass != MessageClass.CONTROL) {
+                forwardLatency[index] = Timer.builder("chat.relay.forward.latency")
+                        .description("Time from receiving a frame to sending it to its recipient")
+                        .tag("class", tag)
+                        .publishPercentiles(0.5, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            }
+        }
+        FunctionCounter.builder("chat.outbound.slow-consumer.disconnects", slowConsumerDisconnects, LongAdder::sum)
+                .description("Sessions closed because they could not keep up with their frames")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.outbound.send.failures", sendFailures, LongAdder::sum)
+                .description("Frames that failed to be written to the network")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wraps a newly established session in its send pipeline.
+     */
+    public OutboundSession open(WebSocketSession session) {
+        activeSessions.incrementAndGet();
+        return new OutboundSession(session, this, overflowPolicy);
+    }
+
+    /**
+     * Wraps a newly established session of the reactive engine in its send pipeline.
+     * Its frames are written by Netty, the sender executor is not used.
+     */
+    public ReactiveOutboundSession open(org.springframework.web.reactive.socket.WebSocketSession session) {
+        activeSessions.incrementAndGet();
+        return new ReactiveOutboundSession(session, this, overflowPolicy);
+    }
+
+    /**
+     * @return sessions opened and not discarded yet
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * @return frames buffered for delivery over all sessions
+     */
+    public long getQueueDepth() {
+        return queueDepth.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senderExecutor.shutdown();
+    }
+
+    int getBufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    long getSendTimeLimitNanos() {
+        return sendTimeLimitNanos;
+    }
+
+    void execute(Runnable drain) {
+        senderExecutor.execute(drain);
+    }
+
+    void sessionClosed() {
+        activeSessions.decrementAndGet();
+    }
+
+    void buffered(int frames) {
+        queueDepth.add(frames);
+    }
+
+    void sent(MessageClass messageClass, int bytes, long receivedAt) {
+        int index = messageClass.ordinal();
+        framesOut[index].increment();
+        bytesOut[index].add(bytes);
+        if (receivedAt != 0 && forwardLatency[index] != null) {
+            forwardLatency[index].record(System.nanoTime() - receivedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void dropped(MessageClass messageClass) {
+        dropped[messageClass.ordinal()].increment();
+    }
+
+    void slowConsumerDisconnected() {
+        slowConsumerDisconnects.increment();
+    }
+
+    void sendFailed() {
+        sendFailures.increment();
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[MessageClass.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
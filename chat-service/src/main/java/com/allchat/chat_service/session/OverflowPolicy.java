@@ -0,0 +1,17 @@
+package com.allchat.chat_service.session;
+
+/**
+ * What an {@link OutboundSession} does once its send buffer is over the size limit.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Drop the oldest buffered chat messages until the buffer fits again.
+     * Control and signaling frames are never dropped, if they alone outgrow
+     * twice the limit the client cannot keep up and is disconnected.
+     */
+    DROP_OLDEST_CHAT,
+
+    /** Disconnect the client as soon as the buffer is over the limit */
+    DISCONNECT
+}
@@ -0,0 +1,185 @@
+package com.allchat.chat_service.session;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Stands in for the session of a user whose connection dropped, for the resume window of
+ * {@link SessionResumer}. Frames sent to the user are kept in a bounded ring, the oldest frame is dropped
+ * when it is full. A reconnect with the session's resume token gets the frames in order and every later
+ * frame sent here is passed on to the new session.
+ *
+ * The window ends exactly once, by a resume or by expiry, whichever settles the session first.
+ */
+public class ParkedSession implements ChatSession {
+
+    private final String id;
+
+    private final String resumeToken;
+
+    private final SessionResumer resumer;
+
+    /** Runs when the window ends without a resume */
+    private final Consumer<ParkedSession> onExpiry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Buffered frames in a ring, guarded by lock */
+    private final WebSocketMessage<?>[] messages;
+
+    /** Class of each buffered frame, guarded by lock */
+    private final MessageClass[] messageClasses;
+
+    /** Index of the oldest frame, guarded by lock */
+    private int head;
+
+    /** Frames in the ring, guarded by lock */
+    private int count;
+
+    /** Session of the resumed connection, frames are passed on to it once set, guarded by lock */
+    private ChatSession resumedTo;
+
+    /** Set once the window expired or the session was closed, guarded by lock */
+    private boolean closed;
+
+    /** Set by whichever of resume and expiry comes first */
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    /** Expiry task, set when the window starts */
+    private volatile ScheduledFuture<?> expiry;
+
+    ParkedSession(String id, String resumeToken, int capacity, SessionResumer resumer, Consumer<ParkedSession> onExpiry) {
+        this.id = id;
+        this.resumeToken = resumeToken;
+        this.resumer = resumer;
+        this.onExpiry = onExpiry;
+        this.messages = new WebSocketMessage<?>[capacity];
+        this.messageClasses = new MessageClass[capacity];
+    }
+
+    /**
+     * @return the ID of the session that dropped
+     */
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * A parked session takes frames until its window ends.
+     */
+    @Override
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+        lock.lock();
+        try {
+            if (resumedTo != null) {
+                // Under the lock, so it cannot overtake the frames handed over by resumeTo()
+                return resumedTo.send(message, messageClass, receivedAt);
+            }
+            if (closed) {
+                return false;
+            }
+            if (count == messages.length) {
+                head = (head + 1) % messages.length;
+                count--;
+                resumer.dropped(messageClass);
+            }
+            int tail = (head + count) % messages.length;
+            messages[tail] = message;
+            messageClasses[tail] = messageClass;
+            count++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the window at once, the user is cleaned up like on expiry.
+     */
+    @Override
+    public void close(CloseStatus status) {
+        resumer.expire(this);
+    }
+
+    @Override
+    public void discard() {
+        lock.lock();
+        try {
+            closed = true;
+            clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getResumeToken() {
+        return resumeToken;
+    }
+
+    Consumer<ParkedSession> getOnExpiry() {
+        return onExpiry;
+    }
+
+    void setExpiry(ScheduledFuture<?> expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * @return true for the first caller only, who ends the window
+     */
+    boolean settle() {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+        ScheduledFuture<?> current = expiry;
+        if (current != null) {
+            current.cancel(false);
+        }
+        return true;
+    }
+
+    /**
+     * Hands the buffered frames to the session of the resumed connection, oldest first.
+     * Frames buffered in the session's send pipeline count against its limits as usual.
+     */
+    public void resumeTo(ChatSession session) {
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % messages.length;
+                session.send(messages[index], messageClasses[index]);
+            }
+            clear();
+            resumedTo = session;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void clear() {
+        for (int i = 0; i < count; i++) {
+            messages[(head + i) % messages.length] = null;
+        }
+        head = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,199 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.compression.ChatTextFrame;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Send pipeline in front of a single reactive (Reactor Netty) WebSocketSession.
+ *
+ * send() only buffers the frame and returns. {@link #frames()} is the session's outbound Flux, handed to
+ * WebSocketSession.send once: frames leave the buffer only as Netty requests them, so a client that does
+ * not read stops the requests and its frames pile up in the {@link SendBuffer}, where the session's
+ * {@link OverflowPolicy} applies as with the servlet engine. No thread ever blocks on a send, the
+ * send time limit of the servlet engine has no counterpart here.
+ *
+ * Frames are emitted by whichever thread wins the drain: a sender calling send() or the Netty event loop
+ * requesting more. Only one drain runs at a time, so frames keep their order.
+ *
+ * On Reactor Netty frames are emitted as {@link ChatTextFrame}, carrying their class down to the
+ * permessage-deflate filter of the {@link com.allchat.chat_service.compression.CompressionPolicy}.
+ * Pings of the heartbeat are buffered as PingMessages and emitted as ping frames.
+ */
+public class ReactiveOutboundSession implements ChatSession {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveOutboundSession.class);
+
+    private final WebSocketSession delegate;
+
+    private final OutboundSessionManager manager;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Buffered frames, guarded by lock */
+    private final SendBuffer buffer;
+
+    /** Set once the session is closed or discarded, guarded by lock */
+    private boolean closed;
+
+    /** Set once discard() released the session from the manager's count, guarded by lock */
+    private boolean released;
+
+    /** Number of drain requests, the one raising it from 0 drains for the others */
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    private final Flux<org.springframework.web.reactive.socket.WebSocketMessage> frames;
+
+    /** Set when Netty subscribes to frames */
+    private volatile FluxSink<org.springframework.web.reactive.socket.WebSocketMessage> sink;
+
+    ReactiveOutboundSession(WebSocketSession delegate, OutboundSessionManager manager, OverflowPolicy overflowPolicy) {
+        this.delegate = delegate;
+        this.manager = manager;
+        this.buffer = new SendBuffer(manager, overflowPolicy);
+        // ERROR: the drain never emits more than requested, more would be a bug rather than something to buffer twice
+        this.frames = Flux.create(sink -> {
+            sink.onRequest(requested -> drain());
+            sink.onDispose(this::discardBuffer);
+            this.sink = sink;
+            drain();
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    /**
+     * @return the outbound frames of this session, to be subscribed once by WebSocketSession.send
+     */
+    public Flux<org.springframework.web.reactive.socket.WebSocketMessage> frames() {
+        return frames;
+    }
+
+    @Override
+    public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+        boolean disconnect = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (!buffer.add(message, messageClass, receivedAt)) {
+                disconnect = true;
+                closed = true;
+                buffer.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (disconnect) {
+            log.warn("Closing slow session - Session ID: {}", delegate.getId());
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        discardBuffer();
+        delegate.close(new org.springframework.web.reactive.socket.CloseStatus(status.getCode(), status.getReason()))
+                .subscribe(null, e -> log.debug("Error closing session - Session ID: {}, Error: {}", delegate.getId(), e.getMessage()));
+    }
+
+    @Override
+    public void discard() {
+        lock.lock();
+        try {
+            closed = true;
+            buffer.clear();
+            if (!released) {
+                released = true;
+                manager.sessionClosed();
+            }
+        } finally {
+            lock.unlock();
+        }
+        FluxSink<org.springframework.web.reactive.socket.WebSocketMessage> current = sink;
+        if (current != null) {
+            current.complete();
+        }
+    }
+
+    /**
+     * Emits buffered frames while Netty has outstanding demand.
+     * A call made while another thread drains only makes that thread loop once more.
+     */
+    private void drain() {
+        FluxSink<org.springframework.web.reactive.socket.WebSocketMessage> current = sink;
+        if (current == null || drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (current.requestedFromDownstream() > 0 && !current.isCancelled()) {
+                SendBuffer.Outbound next;
+                lock.lock();
+                try {
+                    next = buffer.poll();
+                } finally {
+                    lock.unlock();
+                }
+                if (next == null) {
+                    break;
+                }
+                // Encoded to a DataBuffer only now, once Netty is ready to write it
+                current.next(toMessage(next));
+                manager.sent(next.messageClass(), next.size(), next.receivedAt());
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private org.springframework.web.reactive.socket.WebSocketMessage toMessage(SendBuffer.Outbound outbound) {
+        if (outbound.message() instanceof PingMessage ping) {
+            return delegate.pingMessage(factory -> factory.wrap(ping.getPayload()));
+        }
+        String payload = (String) outbound.message().getPayload();
+        DataBufferFactory bufferFactory = delegate.bufferFactory();
+        if (!(bufferFactory instanceof NettyDataBufferFactory nettyBufferFactory)) {
+            return delegate.textMessage(payload);
+        }
+        // The native frame is written as is, the DataBuffer only wraps the same bytes
+        ByteBuf content = ByteBufUtil.writeUtf8(nettyBufferFactory.getByteBufAllocator(), payload);
+        return new org.springframework.web.reactive.socket.WebSocketMessage(
+                org.springframework.web.reactive.socket.WebSocketMessage.Type.TEXT,
+                nettyBufferFactory.wrap(content), new ChatTextFrame(outbound.messageClass(), content));
+    }
+
+    private void discardBuffer() {
+        lock.lock();
+        try {
+            closed = true;
+            buffer.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.protocol.PeerFrame;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Frames waiting to be written to one session, bounded in bytes and handled according to the
+ * session's {@link OverflowPolicy}. Shared by the servlet and the reactive send pipeline.
+ *
+ * Not thread-safe, the owning session guards it with its lock.
+ */
+final class SendBuffer {
+
+    private final Deque<Outbound> frames = new ArrayDeque<>();
+
+    private final OutboundSessionManager manager;
+
+    private final OverflowPolicy overflowPolicy;
+
+    /** Bytes in frames */
+    private long bytes;
+
+    SendBuffer(OutboundSessionManager manager, OverflowPolicy overflowPolicy) {
+        this.manager = manager;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Appends a frame and applies the overflow policy if the buffer is over its limit.
+     * A {@link PeerFrame} is buffered in its JSON form.
+     * @return false if the session could not keep up and must be disconnected
+     */
+    boolean add(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+        if (message instanceof PeerFrame peerFrame) {
+            // Sessions below a BinaryChatSession get frames already encoded, this one speaks JSON
+            message = peerFrame.textMessage();
+        }
+        Outbound outbound = new Outbound(message, messageClass, message.getPayloadLength(), receivedAt);
+        frames.addLast(outbound);
+        bytes += outbound.size();
+        manager.buffered(1);
+        return bytes <= manager.getBufferSizeLimit() || handleOverflow();
+    }
+
+    /**
+     * @return the oldest frame, null if the buffer is empty
+     */
+    Outbound poll() {
+        Outbound next = frames.pollFirst();
+        if (next != null) {
+            bytes -= next.size();
+            manager.buffered(-1);
+        }
+        return next;
+    }
+
+    void clear() {
+        manager.buffered(-frames.size());
+        frames.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return true if the buffer fits again, false if the session must be disconnected
+     */
+    private boolean handleOverflow() {
+        if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+            manager.slowConsumerDisconnected();
+            return false;
+        }
+        Iterator<Outbound> oldestFirst = frames.iterator();
+        while (bytes > manager.getBufferSizeLimit() && oldestFirst.hasNext()) {
+            Outbound outbound = oldestFirst.next();
+            if (outbound.messageClass().droppable()) {
+                oldestFirst.remove();
+                bytes -= outbound.size();
+                manager.buffered(-1);
+                manager.dropped(outbound.messageClass());
+            }
+        }
+        if (bytes > 2L * manager.getBufferSizeLimit()) {
+            manager.slowConsumerDisconnected();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param size payload length, computed once: a TextMessage built from a String encodes itself to count it
+     * @param receivedAt System.nanoTime() when a forwarded frame was received, 0 for frames created by the server
+     */
+    record Outbound(WebSocketMessage<?> message, MessageClass messageClass, int size, long receivedAt) {
+    }
+}
@@ -0,0 +1,220 @@
+package com.allchat.chat_service.session;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Resume window for dropped connections: a user whose connection drops while in a group keeps their place
+ * for a while, and a reconnect within the window picks up where the old session left off instead of
+ * ending the group and sending the others back to matchmaking.
+ *
+ * Every session gets a resume token in a resume-token frame when it connects. When its connection drops
+ * without a close from the client (network loss, a reaped half-open connection, a failed send), the user's
+ * session is replaced by a {@link ParkedSession} that keeps the frames sent meanwhile. Reconnecting with
+ * ?userId=...&amp;resumeToken=... reattaches: the client gets session-resumed with its group, then the kept frames.
+ * A reconnect without the token, or the end of the window, cleans up after the old session as if it had
+ * closed for good. A client closing normally (1000, 1001) is cleaned up at once.
+ *
+ * Settings under chat.resume:
+ * - enabled: park dropped sessions at all
+ * - window-ms: time a dropped user's group place is held
+ * - buffer-frames: frames kept for a dropped user, the oldest is dropped beyond it
+ *
+ * Tokens are 128 random bits and valid for the current session only, a resume hands out a new one.
+ * The window is local to the node, a user reconnecting to another node starts over.
+ */
+@Component
+public class SessionResumer {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionResumer.class);
+
+    private final boolean enabled;
+
+    private final long windowMs;
+
+    private final int bufferFrames;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /** Token of every connected user's current session */
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+    /** Ends windows that were not resumed */
+    private final ScheduledExecutorService expiryScheduler;
+
+    private final AtomicInteger parkedSessions = new AtomicInteger();
+
+    private final LongAdder parked = new LongAdder();
+
+    private final LongAdder resumed = new LongAdder();
+
+    private final LongAdder expired = new LongAdder();
+
+    private final LongAdder[] dropped = new LongAdder[MessageClass.values().length];
+
+    /**
+     * Constructor to inject required dependencies
+     * @param meterRegistry Registry the resume meters are published to
+     * @param enabled Hold dropped users' sessions for a resume
+     * @param windowMs Time a dropped user's group place is held
+     * @param bufferFrames Frames kept for a dropped user
+     */
+    public SessionResumer(MeterRegistry meterRegistry,
+                          @Value("${chat.resume.enabled:true}") boolean enabled,
+                          @Value("${chat.resume.window-ms:15000}") long windowMs,
+                          @Value("${chat.resume.buffer-frames:128}") int bufferFrames) {
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.bufferFrames = Math.max(bufferFrames, 1);
+        this.expiryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-resume-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("chat.resume.sessions", parkedSessions, AtomicInteger::get)
+                .description("Dropped sessions waiting for a resume")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.resume.parked", parked, LongAdder::sum)
+                .description("Dropped sessions held for a resume")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.resume.resumed", resumed, LongAdder::sum)
+                .description("Dropped sessions resumed by a reconnect")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.resume.expired", expired, LongAdder::sum)
+                .description("Dropped sessions cleaned up without a resume")
+                .register(meterRegistry);
+        for (MessageClass messageClass : MessageClass.values()) {
+            dropped[messageClass.ordinal()] = new LongAdder();
+            FunctionCounter.builder("chat.resume.dropped", dropped[messageClass.ordinal()], LongAdder::sum)
+                    .description("Frames dropped because a dropped session's buffer was full")
+                    .tag("class", messageClass.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Hands out the resume token of a user's new session, replacing the token of any earlier one.
+     */
+    public String issueToken(String userId) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.put(userId, token);
+        return token;
+    }
+
+    /**
+     * Forgets the token of a user who is gone for good.
+     */
+    public void forgetToken(String userId) {
+        tokens.remove(userId);
+    }
+
+    /**
+     * @return true if a session closed with this code may be resumed: the connection dropped or failed
+     *         rather than being closed by the client or for a policy violation
+     */
+    public boolean isResumable(int closeCode) {
+        return enabled && (closeCode == CloseStatus.NO_CLOSE_FRAME.getCode()
+                || closeCode == CloseStatus.SERVER_ERROR.getCode()
+                || closeCode == CloseStatus.SESSION_NOT_RELIABLE.getCode());
+    }
+
+    /**
+     * Creates the stand-in of a dropped session. Its window starts with {@link #startWindow}, once it
+     * took the dropped session's place.
+     * @param onExpiry Cleans up after the user if the window ends without a resume
+     * @return null if the user's session has no resume token
+     */
+    public ParkedSession park(String userId, String sessionId, Consumer<ParkedSession> onExpiry) {
+        String token = tokens.get(userId);
+        if (token == null) {
+            return null;
+        }
+        return new ParkedSession(sessionId, token, bufferFrames, this, onExpiry);
+    }
+
+    /**
+     * Starts the resume window of a session that took the dropped session's place.
+     */
+    public void startWindow(ParkedSession session) {
+        parked.increment();
+        parkedSessions.incrementAndGet();
+        session.setExpiry(expiryScheduler.schedule(() -> {
+            if (session.settle()) {
+                end(session);
+            }
+        }, windowMs, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Resumes a parked session if the token is the one of its session. Otherwise the window ends at once
+     * and the old session is cleaned up, unless it expired already.
+     * @param token resume token sent by the reconnecting client, null if none
+     * @return true if the caller should reattach the user with {@link ParkedSession#resumeTo}
+     */
+    public boolean tryResume(ParkedSession session, String token) {
+        if (!session.settle()) {
+            return false;
+        }
+        if (token != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.US_ASCII),
+                session.getResumeToken().getBytes(StandardCharsets.US_ASCII))) {
+            resumed.increment();
+            parkedSessions.decrementAndGet();
+            return true;
+        }
+        end(session);
+        return false;
+    }
+
+    /**
+     * Ends a window at once, as if it expired.
+     */
+    void expire(ParkedSession session) {
+        if (session.settle()) {
+            end(session);
+        }
+    }
+
+    void dropped(MessageClass messageClass) {
+        dropped[messageClass.ordinal()].increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryScheduler.shutdownNow();
+    }
+
+    private void end(ParkedSession session) {
+        expired.increment();
+        parkedSessions.decrementAndGet();
+        session.discard();
+        try {
+            session.getOnExpiry().accept(session);
+        } catch (RuntimeException e) {
+            log.error("Error cleaning up expired session - Session ID: {}, Error: {}", session.getId(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.allchat.chat_service;
+
+import org.springframework.boot.SpringApplication;
+
+/**
+ * Starts two chat-service nodes in one JVM sharing the embedded backplane,
+ * so users connected to 8093 and 8094 can be matched with each other.
+ */
+public class TestChatClusterApplication {
+
+	public static void main(String[] args) {
+		startNode("chat-1", 8093);
+		startNode("chat-2", 8094);
+	}
+
+	private static void startNode(String nodeId, int port) {
+		SpringApplication.from(ChatServiceApplication::main).with(TestcontainersConfiguration.class).run(
+				"--server.port=" + port,
+				"--chat.cluster.mode=embedded",
+				"--chat.cluster.node-id=" + nodeId,
+				"--spring.jmx.enabled=false");
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.allchat.chat_service.cluster;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per frame group lookups by group size: the check before forwarding a signaling frame and the
+ * recipients of a chat frame, with the group directory against the per-member set copies
+ * ChatWebSocketHandler used to keep (two set lookups, contains both ways and a whole-set equals).
+ *
+ * 10,000 other groups are in both structures so lookups hit realistically sized maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupDirectoryBenchmark {
+
+    private static final int OTHER_GROUPS = 10_000;
+
+    @Param({"2", "10", "50"})
+    private int groupSize;
+
+    private final GroupDirectory groupDirectory = new InMemoryGroupDirectory();
+
+    private final Map<String, Set<String>> legacyGroups = new ConcurrentHashMap<>();
+
+    private String from;
+
+    private String to;
+
+    @Setup
+    public void createGroups() {
+        for (int group = 0; group < OTHER_GROUPS; group++) {
+            List<String> members = List.of("other-" + group + "-a", "other-" + group + "-b");
+            groupDirectory.create(members);
+            for (String member : members) {
+                legacyGroups.put(member, new HashSet<>(members));
+            }
+        }
+        List<String> members = new ArrayList<>();
+        for (int member = 0; member < groupSize; member++) {
+            members.add("member-" + member);
+        }
+        groupDirectory.create(members);
+        for (String member : members) {
+            legacyGroups.put(member, new HashSet<>(members));
+        }
+        from = members.get(0);
+        to = members.get(groupSize - 1);
+    }
+
+    @Benchmark
+    public boolean legacySignalCheck() {
+        Set<String> fromGroup = legacyGroups.get(from);
+        Set<String> toGroup = legacyGroups.get(to);
+        return fromGroup != null && toGroup != null && fromGroup.contains(to) && toGroup.contains(from)
+                && fromGroup.equals(toGroup);
+    }
+
+    @Benchmark
+    public boolean signalCheck() {
+        ChatGroup fromGroup = groupDirectory.groupOf(from);
+        return fromGroup != null && fromGroup.contains(to);
+    }
+
+    @Benchmark
+    public void legacyChatRecipients(Blackhole blackhole) {
+        for (String member : legacyGroups.get(from)) {
+            if (!member.equals(from)) {
+                blackhole.consume(member);
+            }
+        }
+    }
+
+    @Benchmark
+    public void chatRecipients(Blackhole blackhole) {
+        for (String member : groupDirectory.groupOf(from).members()) {
+            if (!member.equals(from)) {
+                blackhole.consume(member);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GroupDirectoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
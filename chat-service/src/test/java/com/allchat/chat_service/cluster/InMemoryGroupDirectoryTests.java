@@ -0,0 +1,76 @@
+package com.allchat.chat_service.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryGroupDirectoryTests {
+
+    @Test
+    void createClaimsEveryUser() {
+        GroupDirectory directory = new InMemoryGroupDirectory();
+
+        ChatGroup group = directory.create(List.of("alice", "bob"));
+
+        assertEquals(Set.of("alice", "bob"), group.members());
+        assertSame(group, directory.groupOf("alice"));
+        assertSame(group, directory.groupOf("bob"));
+    }
+
+    @Test
+    void createOfAUserInAGroupClaimsNobody() {
+        GroupDirectory directory = new InMemoryGroupDirectory();
+        ChatGroup room = directory.create(List.of("carol", "dave"));
+        directory.join(room.id(), "bob", 10);
+
+        assertNull(directory.create(List.of("alice", "bob")));
+
+        assertNull(directory.groupOf("alice"));
+        assertSame(room, directory.groupOf("bob"));
+        assertEquals(1, directory.groupCount());
+        assertEquals(3, directory.memberCount());
+    }
+
+    @Test
+    void userRacingCreateAndJoinEndsUpInOneGroup() throws Exception {
+        GroupDirectory directory = new InMemoryGroupDirectory();
+        for (int i = 0; i < 2000; i++) {
+            ChatGroup room = directory.create(List.of("room-a-" + i, "room-b-" + i));
+            String userId = "user-" + i;
+            String partnerId = "partner-" + i;
+            CountDownLatch start = new CountDownLatch(1);
+            try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+                Future<ChatGroup> created = executor.submit(() -> {
+                    start.await();
+                    return directory.create(List.of(userId, partnerId));
+                });
+                Future<ChatGroup> joined = executor.submit(() -> {
+                    start.await();
+                    return directory.join(room.id(), userId, 10);
+                });
+                start.countDown();
+
+                ChatGroup match = created.get();
+                ChatGroup current = directory.groupOf(userId);
+                assertTrue(match == null ^ joined.get() == null, "in both groups or none");
+                assertNotNull(current);
+                assertSame(match != null ? match : room, current);
+                assertEquals(match != null, !room.contains(userId));
+                if (match == null) {
+                    assertNull(directory.groupOf(partnerId));
+                }
+            }
+        }
+    }
+}
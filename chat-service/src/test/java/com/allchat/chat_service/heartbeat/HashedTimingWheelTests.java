@@ -0,0 +1,150 @@
+package com.allchat.chat_service.heartbeat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTests {
+
+    @Test
+    void timeoutExpiresOnItsTick() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8);
+        RecordingTimeout timeout = new RecordingTimeout();
+
+        wheel.schedule(timeout, 3);
+        int tick = ticksUntilExpired(wheel, timeout, 20);
+
+        assertEquals(3, tick);
+        assertEquals(1, timeout.expirations);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timeoutMoreThanATurnAheadWaitsForItsTurn() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8);
+        RecordingTimeout soon = new RecordingTimeout();
+        RecordingTimeout later = new RecordingTimeout();
+
+        // Same slot, two and a half turns apart
+        wheel.schedule(soon, 4);
+        wheel.schedule(later, 20);
+
+        assertEquals(4, ticksUntilExpired(wheel, soon, 40));
+        assertEquals(1, wheel.size());
+        assertEquals(16, ticksUntilExpired(wheel, later, 40));
+    }
+
+    @Test
+    void zeroDelayExpiresOnTheNextTick() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8);
+        RecordingTimeout timeout = new RecordingTimeout();
+
+        wheel.schedule(timeout, 0);
+
+        assertEquals(1, ticksUntilExpired(wheel, timeout, 20));
+    }
+
+    @Test
+    void timeoutCanScheduleItselfAgain() {
+        HashedTimingWheel wheel = new HashedTimingWheel(4);
+        List<Integer> expiredOn = new ArrayList<>();
+        int[] tick = {0};
+        HashedTimingWheel.Timeout periodic = new HashedTimingWheel.Timeout() {
+            @Override
+            void expire() {
+                expiredOn.add(tick[0]);
+                if (expiredOn.size() < 3) {
+                    wheel.schedule(this, 5);
+                }
+            }
+        };
+
+        wheel.schedule(periodic, 5);
+        for (tick[0] = 1; tick[0] <= 30; tick[0]++) {
+            wheel.tick();
+        }
+
+        assertEquals(List.of(5, 10, 15), expiredOn);
+    }
+
+    @Test
+    void throwingTimeoutDoesNotStopTheOthersOfItsTick() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8);
+        RecordingTimeout before = new RecordingTimeout();
+        RecordingTimeout after = new RecordingTimeout();
+        HashedTimingWheel.Timeout failing = new HashedTimingWheel.Timeout() {
+            @Override
+            void expire() {
+                throw new IllegalStateException("session already gone");
+            }
+        };
+
+        wheel.schedule(before, 2);
+        wheel.schedule(failing, 2);
+        wheel.schedule(after, 2);
+        wheel.tick();
+        wheel.tick();
+
+        assertEquals(1, before.expirations);
+        assertEquals(1, after.expirations);
+        assertEquals(0, wheel.size());
+
+        // The wheel keeps ticking
+        RecordingTimeout next = new RecordingTimeout();
+        wheel.schedule(next, 1);
+        wheel.tick();
+        assertTrue(next.expired());
+    }
+
+    @Test
+    void manyTimeoutsExpireOnTheirOwnTicks() {
+        HashedTimingWheel wheel = new HashedTimingWheel(16);
+        List<RecordingTimeout> timeouts = new ArrayList<>();
+        for (int delay = 1; delay <= 100; delay++) {
+            RecordingTimeout timeout = new RecordingTimeout();
+            timeouts.add(timeout);
+            wheel.schedule(timeout, delay);
+        }
+
+        for (int tick = 1; tick <= 100; tick++) {
+            wheel.tick();
+            assertTrue(timeouts.get(tick - 1).expired(), "due on tick " + tick);
+            if (tick < 100) {
+                assertFalse(timeouts.get(tick).expired(), "due on tick " + (tick + 1));
+            }
+        }
+        assertTrue(timeouts.stream().allMatch(timeout -> timeout.expirations == 1));
+    }
+
+    /**
+     * @return ticks until the timeout expired
+     */
+    private static int ticksUntilExpired(HashedTimingWheel wheel, RecordingTimeout timeout, int maxTicks) {
+        for (int tick = 1; tick <= maxTicks; tick++) {
+            wheel.tick();
+            if (timeout.expired()) {
+                return tick;
+            }
+        }
+        throw new AssertionError("Timeout did not expire within " + maxTicks + " ticks");
+    }
+
+    private static final class RecordingTimeout extends HashedTimingWheel.Timeout {
+
+        private int expirations;
+
+        @Override
+        void expire() {
+            expirations++;
+        }
+
+        private boolean expired() {
+            return expirations > 0;
+        }
+    }
+}
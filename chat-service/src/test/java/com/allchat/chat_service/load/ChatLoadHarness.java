@@ -0,0 +1,280 @@
+package com.allchat.chat_service.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load harness for a running chat-service: opens N sessions, lets them all get matched, then every
+ * session sends chat frames to its peer at a fixed rate. Prints delivered frames/sec and the
+ * end-to-end latency (sender to peer, both in this process) at p50/p99/max.
+ *
+ * Compare platform and virtual threads by running the same harness against the service started with
+ * spring.threads.virtual.enabled=false and then true, e.g. for 10k and 50k sessions.
+ * Compare the servlet and the reactive engine the same way with spring.main.web-application-type=servlet
+ * and then reactive.
+ * Compare chat batching with chat.batching.enabled=false and then true, with a burst of several frames
+ * per tick so messages to the same peer fall into one window. Frames of a chat-batch are unpacked, every
+ * message is counted as delivered with its own latency; frames/s received shows what batching saved.
+ *
+ * With chat.load.actuator-url set, the service's heap use and live threads are read from its metrics
+ * endpoint before connecting and once all sessions are matched, and printed per session. Start the
+ * service with --management.endpoints.web.exposure.include=health,metrics and the same -Xmx for every
+ * run; heap use includes garbage not collected yet, compare runs of the same size.
+ * The service's admission and inbound limits are sized for real clients, start it with them raised:
+ *   --chat.admission.max-sessions=100000 --chat.admission.per-ip-connections-per-second=100000
+ *   --chat.admission.per-ip-burst=100000 --chat.admission.connections-per-second=100000
+ *
+ * System properties (defaults in brackets):
+ *   chat.load.url [ws://localhost:8093/ws], chat.load.sessions [10000], chat.load.connects-per-second [2000],
+ *   chat.load.frames-per-second [5] per session, chat.load.burst [1] frames sent back to back per tick,
+ *   chat.load.duration-seconds [60],
+ *   chat.load.actuator-url [none, e.g. http://localhost:8093/actuator]
+ * The client needs a raised file descriptor limit (ulimit -n) for tens of thousands of sessions.
+ */
+public class ChatLoadHarness {
+
+    private static final String CHAT_FRAME = "{\"type\":\"chat\",\"message\":\"load test message of a typical length\",\"sentAt\":%d}";
+
+    private final LongAdder delivered = new LongAdder();
+
+    /** Chat and chat-batch frames received, equal to delivered without batching */
+    private final LongAdder framesReceived = new LongAdder();
+
+    private final LongAdder sent = new LongAdder();
+
+    /** Latencies in microseconds, drained when the run ends */
+    private final ConcurrentLinkedQueue<long[]> latencyChunks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong connectFailures = new AtomicLong();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        URI url = URI.create(System.getProperty("chat.load.url", "ws://localhost:8093/ws"));
+        int sessions = Integer.getInteger("chat.load.sessions", 10_000);
+        int connectsPerSecond = Integer.getInteger("chat.load.connects-per-second", 2_000);
+        int framesPerSecond = Integer.getInteger("chat.load.frames-per-second", 5);
+        int burst = Integer.getInteger("chat.load.burst", 1);
+        int durationSeconds = Integer.getInteger("chat.load.duration-seconds", 60);
+        String actuatorUrl = System.getProperty("chat.load.actuator-url");
+        new ChatLoadHarness().run(url, actuatorUrl, sessions, connectsPerSecond, framesPerSecond, burst, durationSeconds);
+    }
+
+    private void run(URI url, String actuatorUrl, int sessionCount, int connectsPerSecond, int framesPerSecond,
+                     int burst, int durationSeconds) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        CountDownLatch matched = new CountDownLatch(sessionCount);
+        List<Client> clients = new ArrayList<>(sessionCount);
+        double heapBefore = metric(httpClient, actuatorUrl, "jvm.memory.used?tag=area:heap");
+        double threadsBefore = metric(httpClient, actuatorUrl, "jvm.threads.live");
+
+        System.out.printf("Connecting %d sessions to %s%n", sessionCount, url);
+        long connectStarted = System.nanoTime();
+        long connectIntervalNanos = TimeUnit.SECONDS.toNanos(1) / connectsPerSecond;
+        List<CompletableFuture<WebSocket>> connects = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            Client client = new Client(matched);
+            clients.add(client);
+            connects.add(httpClient.newWebSocketBuilder()
+                    .buildAsync(URI.create(url + "?userId=load-" + i), client)
+                    .whenComplete((webSocket, error) -> {
+                        if (error != null) {
+                            connectFailures.incrementAndGet();
+                            matched.countDown();
+                        } else {
+                            webSocket.sendText("{\"type\":\"looking-for-match\"}", true);
+                        }
+                    }));
+            long due = connectStarted + (i + 1) * connectIntervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        boolean allMatched = matched.await(2, TimeUnit.MINUTES);
+        System.out.printf("Connected and matched in %d ms (complete: %s, connect failures: %d)%n",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStarted), allMatched, connectFailures.get());
+        if (actuatorUrl != null) {
+            long connected = sessionCount - connectFailures.get();
+            double heapAfter = metric(httpClient, actuatorUrl, "jvm.memory.used?tag=area:heap");
+            double threadsAfter = metric(httpClient, actuatorUrl, "jvm.threads.live");
+            System.out.printf("Service heap: %.0f KB per session, live threads: %.0f -> %.0f%n",
+                    (heapAfter - heapBefore) / 1024 / Math.max(connected, 1), threadsBefore, threadsAfter);
+        }
+
+        ScheduledExecutorService ticker = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), Thread.ofPlatform().daemon().factory());
+        long periodMicros = TimeUnit.SECONDS.toMicros(1) / framesPerSecond;
+        for (int i = 0; i < clients.size(); i++) {
+            Client client = clients.get(i);
+            // Spread the sessions over the period so frames do not all leave at once
+            ticker.scheduleAtFixedRate(() -> client.sendChat(burst), (i * periodMicros) / clients.size(), periodMicros, TimeUnit.MICROSECONDS);
+        }
+
+        long measureStarted = System.nanoTime();
+        for (int second = 1; second <= durationSeconds; second++) {
+            TimeUnit.SECONDS.sleep(1);
+            if (second % 10 == 0) {
+                System.out.printf("%3ds sent: %d delivered: %d%n", second, sent.sum(), delivered.sum());
+            }
+        }
+        ticker.shutdownNow();
+        double elapsedSeconds = (System.nanoTime() - measureStarted) / 1e9;
+        for (Client client : clients) {
+            client.flushLatencies();
+        }
+
+        long[] latencies = latencyChunks.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("Sessions: %d, sent: %.0f frames/s, delivered: %.0f messages/s in %.0f frames/s%n",
+                sessionCount, sent.sum() / elapsedSeconds, delivered.sum() / elapsedSeconds,
+                framesReceived.sum() / elapsedSeconds);
+        if (latencies.length > 0) {
+            System.out.printf("Latency p50: %.2f ms, p99: %.2f ms, max: %.2f ms%n",
+                    latencies[latencies.length / 2] / 1e3,
+                    latencies[(int) (latencies.length * 0.99)] / 1e3,
+                    latencies[latencies.length - 1] / 1e3);
+        }
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    /**
+     * @return the value of a metric of the service, NaN without an actuator URL or if it cannot be read
+     */
+    private double metric(HttpClient httpClient, String actuatorUrl, String metric) throws InterruptedException {
+        if (actuatorUrl == null) {
+            return Double.NaN;
+        }
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(actuatorUrl + "/metrics/" + metric)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+            return measurements.path(0).path("value").asDouble(Double.NaN);
+        } catch (IOException e) {
+            System.out.printf("Cannot read %s: %s%n", metric, e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * One chat session. The JDK client delivers a session's frames in order, one at a time.
+     * The latency buffer is locked because the main thread flushes it while late frames may still arrive.
+     */
+    private final class Client implements WebSocket.Listener {
+
+        private final CountDownLatch matched;
+
+        private final StringBuilder partial = new StringBuilder();
+
+        private volatile WebSocket webSocket;
+
+        private volatile boolean inChat;
+
+        private long[] latencies = new long[256];
+
+        private int latencyCount;
+
+        private Client(CountDownLatch matched) {
+            this.matched = matched;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            this.webSocket = webSocket;
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                onFrame(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        private void onFrame(String frame) {
+            if (frame.startsWith("{\"type\":\"chat-batch\"") || frame.startsWith("{\"type\":\"chat\"")) {
+                framesReceived.increment();
+                long receivedAt = System.nanoTime();
+                // Every message of a batch ends with its sentAt field
+                for (int field = frame.indexOf("\"sentAt\":"); field >= 0; field = frame.indexOf("\"sentAt\":", field + 9)) {
+                    int start = field + 9;
+                    long sentAt = Long.parseLong(frame, start, frame.indexOf('}', start), 10);
+                    recordLatency((receivedAt - sentAt) / 1_000);
+                    delivered.increment();
+                }
+            } else if (frame.startsWith("{\"type\":\"match-found\"") && !inChat) {
+                inChat = true;
+                matched.countDown();
+            }
+        }
+
+        private void sendChat(int burst) {
+            WebSocket current = webSocket;
+            if (current != null && inChat && !current.isOutputClosed()) {
+                try {
+                    for (int i = 0; i < burst; i++) {
+                        CompletableFuture<WebSocket> send = current.sendText(String.format(CHAT_FRAME, System.nanoTime()), true);
+                        sent.increment();
+                        if (i + 1 < burst) {
+                            // One send may be pending at a time
+                            send.join();
+                        }
+                    }
+                } catch (IllegalStateException | CompletionException e) {
+                    // Previous send of this session still pending or failed, the session is falling behind: skip the tick
+                }
+            }
+        }
+
+        private synchronized void recordLatency(long micros) {
+            if (latencyCount == latencies.length) {
+                latencyChunks.add(latencies);
+                latencies = new long[latencies.length];
+                latencyCount = 0;
+            }
+            latencies[latencyCount++] = micros;
+        }
+
+        private synchronized void flushLatencies() {
+            latencyChunks.add(Arrays.copyOf(latencies, latencyCount));
+            latencyCount = 0;
+        }
+
+        private void close() {
+            WebSocket current = webSocket;
+            if (current != null) {
+                current.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.allchat.chat_service.logging;
+
+import com.allchat.chat_service.protocol.FrameHeader;
+import com.allchat.chat_service.protocol.FrameHeaderParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.helpers.MessageFormatter;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames/sec of routing an ICE candidate with the logging each path does per frame.
+ *
+ * legacy formats what ChatWebSocketHandler used to log at INFO for every signaling frame: the payload,
+ * the sender's group and the groups of both peers. events runs the ChatEventLog sampling decision with
+ * the default rates and formats the fixed-field line only for sampled frames.
+ * Formatting is done with the SLF4J MessageFormatter, the minimum any enabled appender pays, so the
+ * numbers do not depend on the logging backend on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatEventLogBenchmark {
+
+    private static final String FROM = "c9f0f895-fb98-4b91-8b0e-5f3a7d2e6a42";
+
+    private static final String TO = "8f14e45f-ceea-467a-9b36-1c5a0b7c2d11";
+
+    private static final String ICE_CANDIDATE = "{\"type\":\"ice-candidate\",\"to\":\"" + TO + "\",\"from\":\"" + FROM + "\","
+            + "\"candidate\":{\"candidate\":\"candidate:842163049 1 udp 1677729535 203.0.113.24 53421 typ srflx "
+            + "raddr 192.168.1.17 rport 53421 generation 0 ufrag Zq3F network-cost 999\",\"sdpMid\":\"0\","
+            + "\"sdpMLineIndex\":0,\"usernameFragment\":\"Zq3F\"}}";
+
+    private final FrameHeaderParser frameHeaderParser = new FrameHeaderParser(new JsonFactory());
+
+    private final ChatEventLog chatEventLog = new ChatEventLog(new StandardEnvironment());
+
+    private final Map<String, Set<String>> matchedGroups = new HashMap<>();
+
+    public ChatEventLogBenchmark() {
+        Set<String> group = new HashSet<>(List.of(FROM, TO));
+        matchedGroups.put(FROM, new HashSet<>(group));
+        matchedGroups.put(TO, new HashSet<>(group));
+        for (int i = 0; i < 50; i++) {
+            String user = UUID.randomUUID().toString();
+            matchedGroups.put(user, Set.of(user));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws IOException {
+        FrameHeader header = frameHeaderParser.parse(ICE_CANDIDATE);
+        blackhole.consume(format("Received message - Type: {}, From User: {}, Session ID: {}, User's Group: {}",
+                header.type(), FROM, "1a2b3c", matchedGroups.get(FROM)));
+        blackhole.consume(format("Full message payload: {}", ICE_CANDIDATE));
+        blackhole.consume(format("Processing WebRTC message - Type: {}, From: {}, Current Group: {}",
+                header.type(), FROM, matchedGroups.get(FROM)));
+        blackhole.consume(format("Matched groups state - From user group: {}, To user group: {}",
+                matchedGroups.get(header.from()), matchedGroups.get(header.to())));
+        blackhole.consume(format("Forwarding WebRTC signal - Type: {}, From: {}, To: {}",
+                header.type(), header.from(), header.to()));
+    }
+
+    @Benchmark
+    public void events(Blackhole blackhole) throws IOException {
+        FrameHeader header = frameHeaderParser.parse(ICE_CANDIDATE);
+        if (chatEventLog.sample(ChatEvent.FRAME_RECEIVED)) {
+            blackhole.consume(format("event={} user={} peer={}", ChatEvent.FRAME_RECEIVED.key(), FROM, header.type()));
+        }
+        if (chatEventLog.sample(ChatEvent.SIGNAL_FORWARDED)) {
+            blackhole.consume(format("event={} user={} peer={}", ChatEvent.SIGNAL_FORWARDED.key(), header.from(), header.to()));
+        }
+        blackhole.consume(header);
+    }
+
+    private static String format(String pattern, Object... arguments) {
+        return MessageFormatter.arrayFormat(pattern, arguments).getMessage();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChatEventLogBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
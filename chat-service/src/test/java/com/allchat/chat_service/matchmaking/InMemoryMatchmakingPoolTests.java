@@ -0,0 +1,176 @@
+package com.allchat.chat_service.matchmaking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryMatchmakingPoolTests {
+
+    /** Long enough that no user is widened unless a test waits for it */
+    private static final long NO_WIDENING_MS = 3_600_000;
+
+    private static final MatchPreferences EN_EU_MUSIC = new MatchPreferences("en", "eu", Set.of("music"));
+
+    @Test
+    void compatibleUsersArePairedOnTheNextTick() {
+        MatchmakingPool pool = new InMemoryMatchmakingPool(NO_WIDENING_MS);
+        assertTrue(pool.enqueue("a", EN_EU_MUSIC, "node-1"));
+        assertFalse(pool.enqueue("a", EN_EU_MUSIC, "node-1"));
+        pool.enqueue("b", EN_EU_MUSIC, "node-2");
+        pool.enqueue("c", new MatchPreferences("es", "eu", Set.of("music")), "node-1");
+
+        List<Match> matches = pool.pairWaiting(100);
+
+        assertEquals(1, matches.size());
+        assertEquals(Set.of("a", "b"), matches.getFirst().users());
+        assertEquals(MatchLevel.INTEREST, matches.getFirst().level());
+        assertFalse(matches.getFirst().colocated());
+        assertFalse(pool.isWaiting("a"));
+        assertTrue(pool.isWaiting("c"));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void cancelledUserIsNeverMatched() {
+        MatchmakingPool pool = new InMemoryMatchmakingPool(NO_WIDENING_MS);
+        pool.enqueue("a", MatchPreferences.ANY, "node-1");
+        pool.enqueue("b", MatchPreferences.ANY, "node-1");
+        pool.enqueue("c", MatchPreferences.ANY, "node-1");
+
+        assertTrue(pool.cancel("a"));
+        assertFalse(pool.cancel("a"));
+        List<Match> matches = pool.pairWaiting(100);
+
+        assertEquals(1, matches.size());
+        assertEquals(Set.of("b", "c"), matches.getFirst().users());
+        assertFalse(pool.cancel("b"));
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void usersAreWidenedAfterTheFallbackWait() throws InterruptedException {
+        MatchmakingPool pool = new InMemoryMatchmakingPool(10);
+        pool.enqueue("a", new MatchPreferences("en", "eu", Set.of("music")), "node-1");
+        pool.enqueue("b", new MatchPreferences("en", "us", Set.of("gaming")), "node-1");
+        assertTrue(pool.pairWaiting(100).isEmpty());
+
+        // INTEREST, then REGION, then LANGUAGE where they meet
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < 10 && matches.isEmpty(); i++) {
+            Thread.sleep(15);
+            matches.addAll(pool.pairWaiting(100));
+        }
+
+        assertEquals(1, matches.size());
+        assertEquals(MatchLevel.LANGUAGE, matches.getFirst().level());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void leftoverKeepsItsPlaceForTheNextTick() {
+        MatchmakingPool pool = new InMemoryMatchmakingPool(NO_WIDENING_MS);
+        pool.enqueue("a", MatchPreferences.ANY, "node-1");
+        pool.enqueue("b", MatchPreferences.ANY, "node-2");
+        pool.enqueue("c", MatchPreferences.ANY, "node-3");
+        assertEquals(Set.of("a", "b"), pool.pairWaiting(100).getFirst().users());
+        assertTrue(pool.isWaiting("c"));
+
+        pool.enqueue("d", MatchPreferences.ANY, "node-4");
+        pool.enqueue("e", MatchPreferences.ANY, "node-5");
+        List<Match> matches = pool.pairWaiting(100);
+
+        assertEquals(1, matches.size());
+        assertEquals(Set.of("c", "d"), matches.getFirst().users());
+        assertTrue(pool.isWaiting("e"));
+    }
+
+    @Test
+    void partnerOnTheSameNodeIsPreferred() {
+        MatchmakingPool pool = new InMemoryMatchmakingPool(NO_WIDENING_MS);
+        pool.enqueue("a", MatchPreferences.ANY, "node-1");
+        pool.enqueue("b", MatchPreferences.ANY, "node-2");
+        pool.enqueue("c", MatchPreferences.ANY, "node-1");
+        pool.enqueue("d", MatchPreferences.ANY, "node-2");
+        pool.enqueue("e", MatchPreferences.ANY, "node-3");
+        pool.enqueue("f", MatchPreferences.ANY, "node-4");
+
+        List<Match> matches = pool.pairWaiting(100);
+
+        assertEquals(List.of(Set.of("a", "c"), Set.of("b", "d"), Set.of("e", "f")),
+                matches.stream().map(Match::users).toList());
+        assertEquals(List.of(true, true, false), matches.stream().map(Match::colocated).toList());
+    }
+
+    @Test
+    void batchSizeLimitsUsersTakenPerTick() {
+        MatchmakingPool pool = new InMemoryMatchmakingPool(NO_WIDENING_MS);
+        for (String userId : List.of("a", "b", "c", "d")) {
+            pool.enqueue(userId, MatchPreferences.ANY, "node-1");
+        }
+
+        assertEquals(List.of(Set.of("a", "b")), pool.pairWaiting(2).stream().map(Match::users).toList());
+        assertEquals(List.of(Set.of("c", "d")), pool.pairWaiting(2).stream().map(Match::users).toList());
+    }
+
+    @Test
+    void concurrentCancelAndPairingClaimEveryUserOnce() throws Exception {
+        int users = 20_000;
+        MatchmakingPool pool = new InMemoryMatchmakingPool(NO_WIDENING_MS);
+        List<String> userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String userId = "user-" + i;
+            userIds.add(userId);
+            pool.enqueue(userId, i % 2 == 0 ? MatchPreferences.ANY : EN_EU_MUSIC, "node-" + (i % 3));
+        }
+        Collections.shuffle(userIds);
+
+        Set<String> cancelled = ConcurrentHashMap.newKeySet();
+        List<Match> matches = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> cancellers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                List<String> share = userIds.subList(t * users / 3, (t + 1) * users / 3);
+                cancellers.add(executor.submit(() -> {
+                    start.await();
+                    for (String userId : share) {
+                        if (pool.cancel(userId)) {
+                            cancelled.add(userId);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            while (!cancellers.stream().allMatch(Future::isDone) || pool.size() > 0) {
+                matches.addAll(pool.pairWaiting(64));
+            }
+            for (Future<?> canceller : cancellers) {
+                canceller.get();
+            }
+        }
+
+        Set<String> matched = new HashSet<>();
+        for (Match match : matches) {
+            assertTrue(matched.add(match.first()), match.first() + " matched twice");
+            assertTrue(matched.add(match.second()), match.second() + " matched twice");
+        }
+        for (String userId : cancelled) {
+            assertFalse(matched.contains(userId), userId + " matched after being cancelled");
+        }
+        assertEquals(users, matched.size() + cancelled.size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.allchat.chat_service.matchmaking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput of the matchmaking pool with a large number of users already waiting,
+ * compared against the stream scan ChatWebSocketHandler used to do over a ConcurrentHashMap.
+ *
+ * Every benchmark keeps the pool at a steady size so the numbers reflect the given depth.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.allchat.chat_service.matchmaking.MatchmakingPoolBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchmakingPoolBenchmark {
+
+    /** Every simulated user is connected to the same node */
+    private static final String NODE = "node-0";
+
+    private static final String[] LANGUAGES = {"en", "es", "hi", "fr", "de", "pt", "ja", "ar"};
+    private static final String[] REGIONS = {"eu", "us", "in", "latam", "apac"};
+    private static final String[] INTERESTS = {"music", "gaming", "movies", "sports", "travel", "tech", "art"};
+
+    @Param({"10000", "100000"})
+    private int waitingUsers;
+
+    private MatchmakingPool pool;
+
+    private Map<String, Boolean> legacyPool;
+
+    private final AtomicLong nextUser = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void fillPools() {
+        pool = new InMemoryMatchmakingPool(5000);
+        legacyPool = new ConcurrentHashMap<>();
+        nextUser.set(0);
+        for (int i = 0; i < waitingUsers; i++) {
+            String userId = newUser();
+            pool.enqueue(userId, preferences(i), NODE);
+            legacyPool.put(userId, true);
+        }
+    }
+
+    /** Two compatible users join, a tick pairs them inside their bucket so the depth stays constant */
+    @Benchmark
+    public List<Match> enqueueAndPair() {
+        long user = nextUser.get();
+        pool.enqueue(newUser(), preferences(user), NODE);
+        pool.enqueue(newUser(), preferences(user), NODE);
+        return pool.pairWaiting(2);
+    }
+
+    /** A user enters the pool and leaves it again before being matched */
+    @Benchmark
+    public boolean enqueueAndCancel() {
+        String userId = newUser();
+        pool.enqueue(userId, preferences(nextUser.get()), NODE);
+        return pool.cancel(userId);
+    }
+
+    /** The previous handleLookingForMatch: scan every waiting user and take the first one */
+    @Benchmark
+    public String legacyStreamScan() {
+        String userId = newUser();
+        legacyPool.put(userId, true);
+        List<String> availableUsers = legacyPool.entrySet().stream()
+                .filter(entry -> entry.getValue() && !entry.getKey().equals(userId))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        String partner = availableUsers.get(0);
+        legacyPool.remove(userId);
+        legacyPool.remove(partner);
+        legacyPool.put(newUser(), true);
+        return partner;
+    }
+
+    /** Spreads users over a realistic number of language/region/interest buckets */
+    private static MatchPreferences preferences(long user) {
+        return new MatchPreferences(LANGUAGES[(int) (user % LANGUAGES.length)],
+                REGIONS[(int) (user % REGIONS.length)],
+                Set.of(INTERESTS[(int) (user % INTERESTS.length)]));
+    }
+
+    private String newUser() {
+        return "user-" + nextUser.getAndIncrement();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MatchmakingPoolBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.allchat.chat_service.placement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTests {
+
+    private static final int KEYS = 100_000;
+
+    private static final int VIRTUAL_NODES = 128;
+
+    @Test
+    void joiningNodeOnlyTakesKeysFromOthers() {
+        ConsistentHashRing before = ConsistentHashRing.of(List.of("node-1", "node-2", "node-3", "node-4"), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(List.of("node-1", "node-2", "node-3", "node-4", "node-5"), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "user-" + i;
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                assertEquals("node-5", owner, key + " moved between two existing nodes");
+                moved++;
+            }
+        }
+        // About 1/5 of the keys
+        assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.25, "moved " + moved);
+    }
+
+    @Test
+    void leavingNodeOnlyGivesAwayItsOwnKeys() {
+        ConsistentHashRing before = ConsistentHashRing.of(List.of("node-1", "node-2", "node-3", "node-4"), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(List.of("node-1", "node-2", "node-4"), VIRTUAL_NODES);
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = "user-" + i;
+            String owner = before.nodeFor(key);
+            if (!owner.equals("node-3")) {
+                assertEquals(owner, after.nodeFor(key), key + " moved without its node leaving");
+            }
+        }
+    }
+
+    @Test
+    void keysAreSpreadEvenly() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of("node-1", "node-2", "node-3", "node-4"), VIRTUAL_NODES);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.nodeFor("user-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.forEach((node, count) ->
+                assertTrue(count > KEYS / 4 * 0.8 && count < KEYS / 4 * 1.2, node + " owns " + count));
+    }
+
+    @Test
+    void ownershipDoesNotDependOnNodeOrder() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of("node-1", "node-2", "node-3"), VIRTUAL_NODES);
+        ConsistentHashRing shuffled = ConsistentHashRing.of(List.of("node-3", "node-1", "node-2", "node-1"), VIRTUAL_NODES);
+
+        assertEquals(List.of("node-1", "node-2", "node-3"), shuffled.nodes());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.nodeFor("user-" + i), shuffled.nodeFor("user-" + i));
+        }
+    }
+
+    @Test
+    void emptyRingOwnsNothing() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of(), VIRTUAL_NODES);
+
+        assertTrue(ring.isEmpty());
+        assertNull(ring.nodeFor("user-1"));
+        assertThrows(IllegalArgumentException.class, () -> ConsistentHashRing.of(List.of("node-1"), 0));
+    }
+}
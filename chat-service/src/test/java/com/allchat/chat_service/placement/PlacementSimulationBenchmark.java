@@ -0,0 +1,176 @@
+package com.allchat.chat_service.placement;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.allchat.chat_service.matchmaking.InMemoryMatchmakingPool;
+import com.allchat.chat_service.matchmaking.Match;
+import com.allchat.chat_service.matchmaking.MatchPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates users who connect first and are matched afterwards, and counts the frames of each chat that
+ * have to cross the relay because the pair sits on two nodes.
+ *
+ * Every benchmark call is one matchmaking tick: arrivals compatible users connect to their node and enter
+ * the pool, then the pool pairs them. Strategies:
+ * - roundRobin: what a plain load balancer does, every user lands on any node
+ * - sticky: users placed on the ring by user ID, paired in arrival order whatever their node
+ * - colocated: users placed on the ring by user ID, the pool prefers a partner on the same node
+ *   (InMemoryMatchmakingPool as ChatWebSocketHandler feeds it)
+ *
+ * The hop rate is crossNodeFrames / frames from the secondary results. Co-location depends on how many
+ * compatible users a bucket receives per tick, hence the arrivals parameter. Before the benchmarks, main
+ * prints the share of users moved when a node joins or leaves, ring against modulo hashing.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.allchat.chat_service.placement.PlacementSimulationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PlacementSimulationBenchmark {
+
+    /** Signaling and chat frames exchanged during one chat */
+    private static final int FRAMES_PER_CHAT = 40;
+
+    private static final int USERS = 100_000;
+
+    private static final int VIRTUAL_NODES = 160;
+
+    @Param({"4", "16"})
+    private int nodes;
+
+    @Param({"roundRobin", "sticky", "colocated"})
+    private String strategy;
+
+    /** Compatible users entering the pool per tick */
+    @Param({"2", "16", "128"})
+    private int arrivals;
+
+    private String[] users;
+
+    /** Node every user is connected to */
+    private Map<String, String> connectedNode;
+
+    private InMemoryMatchmakingPool pool;
+
+    private int nextUser;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HopCounters {
+        public long frames;
+        public long crossNodeFrames;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = 0;
+            crossNodeFrames = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        users = users(USERS, 42);
+        List<String> nodeIds = nodeIds(nodes);
+        ConsistentHashRing ring = ConsistentHashRing.of(nodeIds, VIRTUAL_NODES);
+        SplittableRandom random = new SplittableRandom(7);
+        connectedNode = new HashMap<>();
+        for (String user : users) {
+            connectedNode.put(user, "roundRobin".equals(strategy)
+                    ? nodeIds.get(random.nextInt(nodes))
+                    : ring.nodeFor(user));
+        }
+        pool = new InMemoryMatchmakingPool(60_000);
+    }
+
+    @Benchmark
+    public void tick(HopCounters counters) {
+        boolean preferSameNode = "colocated".equals(strategy);
+        for (int i = 0; i < arrivals; i++) {
+            String user = users[nextUser];
+            nextUser = (nextUser + 1) % USERS;
+            // Without the node the pool pairs in arrival order, as it did before
+            pool.enqueue(user, MatchPreferences.ANY, preferSameNode ? connectedNode.get(user) : null);
+        }
+        for (Match match : pool.pairWaiting(arrivals + 1)) {
+            counters.frames += FRAMES_PER_CHAT;
+            if (!connectedNode.get(match.first()).equals(connectedNode.get(match.second()))) {
+                counters.crossNodeFrames += FRAMES_PER_CHAT;
+            }
+        }
+    }
+
+    /** Share of users that change node when the cluster goes from `from` to `to` nodes */
+    private static void printRebalance(int from, int to) {
+        String[] users = users(USERS, 43);
+        ConsistentHashRing before = ConsistentHashRing.of(nodeIds(from), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(nodeIds(to), VIRTUAL_NODES);
+        int ringMoved = 0;
+        int moduloMoved = 0;
+        for (String user : users) {
+            if (!before.nodeFor(user).equals(after.nodeFor(user))) {
+                ringMoved++;
+            }
+            int hash = user.hashCode() & Integer.MAX_VALUE;
+            if (hash % from != hash % to) {
+                moduloMoved++;
+            }
+        }
+        System.out.printf("%2d -> %2d nodes: ring moved %5.1f%% of users, modulo moved %5.1f%%, ideal %5.1f%%%n",
+                from, to, 100.0 * ringMoved / USERS, 100.0 * moduloMoved / USERS,
+                100.0 * Math.abs(to - from) / Math.max(from, to));
+    }
+
+    private static String[] users(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] users = new String[count];
+        for (int i = 0; i < count; i++) {
+            users[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+        return users;
+    }
+
+    /** Instance IDs in the form Eureka gives them: host:service:port */
+    private static List<String> nodeIds(int count) {
+        List<String> nodeIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodeIds.add("chat-" + i + ".allchat.internal:chat-service:8093");
+        }
+        return nodeIds;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        printRebalance(4, 5);
+        printRebalance(5, 4);
+        printRebalance(16, 17);
+        printRebalance(17, 16);
+        new Runner(new OptionsBuilder()
+                .include(PlacementSimulationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
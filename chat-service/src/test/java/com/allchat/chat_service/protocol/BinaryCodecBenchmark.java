@@ -0,0 +1,119 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server side cost of routing a frame between two clients of the same protocol, from the bytes read
+ * off the wire to the bytes written to the recipient.
+ *
+ * json: the frame is decoded to a String (as the container does for text frames), the streaming header
+ * parse reads its routing fields and the same TextMessage is encoded to UTF-8 for the recipient.
+ * binary: header decode, peer handle lookup, body copy (the container reuses its buffer) and a new header
+ * for the recipient. Bodies carry the same payload fields.
+ *
+ * main prints the bytes each frame takes on the wire in both protocols before running the benchmarks.
+ * Run with -prof gc to compare allocations per frame as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryCodecBenchmark {
+
+    private static final String FROM = "c9f0f895-fb98-4b91-8b0e-5f3a7d2e6a42";
+
+    private static final String CHAT = "{\"type\":\"chat\",\"message\":\"see you on the other side of the call\"}";
+
+    private static final String[] PEERS = {null, FROM, "8f14e45f-ceea-467a-9b36-1c5a0b7c2d11"};
+
+    @Param({"offer", "ice-candidate", "chat"})
+    private String frame;
+
+    private final FrameHeaderParser frameHeaderParser = new FrameHeaderParser(new ObjectMapper().getFactory());
+
+    private byte[] text;
+
+    private ByteBuffer binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = json(frame).getBytes(StandardCharsets.UTF_8);
+        binary = binaryFrame(frame);
+    }
+
+    @Benchmark
+    public void json(Blackhole blackhole) throws IOException {
+        TextMessage message = new TextMessage(new String(text, StandardCharsets.UTF_8));
+        FrameHeader header = frameHeaderParser.parse(message.getPayload());
+        blackhole.consume(header);
+        blackhole.consume(message.asBytes());
+    }
+
+    @Benchmark
+    public void binary(Blackhole blackhole) throws IOException {
+        BinaryFrameCodec.BinaryFrame decoded = BinaryFrameCodec.decode(binary.duplicate());
+        blackhole.consume(PEERS[decoded.peerHandle()]);
+        PeerFrame peerFrame = PeerFrame.fromBinary(decoded.type(), FROM, decoded.body());
+        BinaryMessage out = BinaryFrameCodec.encode(peerFrame.type(), 1, peerFrame.body());
+        blackhole.consume(out.getPayload());
+    }
+
+    private static String json(String frame) {
+        return switch (frame) {
+            case "offer" -> FrameRoutingBenchmark.OFFER;
+            case "ice-candidate" -> FrameRoutingBenchmark.ICE_CANDIDATE;
+            default -> CHAT;
+        };
+    }
+
+    /**
+     * @return the binary form of a JSON frame: routing fields in the header, payload fields in the body
+     */
+    private static ByteBuffer binaryFrame(String frame) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode body = (ObjectNode) objectMapper.readTree(json(frame));
+        FrameType type = FrameType.fromKey(body.remove("type").asText());
+        body.remove("to");
+        body.remove("from");
+        byte[] bodyBytes = objectMapper.writeValueAsBytes(body);
+        return BinaryFrameCodec.encode(type, 2, ByteBuffer.wrap(bodyBytes)).getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        for (String frame : new String[] {"offer", "ice-candidate", "chat"}) {
+            int jsonBytes = json(frame).getBytes(StandardCharsets.UTF_8).length;
+            int binaryBytes = binaryFrame(frame).remaining();
+            System.out.printf("%-13s json: %5d bytes, binary: %5d bytes (%.0f%% less)%n",
+                    frame, jsonBytes, binaryBytes, 100.0 * (jsonBytes - binaryBytes) / jsonBytes);
+        }
+        new Runner(new OptionsBuilder()
+                .include(BinaryCodecBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,137 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFrameCodecTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void encodedFrameDecodesToTheSameFrame() throws IOException {
+        ByteBuffer body = utf8("{\"candidate\":{\"sdpMid\":\"0\"}}");
+        BinaryMessage message = BinaryFrameCodec.encode(FrameType.ICE_CANDIDATE, 0xFFFE, body);
+
+        BinaryFrameCodec.BinaryFrame frame = BinaryFrameCodec.decode(message.getPayload());
+
+        assertEquals(FrameType.ICE_CANDIDATE, frame.type());
+        assertEquals(0xFFFE, frame.peerHandle());
+        assertEquals(body, frame.body());
+        assertEquals(0, body.position(), "encode must leave the body unchanged");
+    }
+
+    @Test
+    void malformedFramesAreRejected() {
+        assertThrows(IOException.class, () -> BinaryFrameCodec.decode(ByteBuffer.wrap(new byte[] {6, 0, 1, 0})));
+        // Header announces 3 body bytes, 2 follow
+        assertThrows(IOException.class, () -> BinaryFrameCodec.decode(ByteBuffer.wrap(new byte[] {6, 0, 1, 0, 3, '{', '}'})));
+        assertThrows(IllegalArgumentException.class, () -> BinaryFrameCodec.encode(FrameType.CHAT, BinaryFrameCodec.NO_PEER,
+                ByteBuffer.allocate(BinaryFrameCodec.MAX_BODY_LENGTH + 1)));
+    }
+
+    @Test
+    void unknownCodeDecodesToNullType() throws IOException {
+        assertNull(BinaryFrameCodec.decode(ByteBuffer.wrap(new byte[] {(byte) 200, 0, 0, 0, 0})).type());
+    }
+
+    @Test
+    void matchFoundBodyListsEveryHandle() {
+        Map<String, Integer> handles = new LinkedHashMap<>();
+        handles.put("alice", 1);
+        handles.put("bö", 2);
+
+        ByteBuffer body = BinaryFrameCodec.matchFoundBody(handles);
+
+        assertEquals(1, body.getShort());
+        assertEquals(5, body.get());
+        assertEquals("alice", string(body, 5));
+        assertEquals(2, body.getShort());
+        assertEquals(3, body.get());
+        assertEquals("bö", string(body, 3));
+        assertFalse(body.hasRemaining());
+    }
+
+    @Test
+    void binaryBodyBecomesJsonWithTheServersRoutingFields() throws IOException {
+        PeerFrame frame = PeerFrame.fromBinary(FrameType.OFFER, "alice",
+                utf8("{\"type\":\"chat\",\"from\":\"mallory\",\"sdp\":{\"type\":\"offer\",\"sdp\":\"v=0\"}}"));
+
+        JsonNode json = OBJECT_MAPPER.readTree(frame.textMessage().getPayload());
+
+        assertEquals("offer", json.path("type").asText());
+        assertEquals("alice", json.path("from").asText());
+        assertEquals("v=0", json.path("sdp").path("sdp").asText());
+        assertEquals(3, json.size());
+        assertTrue(frame.isBinary());
+    }
+
+    @Test
+    void emptyBinaryBodyBecomesTheRoutingFieldsOnly() throws IOException {
+        PeerFrame frame = PeerFrame.fromBinary(FrameType.CHAT, "alice", ByteBuffer.allocate(0));
+
+        assertEquals(OBJECT_MAPPER.readTree("{\"type\":\"chat\",\"from\":\"alice\"}"),
+                OBJECT_MAPPER.readTree(frame.getPayload()));
+    }
+
+    @Test
+    void bodyThatIsNotOneJsonObjectIsRejected() {
+        for (String body : new String[] {"[1,2]", "\"text\"", "{\"a\":1}{\"b\":2}", "{\"a\":1} x", "{\"a\":", "\u0000"}) {
+            assertThrows(IllegalArgumentException.class, () -> PeerFrame.fromBinary(FrameType.CHAT, "alice", utf8(body)), body);
+        }
+    }
+
+    @Test
+    void chatTextThatIsNotOneJsonObjectIsRejected() throws IOException {
+        for (String text : new String[] {"{\"type\":\"chat\",\"x\":", "{\"type\":\"chat\"}]", "{\"type\":\"chat\"} {}", ""}) {
+            assertThrows(JsonProcessingException.class,
+                    () -> PeerFrame.fromCheckedText(FrameType.CHAT, "alice", new TextMessage(text)), text);
+        }
+        String chat = "{\"type\":\"chat\",\"text\":{\"body\":\"hi\"}}";
+        assertEquals(chat, PeerFrame.fromCheckedText(FrameType.CHAT, "alice", new TextMessage(chat)).getPayload());
+    }
+
+    @Test
+    void binaryBodyIsCopiedFromTheContainersBuffer() {
+        ByteBuffer received = utf8("{\"text\":\"hi\"}");
+        PeerFrame frame = PeerFrame.fromBinary(FrameType.CHAT, "alice", received);
+        received.put(0, (byte) 'x');
+
+        assertEquals(utf8("{\"text\":\"hi\"}"), frame.body());
+    }
+
+    @Test
+    void textFrameKeepsItsPayloadAsBinaryBody() {
+        String payload = "{\"type\":\"chat\",\"to\":\"bob\",\"text\":\"hi\"}";
+        PeerFrame frame = PeerFrame.fromText(FrameType.CHAT, "alice", new TextMessage(payload));
+
+        assertFalse(frame.isBinary());
+        assertEquals(payload, frame.getPayload());
+        assertEquals(utf8(payload), frame.body());
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the control messages sent for one match and one teardown of a 1:1 chat:
+ * the previous createMessage path (ObjectNode, valueToTree, writeValueAsString, a TextMessage per recipient)
+ * against ControlMessageEncoder (template, one shared TextMessage).
+ *
+ * The main method runs with the gc profiler, gc.alloc.rate.norm gives the allocation profile per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControlMessageBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Set<String> group = new HashSet<>(List.of(
+            "8f14e45f-ceea-467a-9b36-1c5a0b7c2d11", "c9f0f895-fb98-4b91-8b0e-5f3a7d2e6a42"));
+
+    private final String initiator = "8f14e45f-ceea-467a-9b36-1c5a0b7c2d11";
+
+    private final String groupId = "45c48cce-2e2d-4fbd-a7d2-0e5f3b1c9a77";
+
+    @Benchmark
+    public void legacyMatchFound(Blackhole blackhole) throws JsonProcessingException {
+        String message = legacyCreateMessage("match-found", group, null);
+        for (String ignored : group) {
+            blackhole.consume(new TextMessage(message));
+        }
+    }
+
+    @Benchmark
+    public void encodedMatchFound(Blackhole blackhole) {
+        TextMessage message = ControlMessageEncoder.matchFound(groupId, group);
+        for (String ignored : group) {
+            blackhole.consume(message);
+        }
+    }
+
+    /** endGroupChat used to encode end-chat again for every user of the group */
+    @Benchmark
+    public void legacyEndChat(Blackhole blackhole) throws JsonProcessingException {
+        for (String ignored : group) {
+            blackhole.consume(new TextMessage(legacyCreateMessage("end-chat", null, initiator)));
+        }
+    }
+
+    @Benchmark
+    public void encodedEndChat(Blackhole blackhole) {
+        TextMessage message = ControlMessageEncoder.endChat(initiator);
+        for (String ignored : group) {
+            blackhole.consume(message);
+        }
+    }
+
+    /** Body of the removed ChatWebSocketHandler.createMessage */
+    private String legacyCreateMessage(String type, Set<String> users, String userId) throws JsonProcessingException {
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("type", type);
+        if (users != null) message.set("users", objectMapper.valueToTree(users));
+        if (userId != null) message.put("userId", userId);
+        return objectMapper.writeValueAsString(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ControlMessageBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,56 @@
+package com.allchat.chat_service.protocol;
+
+import com.allchat.chat_service.session.MessageClass;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameHeaderParserTests {
+
+    private final FrameHeaderParser parser = new FrameHeaderParser(new JsonFactory());
+
+    @Test
+    void signalingFrameIsRoutedPastItsSdp() throws IOException {
+        FrameHeader header = parser.parse("""
+                {"sdp": {"type": "offer", "sdp": "v=0\\r\\no=- 46117 2 IN IP4 127.0.0.1"}, "candidates": [1, [2]],
+                 "type": "offer", "to": "bob", "from": "alice"}""");
+
+        assertEquals(new FrameHeader("offer", "bob", "alice"), header);
+        assertEquals(MessageClass.SIGNALING, header.messageClass());
+    }
+
+    @Test
+    void parsingStopsOnceTheRouteIsKnown() throws IOException {
+        // Anything after the routing fields is never read, even when it is truncated
+        assertEquals(new FrameHeader("chat", null, null), parser.parse("{\"type\": \"chat\", \"text\": \"hel"));
+        assertEquals(new FrameHeader("answer", "bob", "alice"),
+                parser.parse("{\"to\": \"bob\", \"type\": \"answer\", \"from\": \"alice\", \"sdp\": "));
+    }
+
+    @Test
+    void missingOrNonStringTypeIsNull() throws IOException {
+        assertNull(parser.parse("{\"type\": 7, \"to\": \"bob\"}").type());
+        assertNull(parser.parse("{}").type());
+        assertEquals(MessageClass.CONTROL, parser.parse("{\"type\": {\"nested\": \"chat\"}}").messageClass());
+    }
+
+    @Test
+    void controlFramesAreClassified() throws IOException {
+        assertEquals(MessageClass.CHAT, parser.parse("{\"type\": \"chat\"}").messageClass());
+        assertEquals(MessageClass.CONTROL, parser.parse("{\"type\": \"looking-for-match\"}").messageClass());
+        assertEquals(MessageClass.CONTROL, parser.parse("{\"type\": \"unknown\"}").messageClass());
+    }
+
+    @Test
+    void nonObjectFrameIsRejected() {
+        assertThrows(IOException.class, () -> parser.parse("[\"type\", \"chat\"]"));
+        assertThrows(IOException.class, () -> parser.parse("\"chat\""));
+        assertThrows(IOException.class, () -> parser.parse(""));
+        assertThrows(IOException.class, () -> parser.parse("{\"type\" \"chat\"}"));
+    }
+}
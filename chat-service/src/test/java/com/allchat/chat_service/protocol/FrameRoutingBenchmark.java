@@ -0,0 +1,158 @@
+package com.allchat.chat_service.protocol;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of routing a relayed frame: the previous readTree path against the streaming FrameHeaderParser.
+ * Payloads mirror what browsers send: a full SDP offer and a single ICE candidate.
+ *
+ * Run with -prof gc to compare allocations per frame as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameRoutingBenchmark {
+
+    private static final String SDP = String.join("\\r\\n",
+            "v=0",
+            "o=- 4611731400430051336 2 IN IP4 127.0.0.1",
+            "s=-",
+            "t=0 0",
+            "a=group:BUNDLE 0 1",
+            "a=extmap-allow-mixed",
+            "a=msid-semantic: WMS 3b5f5d5c-8c4e-4c55-9d3a-8f0c0d6f1a2b",
+            "m=audio 9 UDP/TLS/RTP/SAVPF 111 63 9 0 8 13 110 126",
+            "c=IN IP4 0.0.0.0",
+            "a=rtcp:9 IN IP4 0.0.0.0",
+            "a=ice-ufrag:Zq3F",
+            "a=ice-pwd:8bBd7yQv0O2G3vTq4p2cYk6H",
+            "a=ice-options:trickle",
+            "a=fingerprint:sha-256 6B:8B:5D:EA:59:04:20:23:29:C8:87:1C:CC:87:32:BE:DD:8C:66:A5:8E:50:55:EA:8C:D3:B6:5C:09:5E:D6:BC",
+            "a=setup:actpass",
+            "a=mid:0",
+            "a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level",
+            "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time",
+            "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01",
+            "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid",
+            "a=sendrecv",
+            "a=msid:3b5f5d5c-8c4e-4c55-9d3a-8f0c0d6f1a2b 6f1d4c2e-7a3b-4e8f-9c1d-2b3a4c5d6e7f",
+            "a=rtcp-mux",
+            "a=rtpmap:111 opus/48000/2",
+            "a=rtcp-fb:111 transport-cc",
+            "a=fmtp:111 minptime=10;useinbandfec=1",
+            "a=rtpmap:63 red/48000/2",
+            "a=fmtp:63 111/111",
+            "a=rtpmap:9 G722/8000",
+            "a=rtpmap:0 PCMU/8000",
+            "a=rtpmap:8 PCMA/8000",
+            "a=rtpmap:13 CN/8000",
+            "a=rtpmap:110 telephone-event/48000",
+            "a=rtpmap:126 telephone-event/8000",
+            "a=ssrc:1457362310 cname:Hq0cB2nV4mT9sLx1",
+            "a=ssrc:1457362310 msid:3b5f5d5c-8c4e-4c55-9d3a-8f0c0d6f1a2b 6f1d4c2e-7a3b-4e8f-9c1d-2b3a4c5d6e7f",
+            "m=video 9 UDP/TLS/RTP/SAVPF 96 97 102 103 104 105 106 107 108 109 127 125 39 40",
+            "c=IN IP4 0.0.0.0",
+            "a=rtcp:9 IN IP4 0.0.0.0",
+            "a=ice-ufrag:Zq3F",
+            "a=ice-pwd:8bBd7yQv0O2G3vTq4p2cYk6H",
+            "a=ice-options:trickle",
+            "a=fingerprint:sha-256 6B:8B:5D:EA:59:04:20:23:29:C8:87:1C:CC:87:32:BE:DD:8C:66:A5:8E:50:55:EA:8C:D3:B6:5C:09:5E:D6:BC",
+            "a=setup:actpass",
+            "a=mid:1",
+            "a=extmap:14 urn:ietf:params:rtp-hdrext:toffset",
+            "a=extmap:13 urn:3gpp:video-orientation",
+            "a=extmap:5 http://www.webrtc.org/experiments/rtp-hdrext/playout-delay",
+            "a=sendrecv",
+            "a=rtcp-mux",
+            "a=rtcp-rsize",
+            "a=rtpmap:96 VP8/90000",
+            "a=rtcp-fb:96 goog-remb",
+            "a=rtcp-fb:96 transport-cc",
+            "a=rtcp-fb:96 ccm fir",
+            "a=rtcp-fb:96 nack",
+            "a=rtcp-fb:96 nack pli",
+            "a=rtpmap:97 rtx/90000",
+            "a=fmtp:97 apt=96",
+            "a=rtpmap:102 H264/90000",
+            "a=fmtp:102 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f",
+            "a=rtpmap:103 rtx/90000",
+            "a=fmtp:103 apt=102",
+            "a=rtpmap:39 AV1/90000",
+            "a=rtpmap:40 rtx/90000",
+            "a=fmtp:40 apt=39",
+            "a=ssrc-group:FID 2231627014 632943048",
+            "a=ssrc:2231627014 cname:Hq0cB2nV4mT9sLx1",
+            "a=ssrc:632943048 cname:Hq0cB2nV4mT9sLx1",
+            "");
+
+    static final String OFFER = "{\"type\":\"offer\",\"to\":\"8f14e45f-ceea-467a-9b36-1c5a0b7c2d11\","
+            + "\"from\":\"c9f0f895-fb98-4b91-8b0e-5f3a7d2e6a42\",\"offer\":{\"type\":\"offer\",\"sdp\":\"" + SDP + "\"}}";
+
+    static final String ICE_CANDIDATE = "{\"type\":\"ice-candidate\",\"to\":\"8f14e45f-ceea-467a-9b36-1c5a0b7c2d11\","
+            + "\"from\":\"c9f0f895-fb98-4b91-8b0e-5f3a7d2e6a42\",\"candidate\":{\"candidate\":"
+            + "\"candidate:842163049 1 udp 1677729535 203.0.113.24 53421 typ srflx raddr 192.168.1.17 rport 53421 "
+            + "generation 0 ufrag Zq3F network-cost 999\",\"sdpMid\":\"0\",\"sdpMLineIndex\":0,"
+            + "\"usernameFragment\":\"Zq3F\"}}";
+
+    @Param({"offer", "ice-candidate"})
+    private String frame;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final FrameHeaderParser frameHeaderParser = new FrameHeaderParser(objectMapper.getFactory());
+
+    private TextMessage message;
+
+    @Setup
+    public void setUp() {
+        message = new TextMessage("offer".equals(frame) ? OFFER : ICE_CANDIDATE);
+    }
+
+    /** Previous path: full tree, field lookups, a new TextMessage for the recipient */
+    @Benchmark
+    public void readTree(Blackhole blackhole) throws IOException {
+        JsonNode jsonNode = objectMapper.readTree(message.getPayload());
+        blackhole.consume(jsonNode.get("type").asText());
+        blackhole.consume(jsonNode.get("to").asText());
+        blackhole.consume(jsonNode.get("from").asText());
+        blackhole.consume(new TextMessage(message.getPayload()));
+    }
+
+    /** Fast path: streaming header, the inbound TextMessage is forwarded as it is */
+    @Benchmark
+    public void streamingHeader(Blackhole blackhole) throws IOException {
+        FrameHeader header = frameHeaderParser.parse(message.getPayload());
+        blackhole.consume(header);
+        blackhole.consume(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FrameRoutingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
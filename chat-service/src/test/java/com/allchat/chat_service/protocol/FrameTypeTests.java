@@ -0,0 +1,26 @@
+package com.allchat.chat_service.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FrameTypeTests {
+
+    @Test
+    void everyTypeIsFoundByKeyAndCode() {
+        for (FrameType type : FrameType.values()) {
+            assertSame(type, FrameType.fromKey(type.key()));
+            assertSame(type, FrameType.fromCode(type.code()));
+        }
+    }
+
+    @Test
+    void unknownKeyOrCodeIsNull() {
+        assertNull(FrameType.fromKey("Chat"));
+        assertNull(FrameType.fromKey(null));
+        assertNull(FrameType.fromCode(0));
+        assertNull(FrameType.fromCode(256));
+        assertNull(FrameType.fromCode(-1));
+    }
+}
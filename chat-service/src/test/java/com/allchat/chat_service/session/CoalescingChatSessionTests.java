@@ -0,0 +1,172 @@
+package com.allchat.chat_service.session;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingChatSessionTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final RecordingSession delegate = new RecordingSession();
+
+    private ChatBatcher batcher;
+
+    @AfterEach
+    void shutdown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void signalingFrameSendsThePendingBatchFirst() throws IOException {
+        ChatSession session = wrap(3_600_000, 32);
+
+        session.send(chat(1), MessageClass.CHAT, 1);
+        session.send(chat(2), MessageClass.CHAT, 1);
+        assertTrue(delegate.sent.isEmpty());
+        session.send(offer(3), MessageClass.SIGNALING, 1);
+
+        assertEquals(2, delegate.sent.size());
+        assertEquals("chat-batch", OBJECT_MAPPER.readTree(delegate.sent.get(0).getPayload().toString()).path("type").asText());
+        assertEquals(List.of(1, 2, 3), sequence());
+    }
+
+    @Test
+    void batchIsSentWhenItsWindowRunsOut() throws Exception {
+        ChatSession session = wrap(10, 32);
+
+        session.send(chat(1), MessageClass.CHAT, 1);
+        for (int i = 0; i < 100 && delegate.sent.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        // A batch of one message is sent as that message
+        assertEquals(List.of(chat(1).getPayload()), delegate.sent.stream().map(WebSocketMessage::getPayload).toList());
+    }
+
+    @Test
+    void fullBatchIsSentAtOnce() {
+        ChatSession session = wrap(3_600_000, 3);
+
+        session.send(chat(1), MessageClass.CHAT, 1);
+        session.send(chat(2), MessageClass.CHAT, 1);
+        assertTrue(delegate.sent.isEmpty());
+        session.send(chat(3), MessageClass.CHAT, 1);
+
+        assertEquals(1, delegate.sent.size());
+    }
+
+    @Test
+    void framesKeepTheirOrderWhileTheTimerFlushes() throws Exception {
+        ChatSession session = wrap(1, 8);
+
+        int frames = 20_000;
+        for (int i = 1; i <= frames; i++) {
+            if (i % 7 == 0) {
+                session.send(offer(i), MessageClass.SIGNALING, 1);
+            } else {
+                session.send(chat(i), MessageClass.CHAT, 1);
+            }
+            if (i % 500 == 0) {
+                // Lets the window of the pending batch run out
+                Thread.sleep(2);
+            }
+        }
+        session.send(offer(frames + 1), MessageClass.SIGNALING, 1);
+
+        List<Integer> sequence = sequence();
+        assertEquals(frames + 1, sequence.size());
+        for (int i = 0; i < sequence.size(); i++) {
+            assertEquals(i + 1, sequence.get(i));
+        }
+    }
+
+    @Test
+    void closedSessionDropsItsBatch() {
+        ChatSession session = wrap(3_600_000, 32);
+
+        session.send(chat(1), MessageClass.CHAT, 1);
+        session.close(CloseStatus.NORMAL);
+
+        assertFalse(session.send(chat(2), MessageClass.CHAT, 1));
+        assertFalse(session.send(offer(3), MessageClass.SIGNALING, 1));
+        assertTrue(delegate.sent.isEmpty());
+        assertTrue(delegate.closed);
+    }
+
+    private ChatSession wrap(long windowMs, int maxMessages) {
+        batcher = new ChatBatcher(new SimpleMeterRegistry(), true, windowMs, maxMessages, 16384);
+        return batcher.wrap(delegate);
+    }
+
+    /**
+     * @return the "seq" of every frame the delegate was sent, batches unpacked
+     */
+    private List<Integer> sequence() throws IOException {
+        List<Integer> sequence = new ArrayList<>();
+        for (WebSocketMessage<?> message : delegate.sent) {
+            JsonNode frame = OBJECT_MAPPER.readTree(message.getPayload().toString());
+            if (frame.path("type").asText().equals("chat-batch")) {
+                frame.path("messages").forEach(chat -> sequence.add(chat.path("seq").asInt()));
+            } else {
+                sequence.add(frame.path("seq").asInt());
+            }
+        }
+        return sequence;
+    }
+
+    private static TextMessage chat(int seq) {
+        return new TextMessage("{\"type\":\"chat\",\"seq\":" + seq + "}");
+    }
+
+    private static TextMessage offer(int seq) {
+        return new TextMessage("{\"type\":\"offer\",\"seq\":" + seq + "}");
+    }
+
+    private static final class RecordingSession implements ChatSession {
+
+        private final List<WebSocketMessage<?>> sent = new CopyOnWriteArrayList<>();
+
+        private volatile boolean closed;
+
+        @Override
+        public String getId() {
+            return "session-1";
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+            sent.add(message);
+            return true;
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+            closed = true;
+        }
+
+        @Override
+        public void discard() {
+            closed = true;
+        }
+    }
+}
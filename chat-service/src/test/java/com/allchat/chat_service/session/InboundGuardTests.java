@@ -0,0 +1,31 @@
+package com.allchat.chat_service.session;
+
+import com.allchat.chat_service.protocol.BinaryFrameCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InboundGuardTests {
+
+    @Test
+    void textFramesFitTheBodyOfABinaryFrame() {
+        assertEquals(BinaryFrameCodec.MAX_BODY_LENGTH, guard(BinaryFrameCodec.MAX_BODY_LENGTH).getMaxTextFrameSize());
+        assertThrows(IllegalArgumentException.class, () -> guard(BinaryFrameCodec.MAX_BODY_LENGTH + 1));
+    }
+
+    @Test
+    void teardownFramesGetThroughAnExhaustedControlBudget() {
+        InboundLimiter limiter = guard(BinaryFrameCodec.MAX_BODY_LENGTH).newLimiter();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(InboundLimiter.Verdict.ACCEPT, limiter.check(MessageClass.CONTROL));
+        }
+        assertEquals(InboundLimiter.Verdict.THROTTLE, limiter.check(MessageClass.CONTROL));
+        assertEquals(InboundLimiter.Verdict.ACCEPT, limiter.checkTeardown());
+    }
+
+    private static InboundGuard guard(int maxTextFrameSize) {
+        return new InboundGuard(new SimpleMeterRegistry(), maxTextFrameSize, 50, 200, 10, 30, 1, 10, 5, 20, 1, 50);
+    }
+}
@@ -0,0 +1,190 @@
+package com.allchat.chat_service.session;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionResumerTests {
+
+    /** Long enough that no window ends unless a test ends it */
+    private static final long NO_EXPIRY_MS = 3_600_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private SessionResumer resumer;
+
+    @AfterEach
+    void shutdown() {
+        resumer.shutdown();
+    }
+
+    @Test
+    void resumedSessionGetsTheKeptFramesThenTheLaterOnes() {
+        resumer = new SessionResumer(meterRegistry, true, NO_EXPIRY_MS, 16);
+        String token = resumer.issueToken("alice");
+        AtomicInteger expirations = new AtomicInteger();
+        ParkedSession parked = resumer.park("alice", "session-1", session -> expirations.incrementAndGet());
+        resumer.startWindow(parked);
+
+        parked.send(frame(1), MessageClass.CHAT, 1);
+        parked.send(frame(2), MessageClass.SIGNALING, 1);
+        assertEquals(1.0, meterRegistry.get("chat.resume.sessions").gauge().value());
+        assertTrue(resumer.tryResume(parked, token));
+        RecordingSession resumed = new RecordingSession();
+        parked.resumeTo(resumed);
+        parked.send(frame(3), MessageClass.CHAT, 1);
+
+        assertEquals(List.of("1", "2", "3"), resumed.payloads());
+        assertEquals(0, expirations.get());
+        assertEquals(1.0, meterRegistry.get("chat.resume.resumed").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("chat.resume.sessions").gauge().value());
+    }
+
+    @Test
+    void wrongTokenEndsTheWindow() {
+        resumer = new SessionResumer(meterRegistry, true, NO_EXPIRY_MS, 16);
+        String oldToken = resumer.issueToken("alice");
+        resumer.issueToken("alice");
+        AtomicInteger expirations = new AtomicInteger();
+        ParkedSession parked = resumer.park("alice", "session-1", session -> expirations.incrementAndGet());
+        resumer.startWindow(parked);
+
+        // The token of an earlier session is no longer valid
+        assertFalse(resumer.tryResume(parked, oldToken));
+        assertFalse(resumer.tryResume(parked, null));
+
+        assertEquals(1, expirations.get());
+        assertFalse(parked.isOpen());
+        assertFalse(parked.send(frame(1), MessageClass.CHAT, 1));
+        assertEquals(1.0, meterRegistry.get("chat.resume.expired").functionCounter().count());
+    }
+
+    @Test
+    void windowExpiresWithoutAResume() throws InterruptedException {
+        resumer = new SessionResumer(meterRegistry, true, 20, 16);
+        String token = resumer.issueToken("alice");
+        CountDownLatch expired = new CountDownLatch(1);
+        ParkedSession parked = resumer.park("alice", "session-1", session -> expired.countDown());
+        resumer.startWindow(parked);
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertFalse(resumer.tryResume(parked, token));
+        assertEquals(0.0, meterRegistry.get("chat.resume.sessions").gauge().value());
+    }
+
+    @Test
+    void fullBufferDropsTheOldestFrame() {
+        resumer = new SessionResumer(meterRegistry, true, NO_EXPIRY_MS, 2);
+        String token = resumer.issueToken("alice");
+        ParkedSession parked = resumer.park("alice", "session-1", session -> { });
+        resumer.startWindow(parked);
+
+        for (int i = 1; i <= 4; i++) {
+            parked.send(frame(i), MessageClass.CHAT, 1);
+        }
+        resumer.tryResume(parked, token);
+        RecordingSession resumed = new RecordingSession();
+        parked.resumeTo(resumed);
+
+        assertEquals(List.of("3", "4"), resumed.payloads());
+        assertEquals(2.0, meterRegistry.get("chat.resume.dropped").tag("class", "chat").functionCounter().count());
+    }
+
+    @Test
+    void onlyDroppedConnectionsAreResumable() {
+        resumer = new SessionResumer(meterRegistry, true, NO_EXPIRY_MS, 16);
+
+        assertTrue(resumer.isResumable(CloseStatus.NO_CLOSE_FRAME.getCode()));
+        assertTrue(resumer.isResumable(CloseStatus.SERVER_ERROR.getCode()));
+        assertTrue(resumer.isResumable(CloseStatus.SESSION_NOT_RELIABLE.getCode()));
+        assertFalse(resumer.isResumable(CloseStatus.NORMAL.getCode()));
+        assertFalse(resumer.isResumable(CloseStatus.GOING_AWAY.getCode()));
+        assertFalse(resumer.isResumable(CloseStatus.BAD_DATA.getCode()));
+        assertFalse(resumer.isResumable(CloseStatus.POLICY_VIOLATION.getCode()));
+
+        SessionResumer disabled = new SessionResumer(new SimpleMeterRegistry(), false, NO_EXPIRY_MS, 16);
+        assertFalse(disabled.isResumable(CloseStatus.NO_CLOSE_FRAME.getCode()));
+        disabled.shutdown();
+    }
+
+    @Test
+    void userWithoutTokenIsNotParked() {
+        resumer = new SessionResumer(meterRegistry, true, NO_EXPIRY_MS, 16);
+        resumer.issueToken("alice");
+        resumer.forgetToken("alice");
+
+        assertNull(resumer.park("alice", "session-1", session -> { }));
+        assertNull(resumer.park("bob", "session-2", session -> { }));
+    }
+
+    @Test
+    void resumeAndExpiryRacingEndTheWindowOnce() throws InterruptedException {
+        resumer = new SessionResumer(meterRegistry, true, 1, 16);
+        for (int i = 0; i < 200; i++) {
+            String token = resumer.issueToken("alice");
+            AtomicInteger expirations = new AtomicInteger();
+            ParkedSession parked = resumer.park("alice", "session-" + i, session -> expirations.incrementAndGet());
+            resumer.startWindow(parked);
+            Thread.sleep(0, (i % 10) * 100_000);
+
+            boolean resumed = resumer.tryResume(parked, token);
+            // An expiry that lost the race does nothing, one that won has run by the time it settled
+            for (int wait = 0; wait < 100 && !resumed && expirations.get() == 0; wait++) {
+                Thread.sleep(1);
+            }
+            assertEquals(resumed ? 0 : 1, expirations.get(), "resumed " + resumed);
+        }
+        assertEquals(0.0, meterRegistry.get("chat.resume.sessions").gauge().value());
+    }
+
+    private static TextMessage frame(int seq) {
+        return new TextMessage(Integer.toString(seq));
+    }
+
+    private static final class RecordingSession implements ChatSession {
+
+        private final List<WebSocketMessage<?>> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getId() {
+            return "session-2";
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public boolean send(WebSocketMessage<?> message, MessageClass messageClass, long receivedAt) {
+            sent.add(message);
+            return true;
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+
+        @Override
+        public void discard() {
+        }
+
+        private List<String> payloads() {
+            return sent.stream().map(message -> message.getPayload().toString()).toList();
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.allchat.profile_service.controller;
 
+import com.allchat.profile_service.dto.FriendPageDto;
 import com.allchat.profile_service.dto.ProfileResponseDto;
+import com.allchat.profile_service.dto.ReactionCountDto;
 import com.allchat.profile_service.dto.ReportDto;
 import com.allchat.profile_service.service.IProfileService;
 import jakarta.validation.constraints.Null;
 import jakarta.ws.rs.Path;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
@@ -45,6 +50,13 @@ public class ProfileController {
         return new ResponseEntity<>(false, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @PatchMapping("/reactions")
+    public ResponseEntity<Boolean> addReactions(@RequestBody List<ReactionCountDto> reactions) throws Exception{
+        boolean reactionsAdded = profileService.addReactions(reactions);
+        if(reactionsAdded) return new ResponseEntity<>(true, HttpStatus.ACCEPTED);
+        return new ResponseEntity<>(false, HttpStatus.NOT_FOUND);
+    }
+
     @PatchMapping("/send-friend-request/{fromId}/{toId}")
     public ResponseEntity<Boolean> sendFriendRequest(@PathVariable String fromId, @PathVariable String toId) throws Exception{
         boolean requestSent = profileService.sendFriendRequest(fromId, toId);
@@ -67,11 +79,25 @@ public class ProfileController {
     }
 
     @GetMapping("/get-friends/{profileId}")
-    public ResponseEntity<List<String>> getFriendIds(@PathVariable String profileId,
-                                                   @RequestParam Integer offset,
-                                                   @RequestParam Integer limit) throws Exception{
-        List<String> profileIds = profileService.getFriendIds(profileId,offset,limit);
-        return new ResponseEntity<>(profileIds, HttpStatus.OK);
+    public ResponseEntity<FriendPageDto> getFriends(@PathVariable String profileId,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(defaultValue = "false") boolean usernames) throws Exception{
+        FriendPageDto friends = profileService.getFriends(profileId,cursor,limit,usernames);
+        return new ResponseEntity<>(friends, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/export-friends/{profileId}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFriends(@PathVariable String profileId) {
+        StreamingResponseBody body = outputStream -> {
+            try {
+                profileService.exportFriendIds(profileId, outputStream);
+            }
+            catch (Exception e){
+                throw new IOException(e);
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
     @PostMapping("/report")
@@ -0,0 +1,10 @@
+package com.allchat.profile_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * @param username only set when usernames were asked for
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FriendDto(String profileId, String username) {
+}
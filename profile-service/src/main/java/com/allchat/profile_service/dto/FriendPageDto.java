@@ -0,0 +1,9 @@
+package com.allchat.profile_service.dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor cursor of the following page, null on the last page
+ */
+public record FriendPageDto(List<FriendDto> friends, String nextCursor) {
+}
@@ -0,0 +1,7 @@
+package com.allchat.profile_service.dto;
+
+/**
+ * Projection of a profile to its username.
+ */
+public record ProfileUsernameDto(String id, String username) {
+}
@@ -0,0 +1,7 @@
+package com.allchat.profile_service.dto;
+
+/**
+ * Likes and dislikes to add to one profile, an entry of a batch of reactions.
+ */
+public record ReactionCountDto(String profileId, long likes, long dislikes) {
+}
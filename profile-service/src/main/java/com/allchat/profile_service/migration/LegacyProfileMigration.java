@@ -0,0 +1,190 @@
+package com.allchat.profile_service.migration;
+
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import com.allchat.profile_service.model.Profile;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves profiles written before the friend_edge collection to the current layout, once, at startup.
+ *
+ * - The embedded friends, sentRequest and receivedRequest lists become friend edges on both profiles, then
+ *   are removed. A friendship wins over a request between the same two profiles, edges to profiles that no
+ *   longer exist are dropped.
+ * - Counters stored as strings (BigInteger) become 64-bit integers with $toLong, so $inc works on them.
+ * - totalFriends of every profile that got friend edges is recounted from its edges.
+ *
+ * Only documents still in the old layout match, running it again does nothing. Off unless
+ * profile.migration.legacy-profiles.enabled is set, it can be turned off once every environment has run it.
+ */
+@Component
+@Slf4j
+public class LegacyProfileMigration implements ApplicationRunner {
+
+    private static final String PROFILE_COLLECTION = "profile";
+
+    private static final List<String> COUNTERS = List.of("totalFriends", "likes", "dislikes");
+
+    private final MongoTemplate mongoTemplate;
+
+    private final boolean enabled;
+
+    /**
+     * Constructor to inject required dependencies
+     * @param mongoTemplate Template for the profile and friend_edge collections
+     * @param enabled Whether to migrate at startup
+     */
+    public LegacyProfileMigration(MongoTemplate mongoTemplate,
+                                  @Value("${profile.migration.legacy-profiles.enabled:false}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long converted = convertCounters();
+        long migrated = migrateFriendLists();
+        log.info("method : run(), message : {} counters converted, {} profiles moved to friend edges", converted, migrated);
+    }
+
+    /**
+     * @return the number of counters converted
+     */
+    long convertCounters() {
+        long converted = 0;
+        for (String counter : COUNTERS) {
+            Query legacy = Query.query(Criteria.where(counter).type(JsonSchemaObject.Type.stringType()));
+            AggregationUpdate toLong = AggregationUpdate.update()
+                    .set(counter).toValue(ConvertOperators.ToLong.toLong("$" + counter));
+            converted += mongoTemplate.updateMulti(legacy, toLong, PROFILE_COLLECTION).getModifiedCount();
+        }
+        return converted;
+    }
+
+    /**
+     * @return the number of profiles whose lists were moved
+     */
+    long migrateFriendLists() {
+        Query legacy = Query.query(new Criteria().orOperator(Criteria.where("friends").exists(true),
+                Criteria.where("sentRequest").exists(true), Criteria.where("receivedRequest").exists(true)));
+        legacy.fields().include("friends", "sentRequest", "receivedRequest");
+        Set<String> befriended = new HashSet<>();
+        long migrated = 0;
+        try (Stream<Document> profiles = mongoTemplate.stream(legacy, Document.class, PROFILE_COLLECTION)) {
+            for (Document profile : (Iterable<Document>) profiles::iterator) {
+                migrate(profile, befriended);
+                migrated++;
+            }
+        }
+        for (String profileId : befriended) {
+            long friends = mongoTemplate.count(Query.query(Criteria.where("ownerId").is(profileId)
+                    .and("type").is(EdgeType.FRIEND)), FriendEdge.class);
+            mongoTemplate.updateFirst(byId(profileId), new Update().set("totalFriends", friends), Profile.class);
+        }
+        return migrated;
+    }
+
+    private void migrate(Document profile, Set<String> befriended) {
+        String profileId = profile.get("_id").toString();
+        List<String> friends = peers(profile, "friends", Set.of(profileId));
+        // A friend also listed as a request is only a friend
+        Set<String> skipped = new HashSet<>(friends);
+        skipped.add(profileId);
+        List<String> sent = peers(profile, "sentRequest", skipped);
+        List<String> received = peers(profile, "receivedRequest", skipped);
+        Set<String> existing = existing(friends, sent, received);
+
+        BulkOperations edges = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FriendEdge.class);
+        Instant now = Instant.now();
+        boolean empty = true;
+        for (String friendId : friends) {
+            if (existing.contains(friendId)) {
+                edges.upsert(pair(profileId, friendId), befriend(now));
+                edges.upsert(pair(friendId, profileId), befriend(now));
+                befriended.add(profileId);
+                befriended.add(friendId);
+                empty = false;
+            }
+        }
+        for (String toId : sent) {
+            if (existing.contains(toId)) {
+                edges.upsert(pair(profileId, toId), request(EdgeType.SENT_REQUEST, now));
+                edges.upsert(pair(toId, profileId), request(EdgeType.RECEIVED_REQUEST, now));
+                empty = false;
+            }
+        }
+        for (String fromId : received) {
+            if (existing.contains(fromId)) {
+                edges.upsert(pair(profileId, fromId), request(EdgeType.RECEIVED_REQUEST, now));
+                edges.upsert(pair(fromId, profileId), request(EdgeType.SENT_REQUEST, now));
+                empty = false;
+            }
+        }
+        // An empty bulk write is rejected by the driver
+        if (!empty) {
+            edges.execute();
+        }
+        // Removed only once its edges are written, a failure leaves the profile to the next run
+        mongoTemplate.updateFirst(byId(profileId),
+                new Update().unset("friends").unset("sentRequest").unset("receivedRequest"), Profile.class);
+    }
+
+    private static List<String> peers(Document profile, String list, Set<String> skipped) {
+        List<String> peers = profile.getList(list, String.class, List.of());
+        return peers.stream().filter(peerId -> peerId != null && !skipped.contains(peerId)).distinct().toList();
+    }
+
+    private Set<String> existing(List<String> friends, List<String> sent, List<String> received) {
+        List<String> peerIds = new ArrayList<>(friends);
+        peerIds.addAll(sent);
+        peerIds.addAll(received);
+        if (peerIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = Query.query(Criteria.where("id").in(peerIds));
+        query.fields().include("id");
+        return mongoTemplate.find(query, Profile.class).stream().map(Profile::getId).collect(Collectors.toSet());
+    }
+
+    /** A friendship replaces a request between the two */
+    private static Update befriend(Instant now) {
+        return new Update().set("type", EdgeType.FRIEND).setOnInsert("createdAt", now);
+    }
+
+    /** A request never replaces a friendship or another request */
+    private static Update request(EdgeType type, Instant now) {
+        return new Update().setOnInsert("type", type).setOnInsert("createdAt", now);
+    }
+
+    private static Query pair(String ownerId, String peerId) {
+        return Query.query(Criteria.where("ownerId").is(ownerId).and("peerId").is(peerId));
+    }
+
+    private static Query byId(String profileId) {
+        return Query.query(Criteria.where("id").is(profileId));
+    }
+}
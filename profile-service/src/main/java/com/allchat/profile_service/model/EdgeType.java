@@ -0,0 +1,10 @@
+package com.allchat.profile_service.model;
+
+/**
+ * Kind of a {@link FriendEdge}, seen from its owner.
+ */
+public enum EdgeType {
+    FRIEND,
+    SENT_REQUEST,
+    RECEIVED_REQUEST
+}
@@ -0,0 +1,37 @@
+package com.allchat.profile_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One side of a friendship or friend request. Every relation is kept twice, once per profile, so each
+ * profile's friends and requests are listed from the owner_type_peer index alone: a friendship as a
+ * FRIEND edge on both profiles, a request as SENT_REQUEST on the sender and RECEIVED_REQUEST on the receiver.
+ *
+ * A profile has at most one edge to another, an accepted request turns into the friendship.
+ */
+@Document(value = "friend_edge")
+@CompoundIndex(name = "owner_peer", def = "{ 'ownerId': 1, 'peerId': 1 }", unique = true)
+@CompoundIndex(name = "owner_type_peer", def = "{ 'ownerId': 1, 'type': 1, 'peerId': 1 }")
+@CompoundIndex(name = "peer_type", def = "{ 'peerId': 1, 'type': 1 }")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FriendEdge {
+
+    @Id
+    private String id;
+
+    private String ownerId;
+    private String peerId;
+    private EdgeType type;
+    private Instant createdAt;
+}
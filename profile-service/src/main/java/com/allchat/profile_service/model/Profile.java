@@ -7,9 +7,6 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.math.BigInteger;
-import java.util.List;
-
 @Document(value = "profile")
 @Data
 @AllArgsConstructor
@@ -23,31 +20,10 @@ public class Profile {
     private String userId;
 
     private String username;
-    private BigInteger totalFriends;
-    private BigInteger likes;
-    private BigInteger dislikes;
+    // Counters are plain 64-bit integers rather than BigInteger, which is stored as a string Mongo cannot $inc
+    private Long totalFriends;
+    private Long likes;
+    private Long dislikes;
     private boolean paid;
     private String profilePictureURL;
-
-    private List<String> friends;
-    private List<String> sentRequest;
-    private List<String> receivedRequest;
-
-    public void addFriend(String id){
-        friends.add(id);
-        setTotalFriends(getTotalFriends().add(BigInteger.ONE));
-    }
-
-    public void removeFriend(String id){
-        friends.remove(id);
-        setTotalFriends(getTotalFriends().subtract(BigInteger.ONE));
-    }
-
-    public void addSentRequest(String id){ sentRequest.add(id); }
-
-    public void removeSentRequest(String id){ sentRequest.remove(id); }
-
-    public void addReceivedRequest(String id){ receivedRequest.add(id); }
-
-    public void removeReceivedRequest(String id){ receivedRequest.remove(id); }
 }
@@ -0,0 +1,24 @@
+package com.allchat.profile_service.repository;
+
+import com.allchat.profile_service.model.EdgeType;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads of peer IDs answered from the owner_type_peer index alone: the projection holds only peerId,
+ * so Mongo never loads an edge document and a page costs the same at any depth.
+ */
+public interface FriendEdgeQueryRepository {
+
+    /**
+     * @param afterPeerId last peer ID of the previous page, null for the first page
+     * @return up to limit peer IDs after afterPeerId, in ID order
+     */
+    List<String> findPeerIds(String ownerId, EdgeType type, String afterPeerId, int limit);
+
+    /**
+     * Every peer ID in ID order, read through a cursor. The stream must be closed.
+     */
+    Stream<String> streamPeerIds(String ownerId, EdgeType type);
+}
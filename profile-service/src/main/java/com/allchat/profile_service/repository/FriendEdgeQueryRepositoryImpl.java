@@ -0,0 +1,42 @@
+package com.allchat.profile_service.repository;
+
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class FriendEdgeQueryRepositoryImpl implements FriendEdgeQueryRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<String> findPeerIds(String ownerId, EdgeType type, String afterPeerId, int limit) {
+        Criteria criteria = Criteria.where("ownerId").is(ownerId).and("type").is(type);
+        if (afterPeerId != null) {
+            criteria = criteria.and("peerId").gt(afterPeerId);
+        }
+        return mongoTemplate.find(peerIds(criteria).limit(limit), FriendEdge.class).stream()
+                .map(FriendEdge::getPeerId)
+                .toList();
+    }
+
+    @Override
+    public Stream<String> streamPeerIds(String ownerId, EdgeType type) {
+        return mongoTemplate.stream(peerIds(Criteria.where("ownerId").is(ownerId).and("type").is(type)), FriendEdge.class)
+                .map(FriendEdge::getPeerId);
+    }
+
+    private static Query peerIds(Criteria criteria) {
+        Query query = Query.query(criteria).with(Sort.by("peerId"));
+        // _id is not in the index, leaving it out keeps the query covered
+        query.fields().include("peerId").exclude("_id");
+        return query;
+    }
+}
@@ -0,0 +1,17 @@
+package com.allchat.profile_service.repository;
+
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface FriendEdgeRepository extends MongoRepository<FriendEdge, String>, FriendEdgeWriteRepository,
+        FriendEdgeQueryRepository {
+
+    List<FriendEdge> findByPeerIdAndType(String peerId, EdgeType type);
+
+    long deleteByOwnerId(String ownerId);
+
+    long deleteByPeerId(String peerId);
+}
@@ -0,0 +1,29 @@
+package com.allchat.profile_service.repository;
+
+/**
+ * Friend request flows, each one Mongo transaction of targeted updates on the two profiles' edges and
+ * friend counts, with no document loaded. Every flow is idempotent: repeating it after it succeeded,
+ * as a client retry would, changes nothing.
+ *
+ * Both sides of a pair are written in every flow, so two flows on the same pair running at once
+ * conflict and one of them is retried after the other committed. Requires a replica set.
+ */
+public interface FriendEdgeWriteRepository {
+
+    /**
+     * Sends a friend request, or starts the friendship if the other profile already sent one.
+     * @return false if either profile does not exist
+     */
+    boolean sendRequest(String fromId, String toId);
+
+    /**
+     * Accepts the request fromId sent to toId.
+     * @return false if there is no such request and the two are not friends
+     */
+    boolean acceptRequest(String fromId, String toId);
+
+    /**
+     * Ends a friendship, if there is one.
+     */
+    void removeFriendship(String profileId, String friendId);
+}
@@ -0,0 +1,126 @@
+package com.allchat.profile_service.repository;
+
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import com.allchat.profile_service.model.Profile;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+@Slf4j
+public class FriendEdgeWriteRepositoryImpl implements FriendEdgeWriteRepository {
+
+    /** Code of the error a standalone server answers a transaction with */
+    private static final int ILLEGAL_OPERATION = 20;
+
+    private static final Update BECOME_FRIENDS = new Update().set("type", EdgeType.FRIEND);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final MongoClient mongoClient;
+
+    @Override
+    public boolean sendRequest(String fromId, String toId) {
+        return inTransaction(operations -> {
+            if (operations.count(Query.query(Criteria.where("id").in(fromId, toId)), Profile.class) < 2) {
+                return false;
+            }
+            if (operations.updateFirst(edge(toId, fromId, EdgeType.SENT_REQUEST), BECOME_FRIENDS, FriendEdge.class)
+                    .getModifiedCount() > 0) {
+                // Both asked, a request back is as good as an accept
+                operations.updateFirst(edge(fromId, toId, EdgeType.RECEIVED_REQUEST), BECOME_FRIENDS, FriendEdge.class);
+                incrementTotalFriends(operations, fromId, toId, 1);
+                return true;
+            }
+            // Inserts only, a pending request or a friendship between the two stays as it is
+            Instant now = Instant.now();
+            operations.upsert(pair(fromId, toId),
+                    new Update().setOnInsert("type", EdgeType.SENT_REQUEST).setOnInsert("createdAt", now), FriendEdge.class);
+            operations.upsert(pair(toId, fromId),
+                    new Update().setOnInsert("type", EdgeType.RECEIVED_REQUEST).setOnInsert("createdAt", now), FriendEdge.class);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean acceptRequest(String fromId, String toId) {
+        return inTransaction(operations -> {
+            if (operations.updateFirst(edge(toId, fromId, EdgeType.RECEIVED_REQUEST), BECOME_FRIENDS, FriendEdge.class)
+                    .getModifiedCount() > 0) {
+                operations.updateFirst(edge(fromId, toId, EdgeType.SENT_REQUEST), BECOME_FRIENDS, FriendEdge.class);
+                incrementTotalFriends(operations, fromId, toId, 1);
+                return true;
+            }
+            return operations.exists(edge(toId, fromId, EdgeType.FRIEND), FriendEdge.class);
+        });
+    }
+
+    @Override
+    public void removeFriendship(String profileId, String friendId) {
+        inTransaction(operations -> {
+            Query friendship = Query.query(new Criteria().orOperator(
+                    edgeCriteria(profileId, friendId, EdgeType.FRIEND), edgeCriteria(friendId, profileId, EdgeType.FRIEND)));
+            if (operations.remove(friendship, FriendEdge.class).getDeletedCount() > 0) {
+                incrementTotalFriends(operations, profileId, friendId, -1);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Transactions need MongoDB running as a replica set (a single node one will do) or behind mongos,
+     * see the README for a local setup.
+     */
+    private <T> T inTransaction(Function<MongoOperations, T> body) {
+        try (ClientSession session = mongoClient.startSession()) {
+            // withTransaction retries on write conflicts with a concurrent flow on the same pair
+            return session.withTransaction(() -> {
+                try {
+                    return body.apply(mongoTemplate.withSession(session));
+                } catch (DataAccessException e) {
+                    // The driver retries by the error labels of its own exception, which the translation hides
+                    if (e.getCause() instanceof MongoException cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            });
+        } catch (MongoException e) {
+            if (e.getCode() == ILLEGAL_OPERATION) {
+                log.error("method : inTransaction(), message : MongoDB is not a replica set, friend requests need transactions : {}",
+                        e.getMessage());
+                throw new IllegalStateException("MongoDB must run as a replica set for friend requests", e);
+            }
+            throw e;
+        }
+    }
+
+    private static void incrementTotalFriends(MongoOperations operations, String profileId, String friendId, long delta) {
+        operations.updateMulti(Query.query(Criteria.where("id").in(profileId, friendId)),
+                new Update().inc("totalFriends", delta), Profile.class);
+    }
+
+    private static Query pair(String ownerId, String peerId) {
+        return Query.query(Criteria.where("ownerId").is(ownerId).and("peerId").is(peerId));
+    }
+
+    private static Query edge(String ownerId, String peerId, EdgeType type) {
+        return Query.query(edgeCriteria(ownerId, peerId, type));
+    }
+
+    private static Criteria edgeCriteria(String ownerId, String peerId, EdgeType type) {
+        return Criteria.where("ownerId").is(ownerId).and("peerId").is(peerId).and("type").is(type);
+    }
+}
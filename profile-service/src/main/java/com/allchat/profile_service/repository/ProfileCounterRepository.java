@@ -0,0 +1,31 @@
+package com.allchat.profile_service.repository;
+
+import com.allchat.profile_service.dto.ReactionCountDto;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counter updates of profiles done by Mongo itself with $inc, without fetching and saving the document.
+ */
+public interface ProfileCounterRepository {
+
+    /**
+     * Adds likes and dislikes to a profile in one round trip.
+     * @return false if no profile has the ID
+     */
+    boolean incrementReactions(String profileId, long likes, long dislikes);
+
+    /**
+     * Adds a batch of reactions in one unordered bulk write.
+     * Reactions with no likes and no dislikes are skipped, the error indexes of a
+     * BulkOperationException only count the others.
+     * @return the number of profiles found
+     */
+    long incrementReactions(List<ReactionCountDto> reactions);
+
+    /**
+     * Adds delta to the friend count of every given profile in one update.
+     */
+    void incrementTotalFriends(Collection<String> profileIds, long delta);
+}
@@ -0,0 +1,57 @@
+package com.allchat.profile_service.repository;
+
+import com.allchat.profile_service.dto.ReactionCountDto;
+import com.allchat.profile_service.model.Profile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ProfileCounterRepositoryImpl implements ProfileCounterRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean incrementReactions(String profileId, long likes, long dislikes) {
+        return mongoTemplate.updateFirst(byId(profileId), increment(likes, dislikes), Profile.class)
+                .getMatchedCount() > 0;
+    }
+
+    @Override
+    public long incrementReactions(List<ReactionCountDto> reactions) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Profile.class);
+        boolean empty = true;
+        for (ReactionCountDto reaction : reactions) {
+            if (reaction.likes() == 0 && reaction.dislikes() == 0) {
+                continue;
+            }
+            operations.updateOne(byId(reaction.profileId()), increment(reaction.likes(), reaction.dislikes()));
+            empty = false;
+        }
+        // An empty bulk write is rejected by the driver
+        return empty ? 0 : operations.execute().getMatchedCount();
+    }
+
+    @Override
+    public void incrementTotalFriends(Collection<String> profileIds, long delta) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(profileIds)), new Update().inc("totalFriends", delta),
+                Profile.class);
+    }
+
+    private static Query byId(String profileId) {
+        return Query.query(Criteria.where("id").is(profileId));
+    }
+
+    private static Update increment(long likes, long dislikes) {
+        Update update = new Update();
+        if (likes != 0) update.inc("likes", likes);
+        if (dislikes != 0) update.inc("dislikes", dislikes);
+        return update;
+    }
+}
@@ -1,13 +1,13 @@
 package com.allchat.profile_service.repository;
 
+import com.allchat.profile_service.dto.ProfileUsernameDto;
 import com.allchat.profile_service.model.Profile;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
-public interface ProfileRepository extends MongoRepository<Profile, String> {
+public interface ProfileRepository extends MongoRepository<Profile, String>, ProfileCounterRepository {
 
-    @Query(value = "{ 'profileId': ?0 }", fields = "{ 'friends': { $slice: [?1, ?2] }, '_id': 0 }")
-    Optional<String> getFriendIds(String profileId, Integer offset, Integer limit);
+    List<ProfileUsernameDto> findByIdIn(Collection<String> ids);
 }
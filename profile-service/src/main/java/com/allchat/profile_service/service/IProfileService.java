@@ -1,9 +1,12 @@
 package com.allchat.profile_service.service;
 
+import com.allchat.profile_service.dto.FriendPageDto;
 import com.allchat.profile_service.dto.ProfileResponseDto;
+import com.allchat.profile_service.dto.ReactionCountDto;
 import com.allchat.profile_service.dto.ReportDto;
 import com.allchat.profile_service.model.Profile;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IProfileService {
@@ -16,13 +19,17 @@ public interface IProfileService {
 
     Boolean addDislike(String profileId) throws Exception;
 
+    Boolean addReactions(List<ReactionCountDto> reactions) throws Exception;
+
     Boolean sendFriendRequest(String fromId, String toId) throws Exception;
 
     Boolean acceptFriendRequest(String fromId, String toId) throws Exception;
 
     Boolean removeFriend(String profileId, String friendId) throws Exception;
 
-    List<String> getFriendIds(String profileId, Integer offset, Integer limit) throws Exception;
+    FriendPageDto getFriends(String profileId, String cursor, Integer limit, boolean withUsernames) throws Exception;
+
+    void exportFriendIds(String profileId, OutputStream outputStream) throws Exception;
 
     Boolean report(ReportDto reportDto) throws Exception;
 
@@ -1,10 +1,17 @@
 package com.allchat.profile_service.service.impl;
 
+import com.allchat.profile_service.dto.FriendDto;
+import com.allchat.profile_service.dto.FriendPageDto;
 import com.allchat.profile_service.dto.ProfileResponseDto;
+import com.allchat.profile_service.dto.ProfileUsernameDto;
+import com.allchat.profile_service.dto.ReactionCountDto;
 import com.allchat.profile_service.dto.ReportDto;
 import com.allchat.profile_service.exception.NoSuchProfileException;
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
 import com.allchat.profile_service.model.Profile;
 import com.allchat.profile_service.model.Report;
+import com.allchat.profile_service.repository.FriendEdgeRepository;
 import com.allchat.profile_service.repository.ReportRepository;
 import com.allchat.profile_service.service.IProfileService;
 import com.allchat.profile_service.repository.ProfileRepository;
@@ -17,14 +24,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
-import java.math.BigInteger;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.http.HttpRequest;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -33,11 +48,16 @@ public class ProfileService implements IProfileService {
 
     private final ProfileRepository profileRepository;
     private final ReportRepository reportRepository;
+    private final FriendEdgeRepository friendEdgeRepository;
+    private final ReactionAggregator reactionAggregator;
 
     private final ModelMapper modelMapper;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final int DEFAULT_FRIENDS_PAGE = 50;
+    private static final int MAX_FRIENDS_PAGE = 500;
+
     /**
      *
      * @param userId
@@ -51,17 +71,17 @@ public class ProfileService implements IProfileService {
         try{
 
             Profile profile = Profile.builder()
-                    .totalFriends(new BigInteger("0"))
+                    .totalFriends(0L)
                     .username(generateUsername())
                     .paid(false)
-                    .likes(new BigInteger("0"))
-                    .dislikes(new BigInteger("0"))
+                    .likes(0L)
+                    .dislikes(0L)
                     .profilePictureURL("")
                     .userId(userId)
                     .build();
             profileRepository.save(profile);
             log.info("Profile created");
-            return modelMapper.map(profile,ProfileResponseDto.class);
+            return toResponse(profile);
         }
         catch (Exception e){
             throw new Exception();
@@ -75,7 +95,7 @@ public class ProfileService implements IProfileService {
                 throw new NoSuchProfileException("No profile found");
             }
             log.info("Profile fetched");
-            return modelMapper.map(optionalProfile.get(), ProfileResponseDto.class);
+            return toResponse(optionalProfile.get());
         }
         catch (Exception e){
             throw new Exception();
@@ -84,14 +104,10 @@ public class ProfileService implements IProfileService {
 
     public Boolean addLike(String profileId) throws Exception{
         try{
-            Optional<Profile> optionalProfile = profileRepository.findById(profileId);
-            if(optionalProfile.isEmpty()){
+            if(!reactionAggregator.add(profileId, 1, 0)){
                 log.error("method : addLike(String profileId), message : no profile found");
                 throw new Exception("No profile found");
             }
-            log.info("profile fetched");
-            optionalProfile.get().setLikes(optionalProfile.get().getLikes().add(BigInteger.ONE));
-            profileRepository.save(optionalProfile.get());
             log.info("like added");
             return true;
         }
@@ -102,14 +118,10 @@ public class ProfileService implements IProfileService {
 
     public Boolean addDislike(String profileId) throws Exception{
         try{
-            Optional<Profile> optionalProfile = profileRepository.findById(profileId);
-            if(optionalProfile.isEmpty()){
+            if(!reactionAggregator.add(profileId, 0, 1)){
                 log.error("method : addDislike(String profileId), message : no profile found");
                 throw new Exception("No profile found");
             }
-            log.info("profile fetched");
-            optionalProfile.get().setDislikes(optionalProfile.get().getDislikes().add(BigInteger.ONE));
-            profileRepository.save(optionalProfile.get());
             log.info("disliked added");
             return true;
         }
@@ -118,17 +130,37 @@ public class ProfileService implements IProfileService {
         }
     }
 
+    /**
+     *
+     * @param reactions likes and dislikes to add, per profile
+     * @return true if every profile was found
+     * @throws Exception
+     *
+     * Reactions for profiles that do not exist are skipped, the others are still added
+     */
+    public Boolean addReactions(List<ReactionCountDto> reactions) throws Exception{
+        try{
+            long profiles = reactions.stream().filter(r -> r.likes() != 0 || r.dislikes() != 0).count();
+            long matched = profileRepository.incrementReactions(reactions);
+            if(matched < profiles){
+                log.error("method : addReactions(List<ReactionCountDto> reactions), message : {} of {} profiles not found",
+                        profiles - matched, profiles);
+                return false;
+            }
+            log.info("reactions added");
+            return true;
+        }
+        catch (Exception e){
+            throw new Exception();
+        }
+    }
+
     public Boolean sendFriendRequest(String fromId, String toId) throws Exception{
         try{
-            Optional<Profile> fromProfile = profileRepository.findById(fromId);
-            Optional<Profile> toProfile = profileRepository.findById(toId);
-            if (fromProfile.isEmpty() || toProfile.isEmpty()){
+            if (fromId.equals(toId) || !friendEdgeRepository.sendRequest(fromId, toId)){
                 log.error("method : sendFriendRequest(String fromId, String toId), message : no profile found");
                 throw new Exception("No profile found");
             }
-            log.info("profile fetched");
-            fromProfile.get().addSentRequest(toId);
-            toProfile.get().addReceivedRequest(fromId);
             log.info("request sent");
             return true;
         }
@@ -139,17 +171,10 @@ public class ProfileService implements IProfileService {
 
     public Boolean acceptFriendRequest(String fromId, String toId) throws Exception{
         try{
-            Optional<Profile> fromProfile = profileRepository.findById(fromId);
-            Optional<Profile> toProfile = profileRepository.findById(toId);
-            if (fromProfile.isEmpty() || toProfile.isEmpty()){
-                log.error("method : acceptFriendRequest(String fromId, String toId), message : no profile found");
-                throw new Exception("No profile found");
+            if (!friendEdgeRepository.acceptRequest(fromId, toId)){
+                log.error("method : acceptFriendRequest(String fromId, String toId), message : no friend request found");
+                throw new Exception("No friend request found");
             }
-            log.info("profile fetched");
-            fromProfile.get().addFriend(toId);
-            toProfile.get().addFriend(fromId);
-            fromProfile.get().removeSentRequest(toId);
-            toProfile.get().removeReceivedRequest(fromId);
             log.info("friendship started");
             return true;
         }
@@ -160,15 +185,7 @@ public class ProfileService implements IProfileService {
 
     public Boolean removeFriend(String profileId, String friendId) throws Exception{
         try{
-            Optional<Profile> optionalProfile = profileRepository.findById(profileId);
-            Optional<Profile> optionalFriend = profileRepository.findById(friendId);
-            if (optionalProfile.isEmpty() || optionalFriend.isEmpty()){
-                log.error("method : removeFriend(String profileId, String friendId), message : no profile found");
-                throw new Exception("No profile found");
-            }
-            log.info("profile fetched");
-            optionalProfile.get().removeFriend(friendId);
-            optionalFriend.get().removeFriend(profileId);
+            friendEdgeRepository.removeFriendship(profileId, friendId);
             log.info("friendship over!!");
             return true;
         }
@@ -177,16 +194,57 @@ public class ProfileService implements IProfileService {
         }
     }
 
-    public List<String> getFriendIds(String profileId, Integer offset, Integer limit) throws Exception{
+    /**
+     *
+     * @param profileId
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit friends per page, at most MAX_FRIENDS_PAGE
+     * @param withUsernames also fetch the friends' usernames, in one more query
+     * @return friends in ID order
+     * @throws Exception
+     */
+    public FriendPageDto getFriends(String profileId, String cursor, Integer limit, boolean withUsernames) throws Exception{
         try {
-            Optional<String> friends = profileRepository.getFriendIds(profileId,offset,limit);
-            if (friends.isEmpty()) {
-                log.error("method : getFriends(String profileId, Integer offset, Integer limit)," +
-                        "message : no profile found");
-                throw new Exception("No profile ids found");
+            int pageSize = Math.clamp(limit == null ? DEFAULT_FRIENDS_PAGE : limit, 1, MAX_FRIENDS_PAGE);
+            String after = cursor == null ? null : new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // One more than asked for tells whether another page follows
+            List<String> friendIds = friendEdgeRepository.findPeerIds(profileId, EdgeType.FRIEND, after, pageSize + 1);
+            String nextCursor = null;
+            if (friendIds.size() > pageSize) {
+                friendIds = friendIds.subList(0, pageSize);
+                nextCursor = Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(friendIds.getLast().getBytes(StandardCharsets.UTF_8));
             }
-            log.info("profile ids fetched");
-            return Collections.singletonList(friends.get());
+            Map<String, String> usernames = withUsernames && !friendIds.isEmpty()
+                    ? profileRepository.findByIdIn(friendIds).stream()
+                            .collect(Collectors.toMap(ProfileUsernameDto::id, ProfileUsernameDto::username))
+                    : Map.of();
+            List<FriendDto> friends = friendIds.stream()
+                    .map(friendId -> new FriendDto(friendId, usernames.get(friendId)))
+                    .toList();
+            log.info("friends fetched");
+            return new FriendPageDto(friends, nextCursor);
+        }
+        catch (Exception e){
+            throw new Exception();
+        }
+    }
+
+    /**
+     *
+     * @param profileId
+     * @param outputStream receives every friend ID in ID order, one per line
+     * @throws Exception
+     */
+    public void exportFriendIds(String profileId, OutputStream outputStream) throws Exception{
+        try (Stream<String> friendIds = friendEdgeRepository.streamPeerIds(profileId, EdgeType.FRIEND)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            for (Iterator<String> iterator = friendIds.iterator(); iterator.hasNext(); ) {
+                writer.write(iterator.next());
+                writer.write('\n');
+            }
+            writer.flush();
+            log.info("friend ids exported");
         }
         catch (Exception e){
             throw new Exception();
@@ -214,6 +272,14 @@ public class ProfileService implements IProfileService {
                 throw new Exception("No profile ids found");
             }
             log.info("profile ids fetched");
+            List<String> friendIds = friendEdgeRepository.findByPeerIdAndType(profileId, EdgeType.FRIEND).stream()
+                    .map(FriendEdge::getOwnerId)
+                    .toList();
+            if (!friendIds.isEmpty()) {
+                profileRepository.incrementTotalFriends(friendIds, -1);
+            }
+            friendEdgeRepository.deleteByOwnerId(profileId);
+            friendEdgeRepository.deleteByPeerId(profileId);
             profileRepository.deleteById(profileId);
             log.info("profile deleted");
             return true;
@@ -225,6 +291,20 @@ public class ProfileService implements IProfileService {
 
     public String getUsername() throws Exception { return  generateUsername(); }
 
+    // ModelMapper cannot instantiate the record
+    private static ProfileResponseDto toResponse(Profile profile) {
+        return ProfileResponseDto.builder()
+                .id(profile.getId())
+                .userId(profile.getUserId())
+                .username(profile.getUsername())
+                .totalFriends(profile.getTotalFriends())
+                .likes(profile.getLikes())
+                .dislikes(profile.getDislikes())
+                .paid(profile.isPaid())
+                .profilePictureURL(profile.getProfilePictureURL())
+                .build();
+    }
+
     private String generateUsername() throws Exception {
         JsonNode jsonNode = objectMapper.readTree(new URI("https://usernameapiv1.vercel.app/api/random-usernames").toURL()).path("usernames");
         StringBuilder username = new StringBuilder();
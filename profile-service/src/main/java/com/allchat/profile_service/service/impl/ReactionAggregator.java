@@ -0,0 +1,270 @@
+package com.allchat.profile_service.service.impl;
+
+import com.allchat.profile_service.dto.ReactionCountDto;
+import com.allchat.profile_service.repository.ProfileRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoOperationTimeoutException;
+import com.mongodb.MongoServerUnavailableException;
+import com.mongodb.MongoSocketOpenException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for likes and dislikes: reactions are summed in memory per profile and written
+ * periodically as one unordered bulk write of $inc updates, so a burst of reactions to a popular profile
+ * costs one write instead of one per reaction.
+ *
+ * Reactions are added inside ConcurrentHashMap.compute, which locks only the profile's bin, and a flush
+ * takes a profile's sums out with remove on the same bin, so no reaction is lost between the two.
+ *
+ * A flush runs every flush-interval-ms, as soon as flush-threshold profiles are pending, and at shutdown.
+ * Once max-pending profiles are pending, reactions to other profiles are written through at once
+ * rather than held.
+ *
+ * A failed flush only puts back the sums it knows were not written, to be retried with the next one:
+ * - a bulk write error: the write is unordered, only the operations with an error were not applied
+ * - no connection to a server: nothing was sent
+ * Any other failure (a timeout, a dropped connection, a write concern error) may come after the server
+ * applied the write, retrying could count the reactions twice. They are counted as unknown and logged.
+ *
+ * Pending reactions are lost if the process dies without a graceful shutdown, and reactions to
+ * a profile that does not exist are dropped at the flush, so only write-through reports a missing profile.
+ */
+@Component
+@Slf4j
+public class ReactionAggregator {
+
+    private final ProfileRepository profileRepository;
+
+    private final boolean enabled;
+
+    private final int flushThreshold;
+
+    private final int maxPending;
+
+    /** Summed reactions per profile ID */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushScheduler;
+
+    /** Only one flush runs at a time */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /** Set while a flush triggered by the threshold is queued */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final Timer flushTimer;
+
+    private final LongAdder flushedReactions = new LongAdder();
+
+    private final LongAdder writtenThrough = new LongAdder();
+
+    private final LongAdder droppedReactions = new LongAdder();
+
+    private final LongAdder unknownReactions = new LongAdder();
+
+    /**
+     * Constructor to inject required dependencies
+     * @param profileRepository Repository the summed reactions are written to
+     * @param meterRegistry Registry the write-behind meters are published to
+     * @param enabled Hold reactions for a batched write rather than writing each one
+     * @param flushIntervalMs Time between periodic flushes
+     * @param flushThreshold Pending profiles that trigger a flush before the interval ends
+     * @param maxPending Pending profiles beyond which reactions are written through
+     */
+    public ReactionAggregator(ProfileRepository profileRepository, MeterRegistry meterRegistry,
+                              @Value("${profile.reactions.write-behind.enabled:true}") boolean enabled,
+                              @Value("${profile.reactions.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+                              @Value("${profile.reactions.write-behind.flush-threshold:1000}") int flushThreshold,
+                              @Value("${profile.reactions.write-behind.max-pending:100000}") int maxPending) {
+        this.profileRepository = profileRepository;
+        this.enabled = enabled;
+        this.flushThreshold = Math.max(flushThreshold, 1);
+        this.maxPending = Math.max(maxPending, 1);
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profile-reaction-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            flushScheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        this.flushTimer = Timer.builder("profile.reactions.flush")
+                .description("Time to write the pending reactions")
+                .register(meterRegistry);
+        Gauge.builder("profile.reactions.pending", pending, Map::size)
+                .description("Profiles with reactions waiting to be written")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.reactions.flushed", flushedReactions, LongAdder::sum)
+                .description("Reactions written by a flush")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.reactions.written-through", writtenThrough, LongAdder::sum)
+                .description("Reactions written at once because write-behind was off or full")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.reactions.dropped", droppedReactions, LongAdder::sum)
+                .description("Reactions dropped by a flush because the profile does not exist")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.reactions.unknown", unknownReactions, LongAdder::sum)
+                .description("Reactions of a failed flush that may or may not have been written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds likes and dislikes to a profile, held for the next flush unless write-behind is off or full.
+     * @return false if the reactions were written through and no profile has the ID
+     */
+    public boolean add(String profileId, long likes, long dislikes) {
+        if (enabled && (pending.size() < maxPending || pending.containsKey(profileId))) {
+            accumulate(profileId, likes, dislikes);
+            if (pending.size() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+                flushScheduler.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            }
+            return true;
+        }
+        writtenThrough.add(likes + dislikes);
+        return profileRepository.incrementReactions(profileId, likes, dislikes);
+    }
+
+    /**
+     * Writes every pending reaction in one bulk write.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<ReactionCountDto> reactions = new ArrayList<>();
+            for (String profileId : pending.keySet()) {
+                Pending sums = pending.remove(profileId);
+                // Zero sums are not sent, so bulk error indexes are indexes into reactions
+                if (sums != null && (sums.likes != 0 || sums.dislikes != 0)) {
+                    reactions.add(new ReactionCountDto(profileId, sums.likes, sums.dislikes));
+                }
+            }
+            if (reactions.isEmpty()) {
+                return;
+            }
+            try {
+                long matched = flushTimer.recordCallable(() -> profileRepository.incrementReactions(reactions));
+                flushedReactions.add(total(reactions));
+                if (matched < reactions.size()) {
+                    // The bulk result does not tell which ones, the reactions of missing profiles are gone
+                    droppedReactions.add(reactions.size() - matched);
+                    log.warn("method : flush(), message : {} of {} profiles not found", reactions.size() - matched, reactions.size());
+                }
+            } catch (BulkOperationException e) {
+                List<ReactionCountDto> failed = new ArrayList<>();
+                for (BulkWriteError error : e.getErrors()) {
+                    failed.add(reactions.get(error.getIndex()));
+                }
+                long applied = total(reactions) - total(failed);
+                if (e.getCause() instanceof MongoBulkWriteException bulk && bulk.getWriteConcernError() != null) {
+                    unknownReactions.add(applied);
+                    log.error("method : flush(), message : write concern error, {} reactions may not be written : {}",
+                            applied, bulk.getWriteConcernError().getMessage());
+                } else {
+                    flushedReactions.add(applied);
+                }
+                requeue(failed);
+                throw new IllegalStateException(failed.size() + " of " + reactions.size() + " profiles failed to flush", e);
+            } catch (Exception e) {
+                if (notSent(e)) {
+                    requeue(reactions);
+                    throw new IllegalStateException("Flushing " + reactions.size() + " profiles failed", e);
+                }
+                long total = total(reactions);
+                unknownReactions.add(total);
+                throw new IllegalStateException("Flushing " + reactions.size() + " profiles failed, " + total
+                        + " reactions may or may not be written", e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flushScheduler.shutdown();
+        flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic flush
+            log.error("method : flush(), message : {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Puts sums back even beyond max-pending, they were held already.
+     */
+    private void requeue(List<ReactionCountDto> reactions) {
+        reactions.forEach(reaction -> accumulate(reaction.profileId(), reaction.likes(), reaction.dislikes()));
+    }
+
+    private static long total(List<ReactionCountDto> reactions) {
+        return reactions.stream().mapToLong(reaction -> reaction.likes() + reaction.dislikes()).sum();
+    }
+
+    /**
+     * @return true if the write failed before it reached a server: no connection could be opened or selected
+     */
+    private static boolean notSent(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoSocketOpenException || cause instanceof MongoServerUnavailableException) {
+                return true;
+            }
+            // Server selection timed out, an operation timeout may come after the write was sent
+            if (cause instanceof MongoTimeoutException && !(cause instanceof MongoOperationTimeoutException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void accumulate(String profileId, long likes, long dislikes) {
+        pending.compute(profileId, (id, sums) -> {
+            if (sums == null) {
+                sums = new Pending();
+            }
+            sums.likes += likes;
+            sums.dislikes += dislikes;
+            return sums;
+        });
+    }
+
+    /**
+     * Summed reactions of one profile, only read and written while its map bin is locked.
+     */
+    private static final class Pending {
+
+        private long likes;
+
+        private long dislikes;
+    }
+}
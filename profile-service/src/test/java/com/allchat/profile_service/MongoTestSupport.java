@@ -0,0 +1,42 @@
+package com.allchat.profile_service;
+
+import com.allchat.profile_service.model.Profile;
+import com.allchat.profile_service.repository.ProfileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base of the tests running against a real MongoDB. The container is a bean of the test context, so every
+ * test class sharing a context also shares the container. Skipped where Docker is not available.
+ * A test class needing other settings adds them with @TestPropertySource.
+ */
+@SpringBootTest(properties = {"spring.cloud.config.enabled=false", "eureka.client.enabled=false",
+        "spring.data.mongodb.auto-index-creation=true"})
+@Import(TestcontainersConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoTestSupport {
+
+    @Autowired
+    protected ProfileRepository profileRepository;
+
+    /**
+     * @return the ID of a new profile without friends or reactions
+     */
+    protected String newProfile() {
+        return newProfile(0L);
+    }
+
+    /**
+     * @return the ID of a new profile without reactions, whose counter says it has totalFriends friends
+     */
+    protected String newProfile(long totalFriends) {
+        return profileRepository.save(Profile.builder()
+                .totalFriends(totalFriends)
+                .likes(0L)
+                .dislikes(0L)
+                .paid(false)
+                .build()).getId();
+    }
+}
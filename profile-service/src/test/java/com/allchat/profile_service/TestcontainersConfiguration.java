@@ -0,0 +1,18 @@
+package com.allchat.profile_service;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.MongoDBContainer;
+
+@TestConfiguration(proxyBeanMethods = false)
+class TestcontainersConfiguration {
+
+	/** A single node replica set, as the friend transactions need */
+	@Bean
+	@ServiceConnection
+	MongoDBContainer mongoDBContainer() {
+		return new MongoDBContainer("mongo:7.0");
+	}
+
+}
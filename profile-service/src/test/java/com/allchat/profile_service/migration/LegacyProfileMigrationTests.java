@@ -0,0 +1,87 @@
+package com.allchat.profile_service.migration;
+
+import com.allchat.profile_service.MongoTestSupport;
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import com.allchat.profile_service.model.Profile;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class LegacyProfileMigrationTests extends MongoTestSupport {
+
+    @Autowired
+    private LegacyProfileMigration migration;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ObjectId alice = new ObjectId();
+    private final ObjectId bob = new ObjectId();
+    private final ObjectId carol = new ObjectId();
+
+    @BeforeEach
+    void insertLegacyProfiles() {
+        mongoTemplate.remove(new Query(), FriendEdge.class);
+        mongoTemplate.remove(new Query(), Profile.class);
+        String gone = new ObjectId().toHexString();
+        // Written by the BigInteger model: counters are strings, the graph is embedded and only half saved
+        mongoTemplate.insert(legacy(alice, List.of(bob.toHexString(), gone), List.of(carol.toHexString()), List.of()), "profile");
+        mongoTemplate.insert(legacy(bob, List.of(), List.of(), List.of()), "profile");
+        mongoTemplate.insert(legacy(carol, List.of(), List.of(), List.of(alice.toHexString())), "profile");
+    }
+
+    @Test
+    void embeddedListsBecomeEdgesOnBothProfiles() {
+        migration.convertCounters();
+        assertEquals(3, migration.migrateFriendLists());
+
+        Map<String, EdgeType> edges = mongoTemplate.findAll(FriendEdge.class).stream()
+                .collect(Collectors.toMap(edge -> edge.getOwnerId() + ">" + edge.getPeerId(), FriendEdge::getType));
+        assertEquals(Map.of(
+                alice.toHexString() + ">" + bob.toHexString(), EdgeType.FRIEND,
+                bob.toHexString() + ">" + alice.toHexString(), EdgeType.FRIEND,
+                alice.toHexString() + ">" + carol.toHexString(), EdgeType.SENT_REQUEST,
+                carol.toHexString() + ">" + alice.toHexString(), EdgeType.RECEIVED_REQUEST), edges);
+
+        Document migrated = mongoTemplate.findById(alice, Document.class, "profile");
+        assertFalse(migrated.containsKey("friends"));
+        assertEquals(1L, migrated.get("totalFriends"));
+        assertEquals(1L, mongoTemplate.findById(bob, Document.class, "profile").get("totalFriends"));
+        assertEquals(7L, migrated.get("likes"));
+        assertEquals(0L, mongoTemplate.findById(carol, Document.class, "profile").get("totalFriends"));
+    }
+
+    @Test
+    void secondRunChangesNothing() {
+        migration.convertCounters();
+        migration.migrateFriendLists();
+
+        assertEquals(0, migration.convertCounters());
+        assertEquals(0, migration.migrateFriendLists());
+        assertEquals(4, mongoTemplate.count(Query.query(Criteria.where("ownerId").exists(true)), FriendEdge.class));
+    }
+
+    private static Document legacy(ObjectId id, List<String> friends, List<String> sent, List<String> received) {
+        return new Document("_id", id)
+                .append("username", "user-" + id)
+                .append("totalFriends", "0")
+                .append("likes", "7")
+                .append("dislikes", "2")
+                .append("friends", friends)
+                .append("sentRequest", sent)
+                .append("receivedRequest", received);
+    }
+}
@@ -0,0 +1,139 @@
+package com.allchat.profile_service.service;
+
+import com.allchat.profile_service.MongoTestSupport;
+import com.allchat.profile_service.dto.FriendPageDto;
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Read and write latency of the friend edges for a profile with {@value #FRIENDS} friends.
+ * Latencies are logged rather than asserted, they depend on the machine running the container.
+ */
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FriendEdgeBenchmarkTests extends MongoTestSupport {
+
+    private static final int FRIENDS = 10_000;
+
+    private static final int PAGE = 50;
+
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private IProfileService profileService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private String profileId;
+
+    private List<String> friendIds;
+
+    @BeforeAll
+    void createProfileWithFriends() {
+        profileId = newProfile((long) FRIENDS);
+        friendIds = new ArrayList<>(FRIENDS);
+        List<FriendEdge> edges = new ArrayList<>(2 * FRIENDS);
+        Instant now = Instant.now();
+        for (int i = 0; i < FRIENDS; i++) {
+            String friendId = new ObjectId().toHexString();
+            friendIds.add(friendId);
+            edges.add(new FriendEdge(null, profileId, friendId, EdgeType.FRIEND, now));
+            edges.add(new FriendEdge(null, friendId, profileId, EdgeType.FRIEND, now));
+        }
+        mongoTemplate.insert(edges, FriendEdge.class);
+        friendIds.sort(null);
+    }
+
+    @Test
+    void readLatency() throws Exception {
+        report("getProfile", measure(() -> profileService.getProfile(profileId)));
+        report("getFriends first page", measure(() -> profileService.getFriends(profileId, null, PAGE, false)));
+        report("getFriends with usernames", measure(() -> profileService.getFriends(profileId, null, PAGE, true)));
+
+        // Every page of the list, to compare the first pages with the deepest ones
+        List<String> listed = new ArrayList<>(FRIENDS);
+        long[] pages = new long[FRIENDS / PAGE];
+        String cursor = null;
+        for (int page = 0; page < pages.length; page++) {
+            String current = cursor;
+            long start = System.nanoTime();
+            FriendPageDto friends = profileService.getFriends(profileId, current, PAGE, false);
+            pages[page] = System.nanoTime() - start;
+            friends.friends().forEach(friend -> listed.add(friend.profileId()));
+            cursor = friends.nextCursor();
+        }
+        report("getFriends first 20 pages", Arrays.copyOfRange(pages, 0, 20));
+        report("getFriends last 20 pages", Arrays.copyOfRange(pages, pages.length - 20, pages.length));
+
+        assertEquals(friendIds, listed);
+        assertNull(cursor);
+    }
+
+    @Test
+    void writeLatency() throws Exception {
+        List<String> others = new ArrayList<>(ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            others.add(newProfile(0L));
+        }
+
+        long[] send = new long[ITERATIONS];
+        long[] accept = new long[ITERATIONS];
+        long[] remove = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            String other = others.get(i);
+            send[i] = time(() -> profileService.sendFriendRequest(other, profileId));
+            accept[i] = time(() -> profileService.acceptFriendRequest(other, profileId));
+        }
+        assertEquals(FRIENDS + ITERATIONS, profileRepository.findById(profileId).orElseThrow().getTotalFriends());
+        for (int i = 0; i < ITERATIONS; i++) {
+            String other = others.get(i);
+            remove[i] = time(() -> profileService.removeFriend(profileId, other));
+        }
+        report("sendFriendRequest", send);
+        report("acceptFriendRequest", accept);
+        report("removeFriend", remove);
+
+        assertEquals(FRIENDS, profileRepository.findById(profileId).orElseThrow().getTotalFriends());
+    }
+
+    private static long[] measure(Callable<?> operation) throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.call();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            nanos[i] = time(operation);
+        }
+        return nanos;
+    }
+
+    private static long time(Callable<?> operation) throws Exception {
+        long start = System.nanoTime();
+        operation.call();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String operation, long[] nanos) {
+        Arrays.sort(nanos);
+        log.info("method : report(), message : {} p50 {} ms, p99 {} ms", operation,
+                String.format("%.3f", nanos[nanos.length / 2] / 1e6),
+                String.format("%.3f", nanos[nanos.length * 99 / 100] / 1e6));
+    }
+}
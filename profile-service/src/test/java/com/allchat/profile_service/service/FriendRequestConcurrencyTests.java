@@ -0,0 +1,120 @@
+package com.allchat.profile_service.service;
+
+import com.allchat.profile_service.MongoTestSupport;
+import com.allchat.profile_service.model.EdgeType;
+import com.allchat.profile_service.model.FriendEdge;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Friend request flows racing on the same pair of profiles must leave exactly one friendship behind.
+ */
+class FriendRequestConcurrencyTests extends MongoTestSupport {
+
+    private static final int PAIRS = 100;
+
+    @Autowired
+    private IProfileService profileService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void simultaneousMutualRequestsMakeOneFriendship() throws Exception {
+        List<String[]> pairs = newPairs();
+
+        race(pairs, pair -> List.of(
+                () -> profileService.sendFriendRequest(pair[0], pair[1]),
+                () -> profileService.sendFriendRequest(pair[1], pair[0])));
+
+        pairs.forEach(this::assertFriends);
+    }
+
+    @Test
+    void retriedFlowsCountOnce() throws Exception {
+        List<String[]> pairs = newPairs();
+        for (String[] pair : pairs) {
+            profileService.sendFriendRequest(pair[0], pair[1]);
+        }
+
+        // A client retrying while its first accept is still running
+        race(pairs, pair -> List.of(
+                () -> profileService.acceptFriendRequest(pair[0], pair[1]),
+                () -> profileService.acceptFriendRequest(pair[0], pair[1]),
+                () -> profileService.sendFriendRequest(pair[0], pair[1])));
+        pairs.forEach(this::assertFriends);
+
+        race(pairs, pair -> List.of(
+                () -> profileService.removeFriend(pair[0], pair[1]),
+                () -> profileService.removeFriend(pair[1], pair[0])));
+        for (String[] pair : pairs) {
+            assertEquals(0, edges(pair));
+            assertEquals(0, profileRepository.findById(pair[0]).orElseThrow().getTotalFriends());
+            assertEquals(0, profileRepository.findById(pair[1]).orElseThrow().getTotalFriends());
+        }
+    }
+
+    private void assertFriends(String[] pair) {
+        assertEquals(2, edges(pair));
+        assertTrue(mongoTemplate.exists(edge(pair[0], pair[1]), FriendEdge.class));
+        assertTrue(mongoTemplate.exists(edge(pair[1], pair[0]), FriendEdge.class));
+        assertEquals(1, profileRepository.findById(pair[0]).orElseThrow().getTotalFriends());
+        assertEquals(1, profileRepository.findById(pair[1]).orElseThrow().getTotalFriends());
+    }
+
+    private long edges(String[] pair) {
+        return mongoTemplate.count(Query.query(new Criteria().orOperator(
+                Criteria.where("ownerId").is(pair[0]).and("peerId").is(pair[1]),
+                Criteria.where("ownerId").is(pair[1]).and("peerId").is(pair[0]))), FriendEdge.class);
+    }
+
+    private static Query edge(String ownerId, String peerId) {
+        return Query.query(Criteria.where("ownerId").is(ownerId).and("peerId").is(peerId).and("type").is(EdgeType.FRIEND));
+    }
+
+    /**
+     * Starts the flows of every pair at once and waits for all of them to succeed.
+     */
+    private static void race(List<String[]> pairs, Function<String[], List<Callable<Boolean>>> flows)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String[] pair : pairs) {
+                for (Callable<Boolean> flow : flows.apply(pair)) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return flow.call();
+                    }));
+                }
+            }
+            start.countDown();
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+    }
+
+    private List<String[]> newPairs() {
+        List<String[]> pairs = new ArrayList<>(PAIRS);
+        for (int i = 0; i < PAIRS; i++) {
+            pairs.add(new String[]{newProfile(), newProfile()});
+        }
+        return pairs;
+    }
+}
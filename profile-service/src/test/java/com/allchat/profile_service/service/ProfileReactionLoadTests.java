@@ -0,0 +1,75 @@
+package com.allchat.profile_service.service;
+
+import com.allchat.profile_service.MongoTestSupport;
+import com.allchat.profile_service.dto.ReactionCountDto;
+import com.allchat.profile_service.model.Profile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reactions sent concurrently to one profile must all be counted by the per reaction $inc, write-behind is off.
+ * The write-behind path is covered by {@link WriteBehindReactionLoadTests}.
+ */
+@TestPropertySource(properties = "profile.reactions.write-behind.enabled=false")
+class ProfileReactionLoadTests extends MongoTestSupport {
+
+    private static final int LIKES = 1000;
+
+    private static final int DISLIKES = 250;
+
+    @Autowired
+    private IProfileService profileService;
+
+    @Test
+    void concurrentLikesAreAllCounted() throws Exception {
+        String profileId = newProfile();
+
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < LIKES; i++) {
+                results.add(executor.submit(() -> profileService.addLike(profileId)));
+            }
+            for (int i = 0; i < DISLIKES; i++) {
+                results.add(executor.submit(() -> profileService.addDislike(profileId)));
+            }
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+
+        Profile profile = profileRepository.findById(profileId).orElseThrow();
+        assertEquals(LIKES, profile.getLikes());
+        assertEquals(DISLIKES, profile.getDislikes());
+    }
+
+    @Test
+    void batchedReactionsAreAddedPerProfile() throws Exception {
+        String first = newProfile();
+        String second = newProfile();
+
+        assertTrue(profileService.addReactions(List.of(
+                new ReactionCountDto(first, 3, 1),
+                new ReactionCountDto(second, 0, 2),
+                new ReactionCountDto(first, 2, 0))));
+        // The existing profile still gets its like
+        assertFalse(profileService.addReactions(List.of(
+                new ReactionCountDto(second, 1, 0),
+                new ReactionCountDto("000000000000000000000000", 1, 0))));
+
+        assertEquals(5, profileRepository.findById(first).orElseThrow().getLikes());
+        assertEquals(1, profileRepository.findById(first).orElseThrow().getDislikes());
+        assertEquals(1, profileRepository.findById(second).orElseThrow().getLikes());
+        assertEquals(2, profileRepository.findById(second).orElseThrow().getDislikes());
+    }
+}
@@ -0,0 +1,67 @@
+package com.allchat.profile_service.service;
+
+import com.allchat.profile_service.MongoTestSupport;
+import com.allchat.profile_service.model.Profile;
+import com.allchat.profile_service.service.impl.ReactionAggregator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reactions sent concurrently to a few profiles must all be counted once the write-behind aggregator flushed them.
+ */
+@TestPropertySource(properties = {"profile.reactions.write-behind.enabled=true",
+        "profile.reactions.write-behind.flush-threshold=1000000"})
+class WriteBehindReactionLoadTests extends MongoTestSupport {
+
+    private static final int PROFILES = 10;
+
+    private static final int LIKES = 1000;
+
+    private static final int DISLIKES = 250;
+
+    @Autowired
+    private IProfileService profileService;
+
+    @Autowired
+    private ReactionAggregator reactionAggregator;
+
+    @Test
+    void concurrentReactionsAreAllCountedAfterTheFlush() throws Exception {
+        List<String> profileIds = new ArrayList<>();
+        for (int i = 0; i < PROFILES; i++) {
+            profileIds.add(newProfile());
+        }
+
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String profileId : profileIds) {
+                for (int i = 0; i < LIKES; i++) {
+                    results.add(executor.submit(() -> profileService.addLike(profileId)));
+                }
+                for (int i = 0; i < DISLIKES; i++) {
+                    results.add(executor.submit(() -> profileService.addDislike(profileId)));
+                }
+            }
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        reactionAggregator.flush();
+
+        for (String profileId : profileIds) {
+            Profile profile = profileRepository.findById(profileId).orElseThrow();
+            assertEquals(LIKES, profile.getLikes());
+            assertEquals(DISLIKES, profile.getDislikes());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.allchat.profile_service.service.impl;
+
+import com.allchat.profile_service.dto.ReactionCountDto;
+import com.allchat.profile_service.repository.ProfileRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketOpenException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.bson.BsonDocument;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactionAggregatorTests {
+
+    private final ProfileRepository profileRepository = mock(ProfileRepository.class);
+
+    private ReactionAggregator aggregator;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        aggregator.shutdown();
+    }
+
+    @Test
+    void concurrentReactionsAreFlushedAsOneBulkWrite() {
+        // The interval and threshold are out of reach, only the explicit flush writes
+        aggregator = new ReactionAggregator(profileRepository, new SimpleMeterRegistry(), true, 3_600_000, 100, 100);
+        when(profileRepository.incrementReactions(anyList())).thenAnswer(invocation -> (long) invocation.getArgument(0, List.class).size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                String profileId = "profile-" + (i % 10);
+                boolean like = (i / 10) % 4 != 0;
+                executor.submit(() -> aggregator.add(profileId, like ? 1 : 0, like ? 0 : 1));
+            }
+        }
+        aggregator.flush();
+
+        Map<String, ReactionCountDto> written = captureWritten();
+        assertEquals(10, written.size());
+        written.values().forEach(reaction -> {
+            assertEquals(75, reaction.likes());
+            assertEquals(25, reaction.dislikes());
+        });
+        verify(profileRepository, never()).incrementReactions(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void reactionsBeyondMaxPendingAreWrittenThrough() {
+        aggregator = new ReactionAggregator(profileRepository, new SimpleMeterRegistry(), true, 3_600_000, 100, 2);
+        when(profileRepository.incrementReactions("c", 1, 0)).thenReturn(true);
+
+        aggregator.add("a", 1, 0);
+        aggregator.add("b", 1, 0);
+        assertTrue(aggregator.add("c", 1, 0));
+        // Already pending, still held
+        aggregator.add("a", 1, 0);
+
+        verify(profileRepository).incrementReactions("c", 1, 0);
+        verify(profileRepository, never()).incrementReactions("a", 1, 0);
+    }
+
+    @Test
+    void flushThatNeverReachedTheServerKeepsReactionsForTheNextOne() {
+        aggregator = new ReactionAggregator(profileRepository, new SimpleMeterRegistry(), true, 3_600_000, 100, 100);
+        when(profileRepository.incrementReactions(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("unavailable",
+                        new MongoSocketOpenException("refused", new ServerAddress())))
+                .thenReturn(1L);
+
+        aggregator.add("a", 2, 1);
+        assertThrows(IllegalStateException.class, aggregator::flush);
+        aggregator.add("a", 1, 0);
+        aggregator.flush();
+
+        ArgumentCaptor<List<ReactionCountDto>> captor = reactionsCaptor();
+        verify(profileRepository, times(2)).incrementReactions(captor.capture());
+        assertEquals(List.of(new ReactionCountDto("a", 3, 1)), captor.getAllValues().get(1));
+    }
+
+    @Test
+    void partialBulkFailureKeepsOnlyTheFailedReactions() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        aggregator = new ReactionAggregator(profileRepository, meterRegistry, true, 3_600_000, 100, 100);
+        when(profileRepository.incrementReactions(anyList()))
+                .thenAnswer(invocation -> {
+                    List<ReactionCountDto> reactions = invocation.getArgument(0);
+                    int failed = reactions.indexOf(reactions.stream()
+                            .filter(reaction -> reaction.profileId().equals("b")).findFirst().orElseThrow());
+                    throw bulkFailure(failed);
+                })
+                .thenReturn(1L);
+
+        aggregator.add("a", 2, 0);
+        aggregator.add("b", 1, 1);
+        aggregator.add("c", 0, 3);
+        assertThrows(IllegalStateException.class, aggregator::flush);
+        aggregator.flush();
+
+        ArgumentCaptor<List<ReactionCountDto>> captor = reactionsCaptor();
+        verify(profileRepository, times(2)).incrementReactions(captor.capture());
+        assertEquals(List.of(new ReactionCountDto("b", 1, 1)), captor.getAllValues().get(1));
+        assertEquals(7, meterRegistry.get("profile.reactions.flushed").functionCounter().count());
+    }
+
+    @Test
+    void ambiguousFailureIsCountedAsUnknownAndNotRetried() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        aggregator = new ReactionAggregator(profileRepository, meterRegistry, true, 3_600_000, 100, 100);
+        when(profileRepository.incrementReactions(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("timeout",
+                        new MongoSocketReadTimeoutException("read timed out", new ServerAddress(), new RuntimeException())));
+
+        aggregator.add("a", 2, 1);
+        assertThrows(IllegalStateException.class, aggregator::flush);
+        aggregator.flush();
+
+        verify(profileRepository).incrementReactions(anyList());
+        assertEquals(3, meterRegistry.get("profile.reactions.unknown").functionCounter().count());
+    }
+
+    private static BulkOperationException bulkFailure(int index) {
+        BulkWriteError error = new BulkWriteError(121, "Document failed validation", new BsonDocument(), index);
+        return new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of()), List.of(error), null, new ServerAddress(), Set.of()));
+    }
+
+    private Map<String, ReactionCountDto> captureWritten() {
+        ArgumentCaptor<List<ReactionCountDto>> captor = reactionsCaptor();
+        verify(profileRepository).incrementReactions(captor.capture());
+        Map<String, ReactionCountDto> written = new ConcurrentHashMap<>();
+        captor.getValue().forEach(reaction -> written.put(reaction.profileId(), reaction));
+        return written;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ReactionCountDto>> reactionsCaptor() {
+        return ArgumentCaptor.forClass((Class<List<ReactionCountDto>>) (Class<?>) List.class);
+    }
+}